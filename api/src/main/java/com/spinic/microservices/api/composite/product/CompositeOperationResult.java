@@ -0,0 +1,33 @@
+package com.spinic.microservices.api.composite.product;
+
+import java.util.List;
+
+/**
+ * Outcome of a composite write: the downstream calls that failed, if any.
+ */
+public class CompositeOperationResult {
+    private final int productId;
+    private final List<OperationFailure> failures;
+
+    public CompositeOperationResult() {
+        this.productId = 0;
+        this.failures = null;
+    }
+
+    public CompositeOperationResult(int productId, List<OperationFailure> failures) {
+        this.productId = productId;
+        this.failures = failures;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public List<OperationFailure> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return failures == null || failures.isEmpty();
+    }
+}
@@ -0,0 +1,34 @@
+package com.spinic.microservices.api.composite.product;
+
+/**
+ * A failed downstream call of a composite write, e.g. a review that could not be created.
+ */
+public class OperationFailure {
+    private final String service;
+    private final Integer entityId;
+    private final String message;
+
+    public OperationFailure() {
+        this.service = null;
+        this.entityId = null;
+        this.message = null;
+    }
+
+    public OperationFailure(String service, Integer entityId, String message) {
+        this.service = service;
+        this.entityId = entityId;
+        this.message = message;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public Integer getEntityId() {
+        return entityId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
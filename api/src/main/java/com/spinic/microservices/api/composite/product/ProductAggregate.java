@@ -4,12 +4,19 @@ import java.util.List;
 
 public class ProductAggregate {
 
+    public static final String PRODUCT = "product";
+    public static final String RECOMMENDATIONS = "recommendations";
+    public static final String REVIEWS = "reviews";
+
     private final int productId;
     private final String name;
     private final int weight;
     private final List<RecommendationSummary> recommendations;
     private final List<ReviewSummary> reviews;
     private final ServiceAddresses serviceAddresses;
+    private final List<String> timedOut;
+    private final List<String> stale;
+    private final List<String> failed;
 
     public ProductAggregate() {
         this.productId = 0;
@@ -18,15 +25,33 @@ public class ProductAggregate {
         this.recommendations = null;
         this.reviews = null;
         this.serviceAddresses = null;
+        this.timedOut = null;
+        this.stale = null;
+        this.failed = null;
     }
 
     public ProductAggregate(int productId, String name, int weight, List<RecommendationSummary> recommendations, List<ReviewSummary> reviews, ServiceAddresses serviceAddresses) {
+        this(productId, name, weight, recommendations, reviews, serviceAddresses, List.of());
+    }
+
+    public ProductAggregate(int productId, String name, int weight, List<RecommendationSummary> recommendations, List<ReviewSummary> reviews, ServiceAddresses serviceAddresses, List<String> timedOut) {
+        this(productId, name, weight, recommendations, reviews, serviceAddresses, timedOut, List.of());
+    }
+
+    public ProductAggregate(int productId, String name, int weight, List<RecommendationSummary> recommendations, List<ReviewSummary> reviews, ServiceAddresses serviceAddresses, List<String> timedOut, List<String> stale) {
+        this(productId, name, weight, recommendations, reviews, serviceAddresses, timedOut, stale, List.of());
+    }
+
+    public ProductAggregate(int productId, String name, int weight, List<RecommendationSummary> recommendations, List<ReviewSummary> reviews, ServiceAddresses serviceAddresses, List<String> timedOut, List<String> stale, List<String> failed) {
         this.productId = productId;
         this.name = name;
         this.weight = weight;
         this.recommendations = recommendations;
         this.reviews = reviews;
         this.serviceAddresses = serviceAddresses;
+        this.timedOut = timedOut;
+        this.stale = stale;
+        this.failed = failed;
     }
 
     public int getProductId() {
@@ -52,4 +77,28 @@ public class ProductAggregate {
     public ServiceAddresses getServiceAddresses() {
         return serviceAddresses;
     }
+
+    /**
+     * Returns the sections, "product", "recommendations" and/or "reviews", that did not arrive before the deadline
+     * of the request and are left empty.
+     */
+    public List<String> getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the sections, "recommendations" and/or "reviews", whose service failed and that hold the last known
+     * good data instead, up to app.product-composite.last-known-good.max-staleness old.
+     */
+    public List<String> getStale() {
+        return stale;
+    }
+
+    /**
+     * Returns the sections, "recommendations" and/or "reviews", whose service failed without last known good data
+     * and that are left empty.
+     */
+    public List<String> getFailed() {
+        return failed;
+    }
 }
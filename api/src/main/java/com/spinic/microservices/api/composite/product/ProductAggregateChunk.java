@@ -0,0 +1,76 @@
+package com.spinic.microservices.api.composite.product;
+
+/**
+ * One part of a streamed product aggregate. The type tells which of the fields are set:
+ * "product" (name, weight), "recommendation" or "review".
+ */
+public class ProductAggregateChunk {
+
+    public static final String PRODUCT = "product";
+    public static final String RECOMMENDATION = "recommendation";
+    public static final String REVIEW = "review";
+
+    private final String type;
+    private final int productId;
+    private final String name;
+    private final Integer weight;
+    private final RecommendationSummary recommendation;
+    private final ReviewSummary review;
+    private final String serviceAddress;
+
+    public ProductAggregateChunk() {
+        this.type = null;
+        this.productId = 0;
+        this.name = null;
+        this.weight = null;
+        this.recommendation = null;
+        this.review = null;
+        this.serviceAddress = null;
+    }
+
+    public ProductAggregateChunk(
+            String type,
+            int productId,
+            String name,
+            Integer weight,
+            RecommendationSummary recommendation,
+            ReviewSummary review,
+            String serviceAddress) {
+
+        this.type = type;
+        this.productId = productId;
+        this.name = name;
+        this.weight = weight;
+        this.recommendation = recommendation;
+        this.review = review;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public RecommendationSummary getRecommendation() {
+        return recommendation;
+    }
+
+    public ReviewSummary getReview() {
+        return review;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+}
@@ -0,0 +1,35 @@
+package com.spinic.microservices.api.composite.product;
+
+/**
+ * One entry of a batch lookup: either the aggregate of the requested productId, or an error message
+ * telling why it is missing.
+ */
+public class ProductAggregateEntry {
+    private final int productId;
+    private final ProductAggregate aggregate;
+    private final String error;
+
+    public ProductAggregateEntry() {
+        this.productId = 0;
+        this.aggregate = null;
+        this.error = null;
+    }
+
+    public ProductAggregateEntry(int productId, ProductAggregate aggregate, String error) {
+        this.productId = productId;
+        this.aggregate = aggregate;
+        this.error = error;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public ProductAggregate getAggregate() {
+        return aggregate;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -5,10 +5,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 @Tag(name = "ProductComposite", description = "REST API for  composite product information.")
 public interface ProductCompositeService {
 
+    default Mono<ProductAggregate> getProduct(int productId) {
+        return getProduct(productId, null);
+    }
+
+    /**
+     * Sample usage: "curl $HOST:$PORT/product-composite/1?include=reviews".
+     *
+     * @param productId Id of the product
+     * @param include   The sections to include besides the product, "recommendations" and/or "reviews", all if not given
+     * @return the composite product info, the sections that are not included are null
+     */
     @Operation(
             summary = "${api.product-composite.get-composite-product.description}",
             description = "${api.product-composite.get-composite-product.notes}")
@@ -21,7 +36,48 @@ public interface ProductCompositeService {
     @GetMapping(
             value = "/product-composite/{productId}",
             produces = "application/json")
-    ProductAggregate getProduct(@PathVariable int productId);
+    Mono<ProductAggregate> getProduct(
+            @PathVariable int productId,
+            @RequestParam(value = "include", required = false) List<String> include);
+
+    /**
+     * Sample usage: "curl -H 'Accept: application/x-ndjson' $HOST:$PORT/product-composite/1/stream".
+     *
+     * @param productId Id of the product
+     * @return the product first, then its recommendations and reviews as each core service answers
+     */
+    @Operation(
+            summary = "${api.product-composite.get-composite-product-stream.description}",
+            description = "${api.product-composite.get-composite-product-stream.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+            @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    })
+    @GetMapping(
+            value = "/product-composite/{productId}/stream",
+            produces = {"application/x-ndjson", "text/event-stream"})
+    Flux<ProductAggregateChunk> getProductStream(@PathVariable int productId);
+
+    /**
+     * Sample usage: "curl $HOST:$PORT/product-composite?ids=1,2,3".
+     *
+     * @param ids Ids of the products
+     * @return one entry per requested id, in the requested order
+     */
+    @Operation(
+            summary = "${api.product-composite.get-composite-products.description}",
+            description = "${api.product-composite.get-composite-products.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    })
+    @GetMapping(
+            value = "/product-composite",
+            produces = "application/json")
+    Flux<ProductAggregateEntry> getProducts(@RequestParam(value = "ids", required = true) List<Integer> ids);
 
     /**
      * Sample usage, see below.
@@ -31,31 +87,38 @@ public interface ProductCompositeService {
      * '{"productId":123,"name":"product 123","weight":123}'
      *
      * @param body A JSON representation of the new composite product
+     * @return the recommendations and reviews that could not be created, if any
      */
     @Operation(
             summary = "${api.product-composite.create-composite-product.description}",
             description = "${api.product-composite.create-composite-product.notes}")
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
             @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
             @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
     })
     @PostMapping(
             value = "/product-composite",
-            consumes = "application/json")
-    void createProduct(@RequestBody ProductAggregate body);
+            consumes = "application/json",
+            produces = "application/json")
+    Mono<CompositeOperationResult> createProduct(@RequestBody ProductAggregate body);
 
     /**
      * Sample usage: "curl -X DELETE $HOST:$PORT/product-composite/1".
      *
      * @param productId Id of the product
+     * @return the core services where the delete failed, if any
      */
     @Operation(
             summary = "${api.product-composite.delete-composite-product.description}",
             description = "${api.product-composite.delete-composite-product.notes}")
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
             @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
             @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
     })
-    @DeleteMapping(value = "/product-composite/{productId}")
-    void deleteProduct(@PathVariable int productId);
+    @DeleteMapping(
+            value = "/product-composite/{productId}",
+            produces = "application/json")
+    Mono<CompositeOperationResult> deleteProduct(@PathVariable int productId);
 }
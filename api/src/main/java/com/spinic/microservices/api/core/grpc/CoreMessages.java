@@ -0,0 +1,69 @@
+package com.spinic.microservices.api.core.grpc;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+
+/**
+ * Maps the API classes to and from the messages of the gRPC transport. Protobuf strings cannot be null, a null
+ * field is sent as an empty string and read back as null.
+ */
+public final class CoreMessages {
+
+    private CoreMessages() {
+    }
+
+    public static ProductMessage toMessage(Product api) {
+        return ProductMessage.newBuilder()
+                .setProductId(api.getProductId())
+                .setName(orEmpty(api.getName()))
+                .setWeight(api.getWeight())
+                .setServiceAddress(orEmpty(api.getServiceAddress()))
+                .build();
+    }
+
+    public static Product toApi(ProductMessage message) {
+        return new Product(message.getProductId(), orNull(message.getName()), message.getWeight(),
+                orNull(message.getServiceAddress()));
+    }
+
+    public static RecommendationMessage toMessage(Recommendation api) {
+        return RecommendationMessage.newBuilder()
+                .setProductId(api.getProductId())
+                .setRecommendationId(api.getRecommendationId())
+                .setAuthor(orEmpty(api.getAuthor()))
+                .setRate(api.getRate())
+                .setContent(orEmpty(api.getContent()))
+                .setServiceAddress(orEmpty(api.getServiceAddress()))
+                .build();
+    }
+
+    public static Recommendation toApi(RecommendationMessage message) {
+        return new Recommendation(message.getProductId(), message.getRecommendationId(), orNull(message.getAuthor()),
+                message.getRate(), orNull(message.getContent()), orNull(message.getServiceAddress()));
+    }
+
+    public static ReviewMessage toMessage(Review api) {
+        return ReviewMessage.newBuilder()
+                .setProductId(api.getProductId())
+                .setReviewId(api.getReviewId())
+                .setAuthor(orEmpty(api.getAuthor()))
+                .setSubject(orEmpty(api.getSubject()))
+                .setContent(orEmpty(api.getContent()))
+                .setServiceAddress(orEmpty(api.getServiceAddress()))
+                .build();
+    }
+
+    public static Review toApi(ReviewMessage message) {
+        return new Review(message.getProductId(), message.getReviewId(), orNull(message.getAuthor()),
+                orNull(message.getSubject()), orNull(message.getContent()), orNull(message.getServiceAddress()));
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String orNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -1,17 +1,39 @@
 package com.spinic.microservices.api.core.product;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+/**
+ * Requests and responses are JSON unless the client asks for Smile, the binary encoding of the same Jackson model,
+ * with "Content-Type: application/x-jackson-smile" and "Accept: application/x-jackson-smile".
+ */
 public interface ProductService {
 
     /**
      * Sample usage: "curl $HOST:$PORT/product/1".
      *
      * @param productId Id of the product
-     * @return the product, if found, else null
+     * @return the product, or NotFoundException if there is none
+     */
+    @GetMapping(
+            value    = "/product/{productId}",
+            produces = {"application/json", "application/x-jackson-smile"})
+    Mono<Product> getProduct(@PathVariable int productId);
+
+    /**
+     * Sample usage: "curl $HOST:$PORT/product?productIds=1,2,3".
+     *
+     * @param productIds Ids of the products
+     * @return the products that were found, ids without a product are left out
      */
-    @GetMapping(value = "/product/{productId}", produces = "application/json")
-    Product getProduct(@PathVariable int productId);
+    @GetMapping(
+            value    = "/product",
+            params   = "productIds",
+            produces = {"application/json", "application/x-jackson-smile"})
+    Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
 
     /**
      * Sample usage, see below.
@@ -25,9 +47,9 @@ public interface ProductService {
      */
     @PostMapping(
             value    = "/product",
-            consumes = "application/json",
-            produces = "application/json")
-    Product createProduct(@RequestBody Product body);
+            consumes = {"application/json", "application/x-jackson-smile"},
+            produces = {"application/json", "application/x-jackson-smile"})
+    Mono<Product> createProduct(@RequestBody Product body);
 
     /**
      * Sample usage: "curl -X DELETE $HOST:$PORT/product/1".
@@ -35,5 +57,5 @@ public interface ProductService {
      * @param productId Id of the product
      */
     @DeleteMapping(value = "/product/{productId}")
-    void deleteProduct(@PathVariable int productId);
+    Mono<Void> deleteProduct(@PathVariable int productId);
 }
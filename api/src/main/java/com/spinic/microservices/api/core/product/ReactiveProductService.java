@@ -0,0 +1,44 @@
+package com.spinic.microservices.api.core.product;
+
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.service.annotation.DeleteExchange;
+import org.springframework.web.service.annotation.GetExchange;
+import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Client variant of {@link ProductService} with exchange mappings, used to generate declarative HTTP clients.
+ */
+@HttpExchange(url = "/product", accept = "application/json")
+public interface ReactiveProductService {
+
+    /**
+     * @see ProductService#getProduct(int)
+     */
+    @GetExchange("/{productId}")
+    Mono<Product> getProduct(@PathVariable("productId") int productId);
+
+    /**
+     * @see ProductService#getProducts(List)
+     */
+    @GetExchange
+    Flux<Product> getProducts(@RequestParam("productIds") List<Integer> productIds);
+
+    /**
+     * @see ProductService#createProduct(Product)
+     */
+    @PostExchange(contentType = "application/json")
+    Mono<Product> createProduct(@RequestBody Product body);
+
+    /**
+     * @see ProductService#deleteProduct(int)
+     */
+    @DeleteExchange("/{productId}")
+    Mono<Void> deleteProduct(@PathVariable("productId") int productId);
+}
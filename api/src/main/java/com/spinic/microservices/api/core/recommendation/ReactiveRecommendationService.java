@@ -0,0 +1,43 @@
+package com.spinic.microservices.api.core.recommendation;
+
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.service.annotation.DeleteExchange;
+import org.springframework.web.service.annotation.GetExchange;
+import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Client variant of {@link RecommendationService} with exchange mappings, used to generate declarative HTTP clients.
+ */
+@HttpExchange(url = "/recommendation", accept = "application/json")
+public interface ReactiveRecommendationService {
+
+    /**
+     * @see RecommendationService#getRecommendations(int)
+     */
+    @GetExchange
+    Flux<Recommendation> getRecommendations(@RequestParam(value = "productId", required = true) int productId);
+
+    /**
+     * @see RecommendationService#getRecommendationsForProducts(List)
+     */
+    @GetExchange
+    Flux<Recommendation> getRecommendationsForProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+    /**
+     * @see RecommendationService#createRecommendation(Recommendation)
+     */
+    @PostExchange(contentType = "application/json")
+    Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
+
+    /**
+     * @see RecommendationService#deleteRecommendations(int)
+     */
+    @DeleteExchange
+    Mono<Void> deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
+}
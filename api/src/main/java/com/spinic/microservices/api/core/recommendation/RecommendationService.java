@@ -1,9 +1,15 @@
 package com.spinic.microservices.api.core.recommendation;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
+/**
+ * Requests and responses are JSON unless the client asks for Smile, the binary encoding of the same Jackson model,
+ * with "Content-Type: application/x-jackson-smile" and "Accept: application/x-jackson-smile".
+ */
 public interface RecommendationService {
     /**
      * Sample usage: "curl $HOST:$PORT/recommendation?productId=1".
@@ -13,10 +19,23 @@ public interface RecommendationService {
      */
     @GetMapping(
             value = "/recommendation",
-            produces = "application/json")
-    List<Recommendation> getRecommendations(
+            produces = {"application/json", "application/x-jackson-smile"})
+    Flux<Recommendation> getRecommendations(
             @RequestParam(value = "productId", required = true) int productId);
 
+    /**
+     * Sample usage: "curl $HOST:$PORT/recommendation?productIds=1,2,3".
+     *
+     * @param productIds Ids of the products
+     * @return the recommendations of all the products
+     */
+    @GetMapping(
+            value = "/recommendation",
+            params = "productIds",
+            produces = {"application/json", "application/x-jackson-smile"})
+    Flux<Recommendation> getRecommendationsForProducts(
+            @RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
     /**
      * Sample usage, see below.
      * <p>
@@ -29,9 +48,9 @@ public interface RecommendationService {
      */
     @PostMapping(
             value = "/recommendation",
-            consumes = "application/json",
-            produces = "application/json")
-    Recommendation createRecommendation(@RequestBody Recommendation body);
+            consumes = {"application/json", "application/x-jackson-smile"},
+            produces = {"application/json", "application/x-jackson-smile"})
+    Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
 
     /**
      * Sample usage: "curl -X DELETE $HOST:$PORT/recommendation?productId=1".
@@ -39,5 +58,5 @@ public interface RecommendationService {
      * @param productId Id of the product
      */
     @DeleteMapping(value = "/recommendation")
-    void deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
+    Mono<Void> deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
 }
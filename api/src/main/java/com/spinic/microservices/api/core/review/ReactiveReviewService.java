@@ -0,0 +1,43 @@
+package com.spinic.microservices.api.core.review;
+
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.service.annotation.DeleteExchange;
+import org.springframework.web.service.annotation.GetExchange;
+import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Client variant of {@link ReviewService} with exchange mappings, used to generate declarative HTTP clients.
+ */
+@HttpExchange(url = "/review", accept = "application/json")
+public interface ReactiveReviewService {
+
+    /**
+     * @see ReviewService#getReviews(int)
+     */
+    @GetExchange
+    Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
+
+    /**
+     * @see ReviewService#getReviewsForProducts(List)
+     */
+    @GetExchange
+    Flux<Review> getReviewsForProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+    /**
+     * @see ReviewService#createReview(Review)
+     */
+    @PostExchange(contentType = "application/json")
+    Mono<Review> createReview(@RequestBody Review body);
+
+    /**
+     * @see ReviewService#deleteReviews(int)
+     */
+    @DeleteExchange
+    Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true) int productId);
+}
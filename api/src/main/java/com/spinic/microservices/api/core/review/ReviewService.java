@@ -1,9 +1,15 @@
 package com.spinic.microservices.api.core.review;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
+/**
+ * Requests and responses are JSON unless the client asks for Smile, the binary encoding of the same Jackson model,
+ * with "Content-Type: application/x-jackson-smile" and "Accept: application/x-jackson-smile".
+ */
 public interface ReviewService {
     /**
      * Sample usage: "curl $HOST:$PORT/review?productId=1".
@@ -13,8 +19,20 @@ public interface ReviewService {
      */
     @GetMapping(
             value = "/review",
-            produces = "application/json")
-    List<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
+            produces = {"application/json", "application/x-jackson-smile"})
+    Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
+
+    /**
+     * Sample usage: "curl $HOST:$PORT/review?productIds=1,2,3".
+     *
+     * @param productIds Ids of the products
+     * @return the reviews of all the products
+     */
+    @GetMapping(
+            value = "/review",
+            params = "productIds",
+            produces = {"application/json", "application/x-jackson-smile"})
+    Flux<Review> getReviewsForProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
 
     /**
      * Sample usage, see below.
@@ -28,9 +46,9 @@ public interface ReviewService {
      */
     @PostMapping(
             value = "/review",
-            consumes = "application/json",
-            produces = "application/json")
-    Review createReview(@RequestBody Review body);
+            consumes = {"application/json", "application/x-jackson-smile"},
+            produces = {"application/json", "application/x-jackson-smile"})
+    Mono<Review> createReview(@RequestBody Review body);
 
     /**
      * Sample usage: "curl -X DELETE $HOST:$PORT/review?productId=1".
@@ -38,5 +56,5 @@ public interface ReviewService {
      * @param productId Id of the product
      */
     @DeleteMapping(value = "/review")
-    void deleteReviews(@RequestParam(value = "productId", required = true) int productId);
+    Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true) int productId);
 }
@@ -1,21 +1,46 @@
 package com.spinic.microservices.composite.product;
 
+import com.spinic.microservices.util.http.RequestDeadline;
 import io.swagger.v3.oas.models.ExternalDocumentation;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
 
 @SpringBootApplication
 @ComponentScan("com.spinic")
 public class ProductCompositeServiceApplication {
 
+	private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeServiceApplication.class);
+
+	private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+	private final Integer maxConnections;
+	private final Integer pendingAcquireMaxCount;
+	private final Duration maxIdleTime;
+	private final boolean smile;
+	private final boolean h2c;
+
 	@Value("${api.common.version}") 				String apiVersion;
 	@Value("${api.common.title}") 					String apiTitle;
 	@Value("${api.common.description}") 			String apiDescription;
@@ -28,13 +53,72 @@ public class ProductCompositeServiceApplication {
 	@Value("${api.common.contact.email}") 			String apiContactEmail;
 	@Value("${api.common.contact.url}") 			String apiContactURL;
 
+	@Autowired
+	public ProductCompositeServiceApplication(
+			@Value("${app.http-client.max-connections:500}") Integer maxConnections,
+			@Value("${app.http-client.pending-acquire-max-count:10000}") Integer pendingAcquireMaxCount,
+			@Value("${app.http-client.max-idle-time:30s}") Duration maxIdleTime,
+			@Value("${app.http-client.smile:true}") boolean smile,
+			@Value("${app.http-client.h2c:false}") boolean h2c) {
+		this.maxConnections = maxConnections;
+		this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+		this.maxIdleTime = maxIdleTime;
+		this.smile = smile;
+		this.h2c = h2c;
+	}
+
 	public static void main(String[] args) {
 		SpringApplication.run(ProductCompositeServiceApplication.class, args);
 	}
 
+	/**
+	 * Non-blocking client shared by all calls to the core services. Connections are pooled and kept alive,
+	 * requests waiting for a free connection are queued instead of opening new ones.
+	 * The deadline of the incoming request, if any, is passed on to the core services.
+	 * JSON bodies are exchanged as Smile unless app.http-client.smile is false. With app.http-client.h2c the calls use
+	 * HTTP/2 without TLS, multiplexed over fewer connections, the core services need server.http2.enabled for that.
+	 */
 	@Bean
-	RestTemplate restTemplate() {
-		return new RestTemplate();
+	public WebClient webClient(WebClient.Builder builder) {
+		LOG.info("Creates a WebClient with max connections = {}, pending acquire max count = {}, Smile: {}, h2c: {}",
+				maxConnections, pendingAcquireMaxCount, smile, h2c);
+
+		ConnectionProvider connectionProvider = ConnectionProvider.builder("core-services")
+				.maxConnections(maxConnections)
+				.pendingAcquireMaxCount(pendingAcquireMaxCount)
+				.maxIdleTime(maxIdleTime)
+				.build();
+
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				.protocol(h2c ? HttpProtocol.H2C : HttpProtocol.HTTP11);
+		builder.clientConnector(new ReactorClientHttpConnector(httpClient))
+				.filter(propagateDeadline());
+		if (smile) {
+			builder.filter(preferSmile());
+		}
+		return builder.build();
+	}
+
+	private static ExchangeFilterFunction propagateDeadline() {
+		return (request, next) -> Mono.deferContextual(context -> next.exchange(RequestDeadline.from(context)
+				.map(deadline -> ClientRequest.from(request)
+						.header(RequestDeadline.HEADER, String.valueOf(deadline.remaining().toMillis()))
+						.build())
+				.orElse(request)));
+	}
+
+	private static ExchangeFilterFunction preferSmile() {
+		// JSON stays acceptable, so a core service that cannot produce Smile still answers
+		return (request, next) -> next.exchange(ClientRequest.from(request)
+				.headers(headers -> {
+					if (headers.getAccept().contains(MediaType.APPLICATION_JSON)) {
+						headers.setAccept(List.of(APPLICATION_SMILE, MediaType.APPLICATION_JSON));
+					}
+					if (MediaType.APPLICATION_JSON.equals(headers.getContentType())) {
+						headers.setContentType(APPLICATION_SMILE);
+					}
+				})
+				.build());
 	}
 
 	@Bean
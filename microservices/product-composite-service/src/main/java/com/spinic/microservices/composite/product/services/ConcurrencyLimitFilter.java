@@ -0,0 +1,126 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Adaptive concurrency limit in front of the product-composite API.
+ * <p>
+ * Requests beyond the current limit are not queued but rejected at once with 503 and a Retry-After header, so the
+ * accepted requests keep their latency under overload. Both the REST API and GraphQL are limited, other paths, e.g.
+ * actuator and OpenAPI, are not.
+ * <p>
+ * The limit follows the latency of the idempotent calls to the core services, see {@link DownstreamCallPolicies} and
+ * {@link GradientConcurrencyLimit}, not the latency of the requests themselves: a request answered from the cache
+ * would lower it, a stream or a batch of products would raise it, without saying anything about the load of the core
+ * services.
+ * <p>
+ * WebFlux only, not applied with the mvc web runtime.
+ * <p>
+ * Metrics: "composite.concurrency.limit", "composite.concurrency.in-flight" and "composite.concurrency.rejections".
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ConcurrencyLimitFilter implements WebFilter, Ordered {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private static final List<String> LIMITED_PATHS = List.of("/product-composite", "/graphql");
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final GradientConcurrencyLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejections;
+
+    @Autowired
+    public ConcurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            DownstreamCallPolicies callPolicies,
+            @Value("${app.product-composite.concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${app.product-composite.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${app.product-composite.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${app.product-composite.concurrency-limit.max-limit:1000}") int maxLimit,
+            @Value("${app.product-composite.concurrency-limit.tolerance:1.5}") double tolerance,
+            @Value("${app.product-composite.concurrency-limit.retry-after:1s}") Duration retryAfter) {
+
+        LOG.info("Concurrency limit enabled: {}, initial: {}, min: {}, max: {}, tolerance: {}",
+                enabled, initialLimit, minLimit, maxLimit, tolerance);
+
+        this.enabled = enabled;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        this.limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance);
+
+        Gauge.builder("composite.concurrency.limit", limit, GradientConcurrencyLimit::getLimit).register(meterRegistry);
+        Gauge.builder("composite.concurrency.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        this.rejections = meterRegistry.counter("composite.concurrency.rejections");
+
+        if (enabled) {
+            callPolicies.addLatencyListener(latency -> limit.onSample(latency, inFlight.get()));
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!enabled || LIMITED_PATHS.stream().noneMatch(path::startsWith)) {
+            return chain.filter(exchange);
+        }
+
+        if (!tryAcquire()) {
+            rejections.increment();
+            LOG.debug("Rejects a request, {} requests in flight, limit: {}", inFlight.get(), limit.getLimit());
+            exchange.getResponse().setStatusCode(SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return exchange.getResponse().setComplete();
+        }
+
+        return chain.filter(exchange).doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Counts the request as in flight, unless the limit is reached.
+     */
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.netty.channel.unix.DomainSocketAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Optional Unix domain socket transport for the REST calls of {@link ProductCompositeIntegration}, for core services
+ * on the same host. A core service is called over the socket at app.&lt;service&gt;.socket-path when that is set,
+ * e.g. app.review-service.socket-path, and over TCP as before otherwise.
+ * <p>
+ * The calls over a socket use HTTP/2 without TLS (h2c) if app.http-client.h2c is true, like the TCP calls. The core
+ * service needs app.http-server.socket-path set to the same path. Needs the native epoll transport of Netty, i.e.
+ * Linux.
+ */
+@Component
+public class DomainSocketTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DomainSocketTransport.class);
+
+    private final boolean h2c;
+    private final int maxConnections;
+    private final Map<String, String> socketPaths;
+
+    @Autowired
+    public DomainSocketTransport(
+            @Value("${app.http-client.h2c:false}") boolean h2c,
+            @Value("${app.http-client.max-connections:500}") int maxConnections,
+            @Value("${app.product-service.socket-path:}") String productServiceSocketPath,
+            @Value("${app.recommendation-service.socket-path:}") String recommendationServiceSocketPath,
+            @Value("${app.review-service.socket-path:}") String reviewServiceSocketPath) {
+
+        this.h2c = h2c;
+        this.maxConnections = maxConnections;
+        this.socketPaths = Map.of(
+                "product-service", productServiceSocketPath,
+                "recommendation-service", recommendationServiceSocketPath,
+                "review-service", reviewServiceSocketPath);
+    }
+
+    /**
+     * Returns a client that calls the downstream service over its socket, or the client as is if the service has
+     * no socket path.
+     */
+    public WebClient client(String downstream, WebClient client) {
+        String socketPath = socketPaths.getOrDefault(downstream, "");
+        if (socketPath.isEmpty()) {
+            return client;
+        }
+
+        LOG.info("Calls {} over the Unix domain socket {}, h2c: {}", downstream, socketPath, h2c);
+
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.create(downstream + "-socket", maxConnections))
+                .remoteAddress(() -> new DomainSocketAddress(socketPath))
+                .protocol(h2c ? HttpProtocol.H2C : HttpProtocol.HTTP11);
+        ClientHttpConnector connector = new ReactorClientHttpConnector(httpClient);
+        // Reactor Netty connects to the host and port of an absolute URI, only a path and query go to the socket
+        return client.mutate()
+                .clientConnector((method, uri, requestCallback) -> connector.connect(method, pathAndQuery(uri), requestCallback))
+                .build();
+    }
+
+    private static URI pathAndQuery(URI uri) {
+        return URI.create(uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery());
+    }
+}
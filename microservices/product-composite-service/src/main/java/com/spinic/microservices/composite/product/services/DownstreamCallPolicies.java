@@ -0,0 +1,132 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.spinic.microservices.api.exceptions.InvalidInputException;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * Creates a {@link DownstreamCallPolicy} per downstream service from the app.http-client settings.
+ * <p>
+ * Every downstream service gets its own bulkhead and circuit breaker, so a saturated review-service cannot use up
+ * the capacity reserved for the other services. Their state is published as "resilience4j.*" metrics.
+ */
+@Component
+public class DownstreamCallPolicies {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamCallPolicies.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int latencyWindow;
+    private final double timeoutPercentile;
+    private final double timeoutMultiplier;
+    private final Duration minTimeout;
+    private final Duration maxTimeout;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final Duration minHedgeDelay;
+    private final double hedgeBudgetRatio;
+
+    private final BulkheadRegistry bulkheads;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final List<LongConsumer> latencyListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public DownstreamCallPolicies(
+            MeterRegistry meterRegistry,
+            @Value("${app.http-client.latency-window:1000}") int latencyWindow,
+            @Value("${app.http-client.timeout.percentile:0.99}") double timeoutPercentile,
+            @Value("${app.http-client.timeout.multiplier:2.0}") double timeoutMultiplier,
+            @Value("${app.http-client.timeout.min:200ms}") Duration minTimeout,
+            @Value("${app.http-client.timeout.max:5s}") Duration maxTimeout,
+            @Value("${app.http-client.hedging.enabled:false}") boolean hedgingEnabled,
+            @Value("${app.http-client.hedging.percentile:0.95}") double hedgePercentile,
+            @Value("${app.http-client.hedging.min-delay:10ms}") Duration minHedgeDelay,
+            @Value("${app.http-client.hedging.budget-ratio:0.1}") double hedgeBudgetRatio,
+            @Value("${app.http-client.bulkhead.max-concurrent-calls:100}") int maxConcurrentCalls,
+            @Value("${app.http-client.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${app.http-client.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${app.http-client.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+            @Value("${app.http-client.circuit-breaker.wait-duration-in-open-state:10s}") Duration waitDurationInOpenState,
+            @Value("${app.http-client.circuit-breaker.permitted-calls-in-half-open-state:3}") int permittedCallsInHalfOpenState) {
+
+        LOG.info("Downstream timeouts: p{} x {} within [{}, {}], hedging enabled: {}, at p{}, budget ratio: {}",
+                timeoutPercentile * 100, timeoutMultiplier, minTimeout, maxTimeout, hedgingEnabled, hedgePercentile * 100, hedgeBudgetRatio);
+        LOG.info("Downstream bulkheads: {} concurrent calls, circuit breakers: open at {}% failures of {} calls, wait {} when open",
+                maxConcurrentCalls, failureRateThreshold, slidingWindowSize, waitDurationInOpenState);
+
+        this.meterRegistry = meterRegistry;
+        this.latencyWindow = latencyWindow;
+        this.timeoutPercentile = timeoutPercentile;
+        this.timeoutMultiplier = timeoutMultiplier;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = minHedgeDelay;
+        this.hedgeBudgetRatio = hedgeBudgetRatio;
+
+        // A full bulkhead rejects at once instead of queueing the call
+        this.bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+
+        this.circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(DownstreamCallPolicies::isFailure)
+                .build());
+
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+    }
+
+    public DownstreamCallPolicy create(String downstream) {
+        return new DownstreamCallPolicy(downstream, meterRegistry, latencyWindow,
+                timeoutPercentile, timeoutMultiplier, minTimeout, maxTimeout,
+                hedgingEnabled, hedgePercentile, minHedgeDelay, hedgeBudgetRatio,
+                bulkheads.bulkhead(downstream), circuitBreakers.circuitBreaker(downstream),
+                latency -> latencyListeners.forEach(listener -> listener.accept(latency)));
+    }
+
+    /**
+     * Registers a listener for the latency, in nanoseconds, of every answered attempt of an idempotent call to any of
+     * the downstream services, also of the policies created before.
+     */
+    public void addLatencyListener(LongConsumer listener) {
+        latencyListeners.add(listener);
+    }
+
+    /**
+     * 4xx responses, e.g. an unknown productId, say nothing about the health of the downstream service. Neither do
+     * their gRPC counterparts, which arrive already mapped to NotFoundException and InvalidInputException.
+     */
+    static boolean isFailure(Throwable ex) {
+        if (ex instanceof NotFoundException || ex instanceof InvalidInputException) {
+            return false;
+        }
+        return !(ex instanceof WebClientResponseException && ((WebClientResponseException) ex).getStatusCode().is4xxClientError());
+    }
+}
@@ -0,0 +1,217 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.spinic.microservices.util.http.RequestDeadline;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
+
+/**
+ * Timeouts, hedging, bulkhead and circuit breaker for the calls to one downstream service.
+ * <p>
+ * The timeout of idempotent calls follows the observed latency: a percentile of the recent calls times a
+ * multiplier, kept between a min and a max. Until enough calls are observed, and for all other calls, the max
+ * is used. When hedging is enabled, an idempotent call that has not answered within a (lower) percentile of the
+ * observed latency is sent once more and the first answer wins, as far as the {@link HedgeBudget} allows.
+ * <p>
+ * Every HTTP request, hedges included, needs a permit from the bulkhead, and every call passes the circuit breaker.
+ * Both reject at once, so callers fail fast into their degraded path instead of waiting for a saturated or failing
+ * service.
+ * <p>
+ * Metrics: "composite.downstream.timeout" (current timeout), "composite.downstream.timeouts",
+ * "composite.downstream.hedges" (outcome sent or rejected), "composite.downstream.rejections" (reason bulkhead or
+ * circuit-breaker) and "composite.downstream.circuit-breaker.transitions" (from and to state), all tagged with the
+ * downstream service.
+ */
+public class DownstreamCallPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamCallPolicy.class);
+
+    private final String downstream;
+    private final LatencyWindow latencies;
+    private final HedgeBudget hedgeBudget;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final LongConsumer latencyListener;
+
+    private final double timeoutPercentile;
+    private final double timeoutMultiplier;
+    private final Duration minTimeout;
+    private final Duration maxTimeout;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final Duration minHedgeDelay;
+
+    private final Counter timeouts;
+    private final Counter hedgesSent;
+    private final Counter hedgesRejected;
+
+    DownstreamCallPolicy(
+            String downstream, MeterRegistry meterRegistry, int latencyWindow,
+            double timeoutPercentile, double timeoutMultiplier, Duration minTimeout, Duration maxTimeout,
+            boolean hedgingEnabled, double hedgePercentile, Duration minHedgeDelay, double hedgeBudgetRatio,
+            Bulkhead bulkhead, CircuitBreaker circuitBreaker, LongConsumer latencyListener) {
+
+        this.downstream = downstream;
+        this.latencies = new LatencyWindow(latencyWindow);
+        this.hedgeBudget = new HedgeBudget(hedgeBudgetRatio);
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyListener = latencyListener;
+        this.timeoutPercentile = timeoutPercentile;
+        this.timeoutMultiplier = timeoutMultiplier;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = minHedgeDelay;
+
+        Gauge.builder("composite.downstream.timeout", this, p -> p.currentTimeout().toMillis())
+                .tag("downstream", downstream)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.timeouts = meterRegistry.counter("composite.downstream.timeouts", "downstream", downstream);
+        this.hedgesSent = meterRegistry.counter("composite.downstream.hedges", "downstream", downstream, "outcome", "sent");
+        this.hedgesRejected = meterRegistry.counter("composite.downstream.hedges", "downstream", downstream, "outcome", "rejected");
+
+        Counter bulkheadRejections = meterRegistry.counter("composite.downstream.rejections", "downstream", downstream, "reason", "bulkhead");
+        Counter circuitBreakerRejections = meterRegistry.counter("composite.downstream.rejections", "downstream", downstream, "reason", "circuit-breaker");
+        bulkhead.getEventPublisher().onCallRejected(event -> bulkheadRejections.increment());
+        circuitBreaker.getEventPublisher().onCallNotPermitted(event -> circuitBreakerRejections.increment());
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.StateTransition transition = event.getStateTransition();
+            LOG.warn("Circuit breaker for {} changed from {} to {}", downstream, transition.getFromState(), transition.getToState());
+            meterRegistry.counter("composite.downstream.circuit-breaker.transitions", "downstream", downstream,
+                    "from", transition.getFromState().name(), "to", transition.getToState().name()).increment();
+        });
+    }
+
+    /**
+     * Applies the adaptive timeout and, if enabled, hedging to a call that is safe to send twice.
+     * The call is subscribed to once per attempt. Under a {@link RequestDeadline} the attempts are cancelled when the
+     * caller gives up, otherwise they run to completion in the background.
+     */
+    public <T> Mono<T> idempotentCall(Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            hedgeBudget.onRequest();
+
+            boolean cancellable = RequestDeadline.from(context).isPresent();
+            Mono<T> attempts = attempt(call, cancellable);
+            Duration hedgeDelay = currentHedgeDelay();
+            if (hedgeDelay != null) {
+                // The first signal wins, a failing hedge never signals so the primary call decides
+                Mono<T> hedge = Mono.delay(hedgeDelay).flatMap(tick -> hedge(call, cancellable));
+                attempts = Mono.firstWithSignal(attempts, hedge);
+            }
+            return withTimeout(attempts, currentTimeout());
+        }).transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Applies the max timeout to a call that is not hedged and whose latency is not tracked, e.g. a write.
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        return withTimeout(call.transformDeferred(BulkheadOperator.of(bulkhead)), maxTimeout)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Applies bulkhead and circuit breaker to a streamed call. Instead of one deadline for the whole stream, the
+     * adaptive timeout applies to the first element and to the gap between elements, so a long stream is not cut off.
+     */
+    public <T> Flux<T> streamingCall(Flux<T> call) {
+        return Flux.defer(() -> {
+            Duration timeout = currentTimeout();
+            return call
+                    .transformDeferred(BulkheadOperator.of(bulkhead))
+                    .timeout(timeout, Flux.defer(() -> {
+                        timeouts.increment();
+                        return Flux.error(new TimeoutException(downstream + " did not send anything for " + timeout.toMillis() + " ms"));
+                    }));
+        }).transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public CircuitBreaker.State circuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    public Duration currentTimeout() {
+        Duration observed = latencies.percentile(timeoutPercentile);
+        if (observed == null) {
+            return maxTimeout;
+        }
+        Duration timeout = Duration.ofNanos((long) (observed.toNanos() * timeoutMultiplier));
+        return timeout.compareTo(minTimeout) < 0 ? minTimeout : timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+    }
+
+    /**
+     * Returns how long to wait before hedging, or null if hedging is disabled or too few calls are observed.
+     */
+    public Duration currentHedgeDelay() {
+        if (!hedgingEnabled) {
+            return null;
+        }
+        Duration observed = latencies.percentile(hedgePercentile);
+        if (observed == null) {
+            return null;
+        }
+        return observed.compareTo(minHedgeDelay) < 0 ? minHedgeDelay : observed;
+    }
+
+    private <T> Mono<T> hedge(Mono<T> call, boolean cancellable) {
+        if (!hedgeBudget.tryAcquire()) {
+            hedgesRejected.increment();
+            return Mono.never();
+        }
+        hedgesSent.increment();
+        return attempt(call, cancellable).onErrorResume(ex -> Mono.never());
+    }
+
+    private <T> Mono<T> attempt(Mono<T> call, boolean cancellable) {
+        // An attempt that loses the race against its hedge, or outlives the timeout, is not cancelled but runs to
+        // completion, bounded by the max timeout. Cancelling an HTTP/1.1 request closes its pooled connection while
+        // the server does the work anyway, and the window records the real latency instead of the time until the
+        // other attempt won.
+        // A request with a deadline is the exception: once the deadline has passed nobody waits for the answer, so
+        // its attempts are cancelled with the call, and they keep the Reactor context that carries the deadline.
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // Only answers are measured, a 4xx included. A failed attempt, e.g. a refused connection or the max
+            // timeout, says nothing about how fast the service answers.
+            Mono<T> measured = call
+                    .timeout(maxTimeout)
+                    .doOnSuccess(value -> recordLatency(start))
+                    .doOnError(ex -> {
+                        if (!DownstreamCallPolicies.isFailure(ex)) {
+                            recordLatency(start);
+                        }
+                    })
+                    .transformDeferred(BulkheadOperator.of(bulkhead));
+            return cancellable ? measured : Mono.fromFuture(measured.toFuture(), true);
+        });
+    }
+
+    private void recordLatency(long start) {
+        long latency = System.nanoTime() - start;
+        latencies.record(Duration.ofNanos(latency));
+        latencyListener.accept(latency);
+    }
+
+    private <T> Mono<T> withTimeout(Mono<T> call, Duration timeout) {
+        return call.timeout(timeout, Mono.defer(() -> {
+            timeouts.increment();
+            return Mono.error(new TimeoutException(downstream + " did not respond within " + timeout.toMillis() + " ms"));
+        }));
+    }
+}
@@ -0,0 +1,72 @@
+package com.spinic.microservices.composite.product.services;
+
+/**
+ * Gradient concurrency limit: compares the latency of recent downstream calls with the latency without load and
+ * shrinks the limit when calls start to queue up, grows it while they do not.
+ * <p>
+ * Every {@link #WINDOW_SIZE} samples the limit is recalculated as {@code limit * gradient + sqrt(limit)}, where
+ * {@code gradient = clamp(tolerance * minRtt / windowRtt, 0.5, 1)}. The min RTT is forgotten every
+ * {@link #PROBE_INTERVAL} windows, so the limit follows a downstream service that became permanently slower.
+ */
+class GradientConcurrencyLimit {
+
+    static final int WINDOW_SIZE = 20;
+    private static final int PROBE_INTERVAL = 50;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private double limit;
+    private long minRtt = Long.MAX_VALUE;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private int windowsSinceProbe;
+
+    GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Records the round trip time of a completed downstream call and the number of requests in flight when it completed.
+     */
+    synchronized void onSample(long rttNanos, int inFlight) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        if (windowSamples < WINDOW_SIZE) {
+            return;
+        }
+
+        long windowRtt = windowRttSum / windowSamples;
+        if (++windowsSinceProbe >= PROBE_INTERVAL) {
+            minRtt = windowRtt;
+            windowsSinceProbe = 0;
+        } else {
+            minRtt = Math.min(minRtt, windowRtt);
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * minRtt / windowRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+
+        // Do not grow a limit that the traffic does not use, it says nothing about the capacity
+        if (newLimit > limit && windowMaxInFlight < limit / 2) {
+            newLimit = limit;
+        }
+
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+}
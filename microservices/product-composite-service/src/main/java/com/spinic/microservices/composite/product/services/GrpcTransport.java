@@ -0,0 +1,251 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.spinic.microservices.api.core.grpc.CoreMessages;
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ProductIdsRequest;
+import com.spinic.microservices.api.core.grpc.ProductMessage;
+import com.spinic.microservices.api.core.grpc.ProductServiceGrpc;
+import com.spinic.microservices.api.core.grpc.RecommendationMessage;
+import com.spinic.microservices.api.core.grpc.RecommendationServiceGrpc;
+import com.spinic.microservices.api.core.grpc.ReviewMessage;
+import com.spinic.microservices.api.core.grpc.ReviewServiceGrpc;
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.product.ReactiveProductService;
+import com.spinic.microservices.api.core.recommendation.ReactiveRecommendationService;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.ReactiveReviewService;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.util.grpc.GrpcErrors;
+import com.spinic.microservices.util.http.RequestDeadline;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Optional gRPC transport for the lookups of {@link ProductCompositeIntegration}, on when
+ * app.product-composite.grpc.enabled is true.
+ * <p>
+ * Each core service gets one channel, i.e. one long-lived HTTP/2 connection that all its calls are multiplexed on.
+ * Recommendations, reviews and the products of a multi-id lookup are streamed by the server. Writes and deletes
+ * stay on the REST clients. The deadline of the incoming request, if any, becomes the deadline of the call, and
+ * NOT_FOUND and INVALID_ARGUMENT statuses are mapped to the same exceptions as 404 and 422 responses.
+ */
+@Component
+public class GrpcTransport implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GrpcTransport.class);
+
+    private final boolean enabled;
+    private final int productServicePort;
+    private final int recommendationServicePort;
+    private final int reviewServicePort;
+    private final Duration keepAliveTime;
+
+    private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public GrpcTransport(
+            @Value("${app.product-composite.grpc.enabled:false}") boolean enabled,
+            @Value("${app.product-service.grpc-port:9001}") int productServicePort,
+            @Value("${app.recommendation-service.grpc-port:9002}") int recommendationServicePort,
+            @Value("${app.review-service.grpc-port:9003}") int reviewServicePort,
+            @Value("${app.product-composite.grpc.keep-alive-time:30s}") Duration keepAliveTime) {
+
+        LOG.info("gRPC transport enabled: {}", enabled);
+
+        this.enabled = enabled;
+        this.productServicePort = productServicePort;
+        this.recommendationServicePort = recommendationServicePort;
+        this.reviewServicePort = reviewServicePort;
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a client that looks up products over gRPC and writes through the REST client, or the REST client as
+     * is if the transport is disabled.
+     */
+    public ReactiveProductService productClient(String host, ReactiveProductService restClient) {
+        return enabled ? new ProductClient(ProductServiceGrpc.newStub(channel(host, productServicePort)), restClient) : restClient;
+    }
+
+    /**
+     * @see #productClient(String, ReactiveProductService)
+     */
+    public ReactiveRecommendationService recommendationClient(String host, ReactiveRecommendationService restClient) {
+        return enabled ? new RecommendationClient(RecommendationServiceGrpc.newStub(channel(host, recommendationServicePort)), restClient) : restClient;
+    }
+
+    /**
+     * @see #productClient(String, ReactiveProductService)
+     */
+    public ReactiveReviewService reviewClient(String host, ReactiveReviewService restClient) {
+        return enabled ? new ReviewClient(ReviewServiceGrpc.newStub(channel(host, reviewServicePort)), restClient) : restClient;
+    }
+
+    private ManagedChannel channel(String host, int port) {
+        LOG.debug("Creates a gRPC channel to {}:{}", host, port);
+
+        ManagedChannel channel = ManagedChannelBuilder.forAddress(host, port)
+                .usePlaintext()
+                .keepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        channels.add(channel);
+        return channel;
+    }
+
+    @Override
+    public void destroy() {
+        channels.forEach(ManagedChannel::shutdown);
+    }
+
+    private static <S extends AbstractStub<S>, T> Mono<T> unaryCall(S stub, BiConsumer<S, StreamObserver<T>> call) {
+        return serverStreamingCall(stub, call).single();
+    }
+
+    private static <S extends AbstractStub<S>, T> Flux<T> serverStreamingCall(S stub, BiConsumer<S, StreamObserver<T>> call) {
+        return Flux.deferContextual(context -> Flux.<T>create(sink -> call.accept(
+                        RequestDeadline.from(context)
+                                .map(deadline -> stub.withDeadlineAfter(deadline.remaining().toMillis(), TimeUnit.MILLISECONDS))
+                                .orElse(stub),
+                        new SinkObserver<>(sink))))
+                .onErrorMap(GrpcErrors::fromStatus);
+    }
+
+    /**
+     * Passes the messages of a call to a sink, and cancels the call when the subscriber cancels.
+     */
+    private static class SinkObserver<T> implements ClientResponseObserver<Object, T> {
+
+        private final FluxSink<T> sink;
+
+        SinkObserver(FluxSink<T> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+            sink.onCancel(() -> requestStream.cancel("Cancelled by the caller", null));
+        }
+
+        @Override
+        public void onNext(T value) {
+            sink.next(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            sink.error(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            sink.complete();
+        }
+    }
+
+    private record ProductClient(ProductServiceGrpc.ProductServiceStub stub, ReactiveProductService restClient)
+            implements ReactiveProductService {
+
+        @Override
+        public Mono<Product> getProduct(int productId) {
+            ProductIdRequest request = ProductIdRequest.newBuilder().setProductId(productId).build();
+            Mono<ProductMessage> call = unaryCall(stub, (s, observer) -> s.getProduct(request, observer));
+            return call.map(CoreMessages::toApi);
+        }
+
+        @Override
+        public Flux<Product> getProducts(List<Integer> productIds) {
+            ProductIdsRequest request = ProductIdsRequest.newBuilder().addAllProductIds(productIds).build();
+            Flux<ProductMessage> call = serverStreamingCall(stub, (s, observer) -> s.getProducts(request, observer));
+            return call.map(CoreMessages::toApi);
+        }
+
+        @Override
+        public Mono<Product> createProduct(Product body) {
+            return restClient.createProduct(body);
+        }
+
+        @Override
+        public Mono<Void> deleteProduct(int productId) {
+            return restClient.deleteProduct(productId);
+        }
+    }
+
+    private record RecommendationClient(RecommendationServiceGrpc.RecommendationServiceStub stub, ReactiveRecommendationService restClient)
+            implements ReactiveRecommendationService {
+
+        @Override
+        public Flux<Recommendation> getRecommendations(int productId) {
+            ProductIdRequest request = ProductIdRequest.newBuilder().setProductId(productId).build();
+            Flux<RecommendationMessage> call = serverStreamingCall(stub, (s, observer) -> s.getRecommendations(request, observer));
+            return call.map(CoreMessages::toApi);
+        }
+
+        @Override
+        public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+            ProductIdsRequest request = ProductIdsRequest.newBuilder().addAllProductIds(productIds).build();
+            Flux<RecommendationMessage> call = serverStreamingCall(stub, (s, observer) -> s.getRecommendationsForProducts(request, observer));
+            return call.map(CoreMessages::toApi);
+        }
+
+        @Override
+        public Mono<Recommendation> createRecommendation(Recommendation body) {
+            return restClient.createRecommendation(body);
+        }
+
+        @Override
+        public Mono<Void> deleteRecommendations(int productId) {
+            return restClient.deleteRecommendations(productId);
+        }
+    }
+
+    private record ReviewClient(ReviewServiceGrpc.ReviewServiceStub stub, ReactiveReviewService restClient)
+            implements ReactiveReviewService {
+
+        @Override
+        public Flux<Review> getReviews(int productId) {
+            ProductIdRequest request = ProductIdRequest.newBuilder().setProductId(productId).build();
+            Flux<ReviewMessage> call = serverStreamingCall(stub, (s, observer) -> s.getReviews(request, observer));
+            return call.map(CoreMessages::toApi);
+        }
+
+        @Override
+        public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+            ProductIdsRequest request = ProductIdsRequest.newBuilder().addAllProductIds(productIds).build();
+            Flux<ReviewMessage> call = serverStreamingCall(stub, (s, observer) -> s.getReviewsForProducts(request, observer));
+            return call.map(CoreMessages::toApi);
+        }
+
+        @Override
+        public Mono<Review> createReview(Review body) {
+            return restClient.createReview(body);
+        }
+
+        @Override
+        public Mono<Void> deleteReviews(int productId) {
+            return restClient.deleteReviews(productId);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.spinic.microservices.composite.product.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits hedged requests to a fraction of all requests, so hedging cannot multiply the load on a service that is
+ * slow because it is overloaded.
+ * <p>
+ * Every request deposits ratio tokens, every hedge withdraws a whole token. The balance is capped, so a quiet
+ * period does not save up for a burst of hedges later.
+ */
+class HedgeBudget {
+
+    private static final long TOKEN = 1000;
+    private static final long MAX_BALANCE = 10 * TOKEN;
+
+    private final long deposit;
+    private final AtomicLong balance = new AtomicLong();
+
+    HedgeBudget(double ratio) {
+        this.deposit = Math.round(ratio * TOKEN);
+    }
+
+    void onRequest() {
+        balance.accumulateAndGet(deposit, (current, added) -> Math.min(MAX_BALANCE, current + added));
+    }
+
+    boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Creates a {@link LastKnownGoodStore} per downstream service from the app.product-composite.last-known-good
+ * settings.
+ * <p>
+ * Each store holds up to max-items items, e.g. reviews, over all its products, and serves nothing older than
+ * max-staleness. A product whose stale items were served is looked up again in the background after
+ * revalidate-after.
+ */
+@Component
+public class LastKnownGood {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LastKnownGood.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maxItems;
+    private final Duration maxStaleness;
+    private final Duration revalidateAfter;
+
+    @Autowired
+    public LastKnownGood(
+            MeterRegistry meterRegistry,
+            @Value("${app.product-composite.last-known-good.enabled:true}") boolean enabled,
+            @Value("${app.product-composite.last-known-good.max-items:100000}") long maxItems,
+            @Value("${app.product-composite.last-known-good.max-staleness:10m}") Duration maxStaleness,
+            @Value("${app.product-composite.last-known-good.revalidate-after:5s}") Duration revalidateAfter) {
+
+        LOG.info("Last known good fallback enabled: {}, max items: {}, max staleness: {}, revalidate after: {}",
+                enabled, maxItems, maxStaleness, revalidateAfter);
+
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxItems = maxItems;
+        this.maxStaleness = maxStaleness;
+        this.revalidateAfter = revalidateAfter;
+    }
+
+    public <T> LastKnownGoodStore<T> create(String downstream) {
+        return new LastKnownGoodStore<>(downstream, enabled, maxItems, maxStaleness, revalidateAfter, meterRegistry);
+    }
+}
@@ -0,0 +1,165 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The last list of items, e.g. reviews, that a downstream service returned per productId, served instead of an
+ * error while the service fails (stale-while-revalidate). A lookup returns its items together with whether they
+ * were served from the store, see {@link ProductItems}.
+ * <p>
+ * The store is bounded by the total number of items and entries older than the max staleness are dropped. When
+ * stale items are served, the lookup is repeated once in the background after a delay, and its result, if any,
+ * replaces the stored items. So the store catches up when the service recovers, also for products that are not
+ * requested again right away.
+ * <p>
+ * Metrics: "composite.last-known-good.served" (stale lookups), "composite.last-known-good.revalidations" (outcome
+ * success or failure), tagged with the downstream service, and "cache.*" with the tag cache=last-known-good-&lt;service&gt;.
+ */
+public class LastKnownGoodStore<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LastKnownGoodStore.class);
+
+    private final String downstream;
+    private final boolean enabled;
+    private final Duration revalidateAfter;
+    private final Cache<Integer, List<T>> store;
+    private final Set<Integer> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final Counter served;
+    private final Counter revalidationSuccesses;
+    private final Counter revalidationFailures;
+
+    LastKnownGoodStore(String downstream, boolean enabled, long maxItems, Duration maxStaleness, Duration revalidateAfter,
+                       MeterRegistry meterRegistry) {
+
+        this.downstream = downstream;
+        this.enabled = enabled;
+        this.revalidateAfter = revalidateAfter;
+        // An empty list weighs one, so products without items count against the bound too
+        this.store = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .<Integer, List<T>>weigher((productId, items) -> Math.max(1, items.size()))
+                .expireAfterWrite(maxStaleness)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, store, "last-known-good-" + downstream);
+        this.served = meterRegistry.counter("composite.last-known-good.served", "downstream", downstream);
+        this.revalidationSuccesses = meterRegistry.counter("composite.last-known-good.revalidations", "downstream", downstream, "outcome", "success");
+        this.revalidationFailures = meterRegistry.counter("composite.last-known-good.revalidations", "downstream", downstream, "outcome", "failure");
+    }
+
+    /**
+     * Subscribes to the lookup and stores its items. If the lookup fails, returns the stored items of the productId
+     * instead, flagged as stale, or the error if there are none.
+     */
+    public Mono<ProductItems<T>> lookup(int productId, Supplier<Mono<List<T>>> lookup) {
+        if (!enabled) {
+            return Mono.defer(lookup).map(ProductItems::fresh);
+        }
+
+        return Mono.defer(lookup)
+                .doOnNext(items -> store.put(productId, items))
+                .map(ProductItems::fresh)
+                .onErrorResume(ex -> {
+                    List<T> items = store.getIfPresent(productId);
+                    if (items == null) {
+                        return Mono.error(ex);
+                    }
+                    LOG.warn("{} failed, serves the last known good items of productId: {}, error: {}", downstream, productId, ex.getMessage());
+                    served.increment();
+                    revalidate(List.of(productId), ids -> Mono.defer(lookup).map(revalidated -> Map.of(productId, revalidated)));
+                    return Mono.just(ProductItems.stale(items));
+                });
+    }
+
+    /**
+     * Like {@link #lookup(int, Supplier)} for several products with one lookup, whose items are grouped per productId
+     * by productIdOf. If the lookup fails, returns the stored items of the productIds that have some, flagged as
+     * stale, and leaves the other productIds out, or returns the error if no productId has stored items.
+     */
+    public Mono<Map<Integer, ProductItems<T>>> lookupAll(List<Integer> productIds, Function<List<Integer>, Mono<List<T>>> lookup,
+                                                         Function<T, Integer> productIdOf) {
+
+        Mono<Map<Integer, List<T>>> grouped = Mono.defer(() -> lookup.apply(productIds))
+                .map(items -> perProduct(productIds, items, productIdOf));
+        if (!enabled) {
+            return grouped.map(this::fresh);
+        }
+
+        return grouped
+                .doOnNext(store::putAll)
+                .map(this::fresh)
+                .onErrorResume(ex -> {
+                    Map<Integer, List<T>> found = store.getAllPresent(productIds);
+                    if (found.isEmpty()) {
+                        return Mono.error(ex);
+                    }
+                    LOG.warn("{} failed, serves the last known good items of {} of {} productIds, error: {}",
+                            downstream, found.size(), productIds.size(), ex.getMessage());
+                    served.increment(found.size());
+                    revalidate(new ArrayList<>(found.keySet()), ids -> lookup.apply(ids).map(items -> perProduct(ids, items, productIdOf)));
+
+                    Map<Integer, ProductItems<T>> stale = new HashMap<>();
+                    found.forEach((productId, items) -> stale.put(productId, ProductItems.stale(items)));
+                    return Mono.just(stale);
+                });
+    }
+
+    private Map<Integer, List<T>> perProduct(List<Integer> productIds, List<T> items, Function<T, Integer> productIdOf) {
+        Map<Integer, List<T>> perProduct = new HashMap<>();
+        productIds.forEach(productId -> perProduct.put(productId, new ArrayList<>()));
+        for (T item : items) {
+            List<T> productItems = perProduct.get(productIdOf.apply(item));
+            if (productItems != null) {
+                productItems.add(item);
+            }
+        }
+        return perProduct;
+    }
+
+    private Map<Integer, ProductItems<T>> fresh(Map<Integer, List<T>> perProduct) {
+        Map<Integer, ProductItems<T>> fresh = new HashMap<>();
+        perProduct.forEach((productId, items) -> fresh.put(productId, ProductItems.fresh(items)));
+        return fresh;
+    }
+
+    // Products that are already being revalidated are left out, one background lookup per product at a time
+    private void revalidate(List<Integer> productIds, Function<List<Integer>, Mono<Map<Integer, List<T>>>> lookup) {
+        List<Integer> added = productIds.stream().filter(revalidating::add).toList();
+        if (added.isEmpty()) {
+            return;
+        }
+
+        Mono.defer(() -> lookup.apply(added))
+                .delaySubscription(revalidateAfter)
+                .doFinally(signal -> added.forEach(revalidating::remove))
+                .subscribe(
+                        perProduct -> {
+                            LOG.debug("Revalidated the last known good items of productIds: {} at {}", perProduct.keySet(), downstream);
+                            store.putAll(perProduct);
+                            revalidationSuccesses.increment();
+                        },
+                        ex -> {
+                            LOG.debug("Could not revalidate the last known good items of productIds: {} at {}: {}", added, downstream, ex.getMessage());
+                            revalidationFailures.increment();
+                        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.spinic.microservices.composite.product.services;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Latencies of the most recent calls to one downstream service.
+ * <p>
+ * Samples are kept in a fixed size ring buffer. Percentiles are read from a sorted copy that is refreshed every
+ * {@link #REFRESH_INTERVAL} samples, so reading a percentile on every call stays cheap.
+ */
+class LatencyWindow {
+
+    static final int MIN_SAMPLES = 20;
+    private static final int REFRESH_INTERVAL = 32;
+
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int sinceRefresh;
+    private volatile long[] sorted = new long[0];
+
+    LatencyWindow(int size) {
+        this.samples = new long[Math.max(size, MIN_SAMPLES)];
+    }
+
+    synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRefresh >= REFRESH_INTERVAL || count <= MIN_SAMPLES) {
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            sorted = copy;
+            sinceRefresh = 0;
+        }
+    }
+
+    /**
+     * Returns the latency at the given percentile, e.g. 0.99, or null until {@link #MIN_SAMPLES} calls are recorded.
+     */
+    Duration percentile(double percentile) {
+        long[] snapshot = sorted;
+        if (snapshot.length < MIN_SAMPLES) {
+            return null;
+        }
+        int index = (int) Math.ceil(percentile * snapshot.length) - 1;
+        return Duration.ofNanos(snapshot[Math.min(Math.max(index, 0), snapshot.length - 1)]);
+    }
+}
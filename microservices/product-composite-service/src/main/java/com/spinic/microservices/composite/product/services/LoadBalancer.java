@@ -0,0 +1,220 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the calls to one downstream service over its instances, as a filter of the WebClient that rewrites the
+ * host and port of each request.
+ * <p>
+ * With {@link Policy#CONSISTENT_HASH} a call that carries a productId, see {@link #affinity(int)}, goes to the
+ * instance that owns the productId on a hash ring, so the caches of each instance stay hot for its share of the
+ * products. Calls without a productId, e.g. multi-id lookups, are spread round-robin.
+ * <p>
+ * Instances are ejected passively: an instance whose requests fail a number of times in a row, with a connection
+ * error or a 5xx status, is left out for the ejection time, which grows with each ejection in a row. If all
+ * instances are ejected, the calls are spread over all of them again rather than failing at once.
+ * <p>
+ * Metrics: "composite.load-balancer.outstanding" (requests waiting for a response) and
+ * "composite.load-balancer.ejections", tagged with the downstream service and the instance.
+ */
+public class LoadBalancer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadBalancer.class);
+
+    private static final String AFFINITY_KEY = LoadBalancer.class.getName() + ".affinity";
+    private static final int VIRTUAL_NODES = 100;
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    public enum Policy {
+        ROUND_ROBIN,
+        LEAST_OUTSTANDING,
+        CONSISTENT_HASH
+    }
+
+    private final String downstream;
+    private final Policy policy;
+    private final int failuresToEject;
+    private final Duration ejectionTime;
+    private final List<Instance> instances;
+    private final NavigableMap<Long, Instance> ring = new TreeMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    LoadBalancer(String downstream, List<String> instances, Policy policy, int failuresToEject, Duration ejectionTime,
+                 MeterRegistry meterRegistry) {
+
+        this.downstream = downstream;
+        this.policy = policy;
+        this.failuresToEject = failuresToEject;
+        this.ejectionTime = ejectionTime;
+        this.instances = instances.stream()
+                .map(address -> new Instance(address.trim(), meterRegistry))
+                .toList();
+
+        for (Instance instance : this.instances) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(hash(instance.address.hashCode() * 31L + node), instance);
+            }
+        }
+    }
+
+    /**
+     * Adds the productId to the Reactor context of a call, for the consistent hash policy.
+     */
+    public static Context affinity(int productId) {
+        return Context.of(AFFINITY_KEY, productId);
+    }
+
+    public ExchangeFilterFunction filter() {
+        return (request, exchange) -> Mono.deferContextual(context -> {
+            Instance instance = choose(context.<Integer>getOrEmpty(AFFINITY_KEY));
+            ClientRequest routed = ClientRequest.from(request).url(instance.rewrite(request.url())).build();
+
+            instance.outstanding.incrementAndGet();
+            return exchange.exchange(routed)
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            onFailure(instance);
+                        } else {
+                            onSuccess(instance);
+                        }
+                    })
+                    .doOnError(ex -> onFailure(instance))
+                    .doFinally(signal -> instance.outstanding.decrementAndGet());
+        });
+    }
+
+    Instance choose(Optional<Integer> productId) {
+        long now = System.nanoTime();
+        List<Instance> available = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (!instance.isEjected(now)) {
+                available.add(instance);
+            }
+        }
+        if (available.isEmpty()) {
+            LOG.debug("All instances of {} are ejected, uses them all", downstream);
+            available = instances;
+        }
+
+        if (policy == Policy.CONSISTENT_HASH && productId.isPresent()) {
+            return onRing(hash(productId.get()), available);
+        }
+        int start = Math.floorMod(next.getAndIncrement(), available.size());
+        if (policy == Policy.LEAST_OUTSTANDING) {
+            return leastOutstanding(available, start);
+        }
+        return available.get(start);
+    }
+
+    private Instance onRing(long hash, List<Instance> available) {
+        // The first available instance clockwise from the hash, so only the keys of an ejected instance move
+        for (Map<Long, Instance> part : List.of(ring.tailMap(hash, true), ring.headMap(hash, false))) {
+            for (Instance instance : part.values()) {
+                if (available.contains(instance)) {
+                    return instance;
+                }
+            }
+        }
+        return available.get(0);
+    }
+
+    private Instance leastOutstanding(List<Instance> available, int start) {
+        // Starts at a rotating position, so ties are spread evenly
+        Instance least = null;
+        for (int i = 0; i < available.size(); i++) {
+            Instance instance = available.get((start + i) % available.size());
+            if (least == null || instance.outstanding.get() < least.outstanding.get()) {
+                least = instance;
+            }
+        }
+        return least;
+    }
+
+    private void onSuccess(Instance instance) {
+        synchronized (instance) {
+            instance.failures = 0;
+            instance.ejections = 0;
+        }
+    }
+
+    private void onFailure(Instance instance) {
+        synchronized (instance) {
+            long now = System.nanoTime();
+            if (instance.isEjected(now) || ++instance.failures < failuresToEject) {
+                return;
+            }
+            instance.failures = 0;
+            instance.ejections = Math.min(instance.ejections + 1, MAX_EJECTION_MULTIPLIER);
+            Duration ejectedFor = ejectionTime.multipliedBy(instance.ejections);
+            instance.ejectedUntil = now + ejectedFor.toNanos();
+            instance.ejectionCounter.increment();
+            LOG.warn("Ejects {} of {} for {} after {} failures in a row", instance.address, downstream, ejectedFor, failuresToEject);
+        }
+    }
+
+    private static long hash(long value) {
+        // The finalizer of MurmurHash3, spreads close values over the whole ring
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    class Instance {
+
+        final String address;
+        final String host;
+        final int port;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final Counter ejectionCounter;
+
+        // Guarded by this
+        private int failures;
+        private int ejections;
+        private volatile long ejectedUntil = System.nanoTime();
+
+        Instance(String address, MeterRegistry meterRegistry) {
+            int colon = address.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected host:port for an instance of " + downstream + ", got: " + address);
+            }
+            this.address = address;
+            this.host = address.substring(0, colon);
+            this.port = Integer.parseInt(address.substring(colon + 1));
+
+            Gauge.builder("composite.load-balancer.outstanding", outstanding, AtomicInteger::get)
+                    .tags("downstream", downstream, "instance", address)
+                    .register(meterRegistry);
+            this.ejectionCounter = meterRegistry.counter("composite.load-balancer.ejections", "downstream", downstream, "instance", address);
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntil - now > 0;
+        }
+
+        URI rewrite(URI url) {
+            return UriComponentsBuilder.fromUri(url).host(host).port(port).build(true).toUri();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Creates a {@link LoadBalancer} per downstream service that has more than one instance, from the
+ * app.product-composite.load-balancing settings and app.&lt;service&gt;.instances, e.g.
+ * app.review-service.instances: review-1:8080,review-2:8080.
+ * <p>
+ * A service without instances is called at app.&lt;service&gt;.host and port, as before. The policy is one of
+ * round-robin, least-outstanding and consistent-hash. Only the REST calls are balanced, with the gRPC transport
+ * enabled the lookups go to the channel of app.&lt;service&gt;.host.
+ */
+@Component
+public class LoadBalancing {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadBalancing.class);
+
+    private final MeterRegistry meterRegistry;
+    private final LoadBalancer.Policy policy;
+    private final int failuresToEject;
+    private final Duration ejectionTime;
+    private final Map<String, List<String>> instances;
+
+    @Autowired
+    public LoadBalancing(
+            MeterRegistry meterRegistry,
+            @Value("${app.product-composite.load-balancing.policy:round-robin}") String policy,
+            @Value("${app.product-composite.load-balancing.failures-to-eject:5}") int failuresToEject,
+            @Value("${app.product-composite.load-balancing.ejection-time:30s}") Duration ejectionTime,
+            @Value("${app.product-service.instances:}") List<String> productServiceInstances,
+            @Value("${app.recommendation-service.instances:}") List<String> recommendationServiceInstances,
+            @Value("${app.review-service.instances:}") List<String> reviewServiceInstances) {
+
+        LOG.info("Load balancing policy: {}, eject after {} failures in a row for {}", policy, failuresToEject, ejectionTime);
+
+        this.meterRegistry = meterRegistry;
+        this.policy = LoadBalancer.Policy.valueOf(policy.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        this.failuresToEject = failuresToEject;
+        this.ejectionTime = ejectionTime;
+        this.instances = Map.of(
+                "product-service", productServiceInstances,
+                "recommendation-service", recommendationServiceInstances,
+                "review-service", reviewServiceInstances);
+    }
+
+    /**
+     * Returns a client that spreads its calls over the instances of the downstream service, or the client as is if
+     * the service has at most one instance.
+     */
+    public WebClient client(String downstream, WebClient client) {
+        List<String> serviceInstances = instances.getOrDefault(downstream, List.of());
+        if (serviceInstances.size() < 2) {
+            return client;
+        }
+
+        LOG.info("Spreads the calls to {} over {} with policy {}", downstream, serviceInstances, policy);
+
+        LoadBalancer loadBalancer = new LoadBalancer(downstream, serviceInstances, policy, failuresToEject, ejectionTime, meterRegistry);
+        return client.mutate().filter(loadBalancer.filter()).build();
+    }
+}
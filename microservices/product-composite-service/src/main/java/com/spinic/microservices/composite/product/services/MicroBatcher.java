@@ -0,0 +1,110 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the lookups of single keys that arrive within a window into one multi-key call, and splits its result
+ * back to the callers by key.
+ * <p>
+ * A batch is sent when its window has passed since its first key, or at once when it holds the max number of
+ * distinct keys. Callers of the same key within a batch share its result. An error of the batch call is handed to
+ * every caller of the batch. A caller that cancels does not cancel the batch, the other callers still wait for it.
+ */
+public class MicroBatcher<K, V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final String name;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final Function<List<K>, Flux<V>> batchCall;
+    private final Function<V, K> keyOf;
+    private final DistributionSummary batchSizes;
+
+    private Batch current;
+
+    MicroBatcher(String name, Duration window, int maxBatchSize, Scheduler scheduler,
+                 Function<List<K>, Flux<V>> batchCall, Function<V, K> keyOf, DistributionSummary batchSizes) {
+        this.name = name;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.batchCall = batchCall;
+        this.keyOf = keyOf;
+        this.batchSizes = batchSizes;
+    }
+
+    /**
+     * Returns the values of the key, an empty list if the batch call returned none for it.
+     */
+    public Mono<List<V>> get(K key) {
+        return Mono.defer(() -> {
+            Sinks.One<List<V>> result = Sinks.one();
+            Batch full = null;
+            synchronized (this) {
+                if (current == null) {
+                    Batch batch = new Batch();
+                    batch.timer = scheduler.schedule(() -> sendWhenDue(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+                    current = batch;
+                }
+                current.waiting.computeIfAbsent(key, k -> new ArrayList<>()).add(result);
+                if (current.waiting.size() >= maxBatchSize) {
+                    full = current;
+                    current = null;
+                }
+            }
+            if (full != null) {
+                full.timer.dispose();
+                send(full);
+            }
+            return result.asMono();
+        });
+    }
+
+    private void sendWhenDue(Batch batch) {
+        synchronized (this) {
+            if (current != batch) {
+                // Already sent because it was full
+                return;
+            }
+            current = null;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        List<K> keys = new ArrayList<>(batch.waiting.keySet());
+        LOG.trace("{}: sends a batch of {} keys", name, keys.size());
+        batchSizes.record(keys.size());
+
+        batchCall.apply(keys)
+                .collectMultimap(keyOf)
+                .subscribe(
+                        values -> batch.waiting.forEach((key, callers) -> {
+                            List<V> found = new ArrayList<>(values.getOrDefault(key, List.of()));
+                            callers.forEach(caller -> caller.tryEmitValue(found));
+                        }),
+                        error -> batch.waiting.values().forEach(callers -> callers.forEach(caller -> caller.tryEmitError(error))));
+    }
+
+    private class Batch {
+        private final Map<K, List<Sinks.One<List<V>>>> waiting = new LinkedHashMap<>();
+        private Disposable timer;
+    }
+}
@@ -0,0 +1,59 @@
+package com.spinic.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Creates a {@link MicroBatcher} per downstream service from the app.product-composite.micro-batching settings.
+ * <p>
+ * Micro-batching is off by default: it trades a latency of up to one window per lookup for fewer downstream
+ * requests. The number of keys per batch is published as "composite.micro-batch.size", tagged with the
+ * downstream service.
+ */
+@Component
+public class MicroBatching {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MicroBatching.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxBatchSize;
+
+    @Autowired
+    public MicroBatching(
+            MeterRegistry meterRegistry,
+            @Value("${app.product-composite.micro-batching.enabled:false}") boolean enabled,
+            @Value("${app.product-composite.micro-batching.window:2ms}") Duration window,
+            @Value("${app.product-composite.micro-batching.max-batch-size:50}") int maxBatchSize) {
+
+        LOG.info("Micro-batching enabled: {}, window: {}, max batch size: {}", enabled, window, maxBatchSize);
+
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <K, V> MicroBatcher<K, V> create(String downstream, Function<List<K>, Flux<V>> batchCall, Function<V, K> keyOf) {
+        DistributionSummary batchSizes = DistributionSummary.builder("composite.micro-batch.size")
+                .tag("downstream", downstream)
+                .register(meterRegistry);
+        return new MicroBatcher<>(downstream, window, maxBatchSize, Schedulers.parallel(), batchCall, keyOf, batchSizes);
+    }
+}
@@ -0,0 +1,165 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of assembled product aggregates, keyed by productId.
+ * <p>
+ * Entries are evicted when the cache grows beyond its max size or when they are older than the TTL.
+ * Hit, miss and eviction counters are published as "cache.*" metrics with the tag cache=product-aggregates.
+ * <p>
+ * ProductIds that were not found are remembered for a short TTL as well, so repeated lookups of unknown productIds,
+ * e.g. from crawlers, are answered without calling the core services. They have their own "cache.*" metrics with the
+ * tag cache=products-not-found, a not-found TTL of zero turns them off.
+ * <p>
+ * Every invalidate bumps a generation counter for the productId. A load captures the generation before it starts
+ * and only caches its result if the generation is unchanged when it completes, so a load that was in flight during
+ * a write does not put the aggregate it read before the write back into the cache. The counters are striped over a
+ * fixed array, a write to another productId in the same stripe only costs a skipped put.
+ */
+@Component
+public class ProductAggregateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+    static final String CACHE_NAME = "product-aggregates";
+    static final String NOT_FOUND_CACHE_NAME = "products-not-found";
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final boolean enabled;
+    private final boolean notFoundEnabled;
+    private final Cache<Integer, ProductAggregate> cache;
+    private final Cache<Integer, String> notFound;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Autowired
+    public ProductAggregateCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.product-composite.cache.enabled:true}") boolean enabled,
+            @Value("${app.product-composite.cache.max-size:10000}") long maxSize,
+            @Value("${app.product-composite.cache.ttl:30s}") Duration ttl,
+            @Value("${app.product-composite.cache.not-found-max-size:100000}") long notFoundMaxSize,
+            @Value("${app.product-composite.cache.not-found-ttl:5s}") Duration notFoundTtl) {
+
+        LOG.info("Creates a product aggregate cache, enabled: {}, max size: {}, ttl: {}, not found max size: {}, not found ttl: {}",
+                enabled, maxSize, ttl, notFoundMaxSize, notFoundTtl);
+
+        this.enabled = enabled;
+        this.notFoundEnabled = enabled && !notFoundTtl.isZero();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+
+        this.notFound = Caffeine.newBuilder()
+                .maximumSize(notFoundMaxSize)
+                .expireAfterWrite(notFoundTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, notFound, NOT_FOUND_CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached aggregate for the productId, or subscribes to the loader and caches its result.
+     * Errors from the loader are not cached, nor are partial aggregates that were cut off by a request deadline, hold
+     * stale sections or sections left empty by a failed service, so the next lookup tries the failed service again.
+     */
+    public Mono<ProductAggregate> get(int productId, Supplier<Mono<ProductAggregate>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        return Mono.defer(() -> {
+            ProductAggregate cached = cache.getIfPresent(productId);
+            if (cached != null) {
+                LOG.debug("Found a cached product aggregate for productId: {}", productId);
+                return Mono.just(cached);
+            }
+            long generation = generation(productId);
+            return load(productId, loader).doOnNext(aggregate -> {
+                if ((aggregate.getTimedOut() == null || aggregate.getTimedOut().isEmpty())
+                        && (aggregate.getStale() == null || aggregate.getStale().isEmpty())
+                        && (aggregate.getFailed() == null || aggregate.getFailed().isEmpty())) {
+                    putIfCurrent(cache, productId, aggregate, generation);
+                }
+            });
+        });
+    }
+
+    /**
+     * Subscribes to the loader, unless the productId was not found within the not-found TTL. Then the same
+     * NotFoundException is returned at once. A NotFoundException from the loader is remembered, other errors are not.
+     */
+    public Mono<ProductAggregate> load(int productId, Supplier<Mono<ProductAggregate>> loader) {
+        if (!notFoundEnabled) {
+            return loader.get();
+        }
+
+        return Mono.defer(() -> {
+            String message = notFound.getIfPresent(productId);
+            if (message != null) {
+                LOG.debug("productId: {} was not found recently, not looked up again", productId);
+                return Mono.error(new NotFoundException(message));
+            }
+            long generation = generation(productId);
+            return loader.get().doOnError(NotFoundException.class, ex -> putIfCurrent(notFound, productId,
+                    ex.getMessage() != null ? ex.getMessage() : "No product found for productId: " + productId, generation));
+        });
+    }
+
+    /**
+     * Returns the cached aggregate for the productId, if any, without loading it.
+     */
+    public Optional<ProductAggregate> getIfPresent(int productId) {
+        return enabled ? Optional.ofNullable(cache.getIfPresent(productId)) : Optional.empty();
+    }
+
+    public void invalidate(int productId) {
+        LOG.debug("Invalidates the cached product aggregate for productId: {}", productId);
+        generations.incrementAndGet(stripe(productId));
+        cache.invalidate(productId);
+        notFound.invalidate(productId);
+    }
+
+    private long generation(int productId) {
+        return generations.get(stripe(productId));
+    }
+
+    private static int stripe(int productId) {
+        return Math.floorMod(productId, GENERATION_STRIPES);
+    }
+
+    private <V> void putIfCurrent(Cache<Integer, V> target, int productId, V value, long generation) {
+        if (generation(productId) != generation) {
+            LOG.debug("productId: {} was invalidated during the load, the result is not cached", productId);
+            return;
+        }
+        target.put(productId, value);
+
+        // An invalidate between the check and the put bumped the generation after its own invalidation, undo the put
+        if (generation(productId) != generation) {
+            target.asMap().remove(productId, value);
+        }
+    }
+}
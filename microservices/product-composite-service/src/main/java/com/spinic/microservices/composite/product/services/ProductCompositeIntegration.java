@@ -1,46 +1,71 @@
 package com.spinic.microservices.composite.product.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.spinic.microservices.api.core.product.Product;
-import com.spinic.microservices.api.core.product.ProductService;
+import com.spinic.microservices.api.core.product.ReactiveProductService;
+import com.spinic.microservices.api.core.recommendation.ReactiveRecommendationService;
 import com.spinic.microservices.api.core.recommendation.Recommendation;
-import com.spinic.microservices.api.core.recommendation.RecommendationService;
+import com.spinic.microservices.api.core.review.ReactiveReviewService;
 import com.spinic.microservices.api.core.review.Review;
-import com.spinic.microservices.api.core.review.ReviewService;
 import com.spinic.microservices.api.exceptions.InvalidInputException;
 import com.spinic.microservices.api.exceptions.NotFoundException;
 import com.spinic.microservices.util.http.HttpErrorInfo;
+import com.spinic.microservices.util.http.RequestDeadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
-public class ProductCompositeIntegration implements ProductService, ReviewService, RecommendationService {
+public class ProductCompositeIntegration implements ReactiveProductService, ReactiveRecommendationService, ReactiveReviewService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
 
-    private final RestTemplate restTemplate;
     private final ObjectMapper mapper;
+    private final ObjectMapper smileMapper;
 
-    private final String productServiceUrl;
-    private final String recommendationServiceUrl;
-    private final String reviewServiceUrl;
+    private final ReactiveProductService productClient;
+    private final ReactiveRecommendationService recommendationClient;
+    private final ReactiveReviewService reviewClient;
+
+    private final DownstreamCallPolicy productCalls;
+    private final DownstreamCallPolicy recommendationCalls;
+    private final DownstreamCallPolicy reviewCalls;
+
+    // Null if micro-batching is disabled
+    private final MicroBatcher<Integer, Product> productBatcher;
+    private final MicroBatcher<Integer, Recommendation> recommendationBatcher;
+    private final MicroBatcher<Integer, Review> reviewBatcher;
+
+    private final LastKnownGoodStore<Recommendation> lastKnownRecommendations;
+    private final LastKnownGoodStore<Review> lastKnownReviews;
 
     @Autowired
     public ProductCompositeIntegration(
-            RestTemplate restTemplate,
+            WebClient webClient,
             ObjectMapper mapper,
+            DownstreamCallPolicies callPolicies,
+            MicroBatching microBatching,
+            GrpcTransport grpcTransport,
+            DomainSocketTransport domainSocketTransport,
+            LoadBalancing loadBalancing,
+            LastKnownGood lastKnownGood,
             @Value("${app.product-service.host}") String productServiceHost,
             @Value("${app.product-service.port}") int productServicePort,
             @Value("${app.recommendation-service.host}") String recommendationServiceHost,
@@ -48,154 +73,295 @@ public class ProductCompositeIntegration implements ProductService, ReviewServic
             @Value("${app.review-service.host}") String reviewServiceHost,
             @Value("${app.review-service.port}") int reviewServicePort) {
 
-        this.restTemplate = restTemplate;
         this.mapper = mapper;
-        productServiceUrl = "http://" + productServiceHost + ":" + productServicePort + "/product";
-        recommendationServiceUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort
-                + "/recommendation";
-        reviewServiceUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review";
+        this.smileMapper = mapper.copyWith(new SmileFactory());
+
+        String productServiceUrl = "http://" + productServiceHost + ":" + productServicePort;
+        String recommendationServiceUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort;
+        String reviewServiceUrl = "http://" + reviewServiceHost + ":" + reviewServicePort;
+
+        WebClient productServiceClient = domainSocketTransport.client("product-service", loadBalancing.client("product-service", webClient));
+        WebClient recommendationServiceClient = domainSocketTransport.client("recommendation-service", loadBalancing.client("recommendation-service", webClient));
+        WebClient reviewServiceClient = domainSocketTransport.client("review-service", loadBalancing.client("review-service", webClient));
+
+        // With the gRPC transport enabled only the writes go through the REST clients
+        productClient = grpcTransport.productClient(productServiceHost,
+                createClient(productServiceClient, productServiceUrl, ReactiveProductService.class));
+        recommendationClient = grpcTransport.recommendationClient(recommendationServiceHost,
+                createClient(recommendationServiceClient, recommendationServiceUrl, ReactiveRecommendationService.class));
+        reviewClient = grpcTransport.reviewClient(reviewServiceHost,
+                createClient(reviewServiceClient, reviewServiceUrl, ReactiveReviewService.class));
+
+        productCalls = callPolicies.create("product-service");
+        recommendationCalls = callPolicies.create("recommendation-service");
+        reviewCalls = callPolicies.create("review-service");
+
+        lastKnownRecommendations = lastKnownGood.create("recommendation-service");
+        lastKnownReviews = lastKnownGood.create("review-service");
+
+        // Lookups of single products are sent as multi-id requests, see getProduct, getRecommendations and getReviews
+        if (microBatching.isEnabled()) {
+            productBatcher = microBatching.create("product-service", this::getProducts, Product::getProductId);
+            recommendationBatcher = microBatching.create("recommendation-service", this::fetchRecommendationsForProducts, Recommendation::getProductId);
+            reviewBatcher = microBatching.create("review-service", this::fetchReviewsForProducts, Review::getProductId);
+        } else {
+            productBatcher = null;
+            recommendationBatcher = null;
+            reviewBatcher = null;
+        }
     }
 
-    @Override
-    public Product createProduct(Product body) {
-        try {
-            String url = productServiceUrl;
-            LOG.debug("Will post a new product to URL: {}", url);
-
-            Product product = restTemplate.postForObject(url, body, Product.class);
-            LOG.debug("Created a product with id: {}", product.getProductId());
-
-            return product;
+    private static <S> S createClient(WebClient webClient, String baseUrl, Class<S> serviceType) {
+        LOG.debug("Creates a {} client for URL: {}", serviceType.getSimpleName(), baseUrl);
 
-        } catch (HttpClientErrorException ex) {
-            throw handleHttpClientException(ex);
-        }
+        // All clients share the connection pool of the injected WebClient, only the base URL differs
+        WebClient client = webClient.mutate().baseUrl(baseUrl).build();
+        return HttpServiceProxyFactory.builder(WebClientAdapter.forClient(client)).build().createClient(serviceType);
     }
 
     @Override
-    public Product getProduct(int productId) {
+    public Mono<Product> createProduct(Product body) {
+        LOG.debug("Will post a new product with id: {}", body.getProductId());
 
-        try {
-            String url = productServiceUrl + "/" + productId;
-            LOG.debug("Will call getProduct API on URL: {}", url);
-            Product product = restTemplate.getForObject(url, Product.class);
-            LOG.debug("Found a product with id: {}", product.getProductId());
-
-            return product;
-        } catch (HttpClientErrorException exception) {
-            throw handleHttpClientException(exception);
-        }
+        return productCalls.call(productClient.createProduct(body).contextWrite(LoadBalancer.affinity(body.getProductId())))
+                .doOnNext(product -> LOG.debug("Created a product with id: {}", product.getProductId()))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
     }
 
-    public void deleteProduct(int productId) {
-        try {
-            String url = productServiceUrl + "/" + productId;
-            LOG.debug("Will call the deleteProduct API on URL: {}", url);
+    @Override
+    public Mono<Product> getProduct(int productId) {
+        LOG.debug("Will call getProduct API for productId: {}", productId);
+
+        return Mono.deferContextual(context -> batched(productBatcher, context)
+                        ? productBatcher.get(productId).flatMap(products -> products.isEmpty()
+                                ? Mono.error(new NotFoundException("No product found for productId: " + productId))
+                                : Mono.just(products.get(0)))
+                        : productCalls.idempotentCall(productClient.getProduct(productId)
+                                .contextWrite(LoadBalancer.affinity(productId))))
+                .doOnNext(product -> LOG.debug("Found a product with id: {}", product.getProductId()))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
+    }
 
-            restTemplate.delete(url);
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        LOG.debug("Will call getProducts API for {} productIds", productIds.size());
 
-        } catch (HttpClientErrorException ex) {
-            throw handleHttpClientException(ex);
-        }
+        return productCalls.call(productClient.getProducts(productIds).collectList())
+                .flatMapIterable(products -> products)
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
     }
 
-    public Recommendation createRecommendation(Recommendation body) {
-        try {
-            String url = recommendationServiceUrl;
-            LOG.debug("Will post a new recommendation to URL: {}", url);
+    @Override
+    public Mono<Void> deleteProduct(int productId) {
+        LOG.debug("Will call the deleteProduct API for productId: {}", productId);
 
-            Recommendation recommendation = restTemplate.postForObject(url, body, Recommendation.class);
-            LOG.debug("Created a recommendation with id: {}", recommendation.getProductId());
+        return productCalls.call(productClient.deleteProduct(productId).contextWrite(LoadBalancer.affinity(productId)))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
+    }
 
-            return recommendation;
+    @Override
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
+        LOG.debug("Will post a new recommendation for productId: {}", body.getProductId());
 
-        } catch (HttpClientErrorException ex) {
-            throw handleHttpClientException(ex);
-        }
+        return recommendationCalls.call(recommendationClient.createRecommendation(body).contextWrite(LoadBalancer.affinity(body.getProductId())))
+                .doOnNext(recommendation -> LOG.debug("Created a recommendation with id: {}", recommendation.getProductId()))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
     }
 
-    private String getErrorMessage(HttpClientErrorException exception) {
+    private String getErrorMessage(WebClientResponseException exception) {
         try {
+            MediaType contentType = exception.getHeaders().getContentType();
+            if (contentType != null && contentType.getSubtype().equals("x-jackson-smile")) {
+                return smileMapper.readValue(exception.getResponseBodyAsByteArray(), HttpErrorInfo.class).getMessage();
+            }
             return mapper.readValue(exception.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
         } catch (IOException e) {
             return e.getMessage();
         }
     }
 
-    public List<Recommendation> getRecommendations(int productId) {
-        try {
-            String url = recommendationServiceUrl + productId;
-            LOG.debug("Will call the getRecommendations API on URL: {}", url);
-            List<Recommendation> recommendations = restTemplate
-                    .exchange(url, HttpMethod.GET, null, new ParameterizedTypeReference<List<Recommendation>>() {
-                    })
-                    .getBody();
-            LOG.debug("Found {} recommendations for a product with Id: {}", recommendations.size(), productId);
-            return recommendations;
-
-        } catch (Exception ex) {
-            LOG.warn("Got an exception while requesting recommendations, return zero recommendations: {}", ex.getMessage());
-            return new ArrayList<>();
-        }
+    @Override
+    public Flux<Recommendation> getRecommendations(int productId) {
+        return lookupRecommendations(productId).flatMapIterable(ProductItems::items);
     }
 
-    public void deleteRecommendations(int productId) {
-        try {
-            String url = recommendationServiceUrl + "?productId=" + productId;
-            LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
+    /**
+     * Like getRecommendations, but tells whether the recommendations are the last known good ones, served because
+     * recommendation-service failed, or are left empty because it failed without them.
+     */
+    public Mono<ProductItems<Recommendation>> lookupRecommendations(int productId) {
+        LOG.debug("Will call the getRecommendations API for productId: {}", productId);
+
+        return lastKnownRecommendations.lookup(productId, () -> Mono.deferContextual(context -> batched(recommendationBatcher, context)
+                        ? recommendationBatcher.get(productId)
+                        : recommendationCalls.idempotentCall(recommendationClient.getRecommendations(productId).collectList()
+                                .contextWrite(LoadBalancer.affinity(productId)))))
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while requesting recommendations, return zero recommendations: {}", ex.getMessage());
+                    return Mono.just(ProductItems.failure());
+                });
+    }
 
-            restTemplate.delete(url);
+    /**
+     * Like getRecommendations, but hands out each recommendation as soon as it is decoded instead of collecting them first.
+     */
+    public Flux<Recommendation> streamRecommendations(int productId) {
+        LOG.debug("Will stream the getRecommendations API for productId: {}", productId);
+
+        return recommendationCalls.streamingCall(recommendationClient.getRecommendations(productId)
+                        .contextWrite(LoadBalancer.affinity(productId)))
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while streaming recommendations, ends the stream: {}", ex.getMessage());
+                    return Flux.empty();
+                });
+    }
 
-        } catch (HttpClientErrorException ex) {
-            throw handleHttpClientException(ex);
-        }
+    @Override
+    public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+        LOG.debug("Will call the getRecommendations API for {} productIds", productIds.size());
+
+        return fetchRecommendationsForProducts(productIds)
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while requesting recommendations, return zero recommendations: {}", ex.getMessage());
+                    return Flux.empty();
+                });
     }
 
-    public Review createReview(Review body) {
-        try {
-            String url = reviewServiceUrl;
-            LOG.debug("Will post a new review to URL: {}", url);
+    /**
+     * Like getRecommendationsForProducts, with the recommendations grouped per productId. While recommendation-service
+     * fails, the last known good recommendations of a product are served and flagged as stale, a product without them
+     * gets zero recommendations, flagged as failed.
+     */
+    public Mono<Map<Integer, ProductItems<Recommendation>>> lookupRecommendationsForProducts(List<Integer> productIds) {
+        LOG.debug("Will call the getRecommendations API for {} productIds", productIds.size());
+
+        return lastKnownRecommendations.lookupAll(productIds, ids -> fetchRecommendationsForProducts(ids).collectList(), Recommendation::getProductId)
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while requesting recommendations, return zero recommendations: {}", ex.getMessage());
+                    return Mono.just(Map.of());
+                })
+                .map(found -> {
+                    Map<Integer, ProductItems<Recommendation>> perProduct = new HashMap<>(found);
+                    productIds.forEach(productId -> perProduct.putIfAbsent(productId, ProductItems.failure()));
+                    return perProduct;
+                });
+    }
 
-            Review review = restTemplate.postForObject(url, body, Review.class);
-            LOG.debug("Created a review with id: {}", review.getProductId());
+    // Hands on the error, a micro-batch that fails must fail the lookup of each product for the last known good to serve it
+    private Flux<Recommendation> fetchRecommendationsForProducts(List<Integer> productIds) {
+        return recommendationCalls.call(recommendationClient.getRecommendationsForProducts(productIds).collectList())
+                .flatMapIterable(recommendations -> recommendations);
+    }
 
-            return review;
+    @Override
+    public Mono<Void> deleteRecommendations(int productId) {
+        LOG.debug("Will call the deleteRecommendations API for productId: {}", productId);
 
-        } catch (HttpClientErrorException ex) {
-            throw handleHttpClientException(ex);
-        }
+        return recommendationCalls.call(recommendationClient.deleteRecommendations(productId).contextWrite(LoadBalancer.affinity(productId)))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
     }
 
-    public List<Review> getReviews(int productId) {
-        try {
-            String url = reviewServiceUrl + "?productId=" + productId;
-            LOG.debug("Will call the getReviews API on URL: {}", url);
-            List<Review> reviewList = restTemplate
-                    .exchange(url, HttpMethod.GET, null, new ParameterizedTypeReference<List<Review>>() {
-                    })
-                    .getBody();
-            LOG.debug("Found {} reviews for product with Id: {}", reviewList.size(), productId);
-            return reviewList;
-        } catch (Exception e) {
-            LOG.warn("Got an exception while requesting reviews, returns zero reviews: {}", e.getMessage());
-            return new ArrayList<>();
-        }
+    @Override
+    public Mono<Review> createReview(Review body) {
+        LOG.debug("Will post a new review for productId: {}", body.getProductId());
+
+        return reviewCalls.call(reviewClient.createReview(body).contextWrite(LoadBalancer.affinity(body.getProductId())))
+                .doOnNext(review -> LOG.debug("Created a review with id: {}", review.getProductId()))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
     }
 
-    public void deleteReviews(int productId) {
-        try {
-            String url = reviewServiceUrl + "?productId=" + productId;
-            LOG.debug("Will call the deleteReviews API on URL: {}", url);
+    @Override
+    public Flux<Review> getReviews(int productId) {
+        return lookupReviews(productId).flatMapIterable(ProductItems::items);
+    }
 
-            restTemplate.delete(url);
+    /**
+     * Like getReviews, but tells whether the reviews are the last known good ones, served because review-service
+     * failed, or are left empty because it failed without them.
+     */
+    public Mono<ProductItems<Review>> lookupReviews(int productId) {
+        LOG.debug("Will call the getReviews API for productId: {}", productId);
+
+        return lastKnownReviews.lookup(productId, () -> Mono.deferContextual(context -> batched(reviewBatcher, context)
+                        ? reviewBatcher.get(productId)
+                        : reviewCalls.idempotentCall(reviewClient.getReviews(productId).collectList()
+                                .contextWrite(LoadBalancer.affinity(productId)))))
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while requesting reviews, returns zero reviews: {}", ex.getMessage());
+                    return Mono.just(ProductItems.failure());
+                });
+    }
 
-        } catch (HttpClientErrorException ex) {
-            throw handleHttpClientException(ex);
-        }
+    /**
+     * Like getReviews, but hands out each review as soon as it is decoded instead of collecting them first.
+     */
+    public Flux<Review> streamReviews(int productId) {
+        LOG.debug("Will stream the getReviews API for productId: {}", productId);
+
+        return reviewCalls.streamingCall(reviewClient.getReviews(productId)
+                        .contextWrite(LoadBalancer.affinity(productId)))
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while streaming reviews, ends the stream: {}", ex.getMessage());
+                    return Flux.empty();
+                });
     }
 
-    private RuntimeException handleHttpClientException(HttpClientErrorException ex) {
-        switch (HttpStatus.resolve(ex.getStatusCode().value())) {
+    @Override
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+        LOG.debug("Will call the getReviews API for {} productIds", productIds.size());
+
+        return fetchReviewsForProducts(productIds)
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while requesting reviews, returns zero reviews: {}", ex.getMessage());
+                    return Flux.empty();
+                });
+    }
+
+    /**
+     * Like getReviewsForProducts, with the reviews grouped per productId. While review-service fails, the last
+     * known good reviews of a product are served and flagged as stale, a product without them gets zero reviews,
+     * flagged as failed.
+     */
+    public Mono<Map<Integer, ProductItems<Review>>> lookupReviewsForProducts(List<Integer> productIds) {
+        LOG.debug("Will call the getReviews API for {} productIds", productIds.size());
+
+        return lastKnownReviews.lookupAll(productIds, ids -> fetchReviewsForProducts(ids).collectList(), Review::getProductId)
+                .onErrorResume(ex -> {
+                    LOG.warn("Got an exception while requesting reviews, returns zero reviews: {}", ex.getMessage());
+                    return Mono.just(Map.of());
+                })
+                .map(found -> {
+                    Map<Integer, ProductItems<Review>> perProduct = new HashMap<>(found);
+                    productIds.forEach(productId -> perProduct.putIfAbsent(productId, ProductItems.failure()));
+                    return perProduct;
+                });
+    }
+
+    // Hands on the error, like fetchRecommendationsForProducts
+    private Flux<Review> fetchReviewsForProducts(List<Integer> productIds) {
+        return reviewCalls.call(reviewClient.getReviewsForProducts(productIds).collectList())
+                .flatMapIterable(reviews -> reviews);
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        LOG.debug("Will call the deleteReviews API for productId: {}", productId);
+
+        return reviewCalls.call(reviewClient.deleteReviews(productId).contextWrite(LoadBalancer.affinity(productId)))
+                .onErrorMap(WebClientResponseException.class, this::handleHttpClientException);
+    }
+
+    private boolean batched(MicroBatcher<?, ?> batcher, ContextView context) {
+        // A request with a deadline is not batched, a shared batch cannot be cancelled for one caller alone
+        return batcher != null && RequestDeadline.from(context).isEmpty();
+    }
+
+    private Throwable handleHttpClientException(WebClientResponseException ex) {
+        HttpStatus status = HttpStatus.resolve(ex.getStatusCode().value());
+        if (status == null) {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        switch (status) {
             case NOT_FOUND:
                 return new NotFoundException(getErrorMessage(ex));
             case UNPROCESSABLE_ENTITY:
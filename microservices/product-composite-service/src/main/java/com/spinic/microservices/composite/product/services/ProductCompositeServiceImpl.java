@@ -4,14 +4,27 @@ import com.spinic.microservices.api.composite.product.*;
 import com.spinic.microservices.api.core.product.Product;
 import com.spinic.microservices.api.core.recommendation.Recommendation;
 import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.exceptions.InvalidInputException;
 import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.util.http.RequestDeadline;
 import com.spinic.microservices.util.http.ServiceUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -19,82 +32,334 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeServiceImpl.class);
 
+    private static final Set<String> SECTIONS = Set.of(ProductAggregate.RECOMMENDATIONS, ProductAggregate.REVIEWS);
+
     private final ServiceUtil serviceUtil;
+    private final ProductAggregateCache cache;
+    private final int batchMaxSize;
+    private final int createConcurrency;
     private ProductCompositeIntegration integration;
 
+    private final RequestCoalescer<Integer, Product> productCalls;
+    private final RequestCoalescer<Integer, ProductItems<Recommendation>> recommendationCalls;
+    private final RequestCoalescer<Integer, ProductItems<Review>> reviewCalls;
+
+    private final Counter recommendationCallsAvoided;
+    private final Counter reviewCallsAvoided;
+
     @Autowired
     public ProductCompositeServiceImpl(
-            ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+            ServiceUtil serviceUtil, ProductCompositeIntegration integration, ProductAggregateCache cache, MeterRegistry meterRegistry,
+            @Value("${app.product-composite.coalescing.enabled:true}") boolean coalescingEnabled,
+            @Value("${app.product-composite.batch.max-size:100}") int batchMaxSize,
+            @Value("${app.product-composite.create.concurrency:16}") int createConcurrency) {
         this.serviceUtil = serviceUtil;
+        this.batchMaxSize = batchMaxSize;
+        this.createConcurrency = createConcurrency;
         this.integration = integration;
+        this.cache = cache;
+        this.productCalls = new RequestCoalescer<>(coalescingEnabled);
+        this.recommendationCalls = new RequestCoalescer<>(coalescingEnabled);
+        this.reviewCalls = new RequestCoalescer<>(coalescingEnabled);
+        this.recommendationCallsAvoided = meterRegistry.counter("composite.downstream.calls.avoided", "downstream", "recommendation-service");
+        this.reviewCallsAvoided = meterRegistry.counter("composite.downstream.calls.avoided", "downstream", "review-service");
     }
 
     @Override
-    public ProductAggregate getProduct(int productId) {
+    public Mono<ProductAggregate> getProduct(int productId, List<String> include) {
 
-        LOG.debug("getCompositeProduct: lookup a product aggregate for productId: {}", productId);
+        LOG.debug("getCompositeProduct: lookup a product aggregate for productId: {}, include: {}", productId, include);
 
-        Product product = integration.getProduct(productId);
-        if (product == null) {
-            throw new NotFoundException("No product found for productId: " + productId);
+        Set<String> sections = (include == null) ? SECTIONS : include.stream()
+                .map(String::trim)
+                .filter(section -> !section.isEmpty())
+                .collect(Collectors.toSet());
+        Optional<String> unknown = sections.stream().filter(section -> !SECTIONS.contains(section)).findFirst();
+        if (unknown.isPresent()) {
+            return Mono.error(new InvalidInputException("Invalid section to include: " + unknown.get() + ", valid sections are: " + SECTIONS));
         }
 
-        List<Recommendation> recommendations = integration.getRecommendations(productId);
-        List<Review> reviews = integration.getReviews(productId);
+        if (sections.containsAll(SECTIONS)) {
+            return Mono.deferContextual(context -> cache.get(productId, () -> RequestDeadline.from(context)
+                    .map(deadline -> loadProductAggregate(productId, SECTIONS, deadline))
+                    .orElseGet(() -> loadProductAggregate(productId, SECTIONS))));
+        }
+
+        // A cached complete aggregate answers any selection of sections, a trimmed aggregate is not cached
+        return Mono.deferContextual(context -> cache.getIfPresent(productId)
+                .map(aggregate -> Mono.just(trim(aggregate, sections)))
+                .orElseGet(() -> cache.load(productId, () -> RequestDeadline.from(context)
+                        .map(deadline -> loadProductAggregate(productId, sections, deadline))
+                        .orElseGet(() -> loadProductAggregate(productId, sections)))));
+    }
+
+    private Mono<ProductAggregate> loadProductAggregate(int productId, Set<String> sections) {
 
-        LOG.debug("getCompositeProduct: aggregate entity found for productId: {}", productId);
+        // The three lookups are independent, subscribe to them at once so the latency is the slowest one, not the sum.
+        // Concurrent lookups of the same productId share one in-flight call per core service.
+        Mono<Product> product = productCalls.execute(productId, () -> integration.getProduct(productId))
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("No product found for productId: " + productId)));
 
-        return createProductAggregate(product, recommendations, reviews, serviceUtil.getServiceAddress());
+        // Sections that are not included are not looked up at all
+        Mono<ProductItems<Recommendation>> recommendations = !sections.contains(ProductAggregate.RECOMMENDATIONS)
+                ? this.<Recommendation>notLookedUp(recommendationCallsAvoided)
+                : recommendationCalls
+                        .execute(productId, () -> integration.lookupRecommendations(productId))
+                        .onErrorResume(ex -> {
+                            LOG.warn("getCompositeProduct: recommendations failed, returns a partial aggregate: {}", ex.getMessage());
+                            return Mono.just(ProductItems.failure());
+                        });
+
+        Mono<ProductItems<Review>> reviews = !sections.contains(ProductAggregate.REVIEWS)
+                ? this.<Review>notLookedUp(reviewCallsAvoided)
+                : reviewCalls
+                        .execute(productId, () -> integration.lookupReviews(productId))
+                        .onErrorResume(ex -> {
+                            LOG.warn("getCompositeProduct: reviews failed, returns a partial aggregate: {}", ex.getMessage());
+                            return Mono.just(ProductItems.failure());
+                        });
+
+        return Mono.zip(product, recommendations, reviews)
+                .map(t -> trim(createProductAggregate(productId, t.getT1(), t.getT2(), t.getT3(), serviceUtil.getServiceAddress(),
+                        List.of()), sections))
+                .doOnNext(a -> LOG.debug("getCompositeProduct: aggregate entity found for productId: {}", productId));
     }
 
-    public void createProduct(ProductAggregate body) {
-        try {
-            LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", body.getProductId());
+    private Mono<ProductAggregate> loadProductAggregate(int productId, Set<String> sections, RequestDeadline deadline) {
 
-            Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
-            integration.createProduct(product);
+        // Each section gets what is left of the deadline. A section that is late is cancelled, which cancels its
+        // downstream call, and flagged as timed out. The calls are not shared with concurrent lookups, a shared call
+        // cannot be cancelled for one caller alone.
+        Duration remaining = deadline.remaining();
 
-            if (body.getRecommendations() != null) {
-                body.getRecommendations().forEach(r -> {
-                    Recommendation recommendation = new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(), null);
-                    integration.createRecommendation(recommendation);
-                });
-            }
+        Mono<Optional<Product>> product = withinDeadline(integration.getProduct(productId)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("No product found for productId: " + productId))), remaining);
+        Mono<Optional<ProductItems<Recommendation>>> recommendations = !sections.contains(ProductAggregate.RECOMMENDATIONS)
+                ? this.<Recommendation>notLookedUp(recommendationCallsAvoided).map(Optional::of)
+                : withinDeadline(integration.lookupRecommendations(productId), remaining);
+        Mono<Optional<ProductItems<Review>>> reviews = !sections.contains(ProductAggregate.REVIEWS)
+                ? this.<Review>notLookedUp(reviewCallsAvoided).map(Optional::of)
+                : withinDeadline(integration.lookupReviews(productId), remaining);
 
-            if (body.getReviews() != null) {
-                body.getReviews().forEach(r -> {
-                    Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null);
-                    integration.createReview(review);
+        return Mono.zip(product, recommendations, reviews)
+                .map(t -> {
+                    List<String> timedOut = new ArrayList<>();
+                    if (t.getT1().isEmpty()) {
+                        timedOut.add(ProductAggregate.PRODUCT);
+                    }
+                    if (t.getT2().isEmpty()) {
+                        timedOut.add(ProductAggregate.RECOMMENDATIONS);
+                    }
+                    if (t.getT3().isEmpty()) {
+                        timedOut.add(ProductAggregate.REVIEWS);
+                    }
+                    if (!timedOut.isEmpty()) {
+                        LOG.warn("getCompositeProduct: {} timed out after {} ms, returns a partial aggregate for productId: {}",
+                                timedOut, remaining.toMillis(), productId);
+                    }
+                    return trim(createProductAggregate(productId, t.getT1().orElse(null),
+                            t.getT2().orElse(ProductItems.fresh(new ArrayList<>())), t.getT3().orElse(ProductItems.fresh(new ArrayList<>())),
+                            serviceUtil.getServiceAddress(), timedOut), sections);
                 });
-            }
-            LOG.debug("createCompositeProduct: composite entities created for productId: {}", body.getProductId());
+    }
+
+    private <T> Mono<ProductItems<T>> notLookedUp(Counter callsAvoided) {
+        return Mono.fromSupplier(() -> {
+            callsAvoided.increment();
+            return ProductItems.fresh(new ArrayList<>());
+        });
+    }
+
+    /**
+     * Returns the aggregate with the sections that are not included set to null.
+     */
+    private ProductAggregate trim(ProductAggregate aggregate, Set<String> sections) {
+        if (sections.containsAll(SECTIONS)) {
+            return aggregate;
+        }
+        return new ProductAggregate(aggregate.getProductId(), aggregate.getName(), aggregate.getWeight(),
+                sections.contains(ProductAggregate.RECOMMENDATIONS) ? aggregate.getRecommendations() : null,
+                sections.contains(ProductAggregate.REVIEWS) ? aggregate.getReviews() : null,
+                aggregate.getServiceAddresses(), aggregate.getTimedOut(), aggregate.getStale(), aggregate.getFailed());
+    }
+
+    private <T> Mono<Optional<T>> withinDeadline(Mono<T> section, Duration remaining) {
+        return section.map(Optional::of).timeout(remaining, Mono.just(Optional.empty()));
+    }
+
+    @Override
+    public Flux<ProductAggregateChunk> getProductStream(int productId) {
+
+        LOG.debug("getCompositeProductStream: streams a product aggregate for productId: {}", productId);
+
+        Flux<ProductAggregateChunk> product = integration.getProduct(productId)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("No product found for productId: " + productId)))
+                .map(p -> new ProductAggregateChunk(ProductAggregateChunk.PRODUCT, productId, p.getName(), p.getWeight(), null, null, p.getServiceAddress()))
+                .flux();
+
+        Flux<ProductAggregateChunk> recommendations = integration.streamRecommendations(productId)
+                .map(r -> new ProductAggregateChunk(ProductAggregateChunk.RECOMMENDATION, productId, null, null,
+                        new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()), null, r.getServiceAddress()));
+
+        Flux<ProductAggregateChunk> reviews = integration.streamReviews(productId)
+                .map(r -> new ProductAggregateChunk(ProductAggregateChunk.REVIEW, productId, null, null,
+                        null, new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()), r.getServiceAddress()));
+
+        // All three calls start at once. Recommendations and reviews that arrive before the product are held back
+        // until the product chunk is sent, after that every element is passed on as it arrives.
+        return Flux.mergeSequential(product, Flux.merge(recommendations, reviews));
+    }
+
+    @Override
+    public Flux<ProductAggregateEntry> getProducts(List<Integer> ids) {
+
+        List<Integer> productIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        LOG.debug("getCompositeProducts: lookup product aggregates for {} productIds", productIds.size());
 
-        } catch (RuntimeException re) {
-            LOG.warn("createCompositeProduct failed", re);
-            throw re;
+        if (productIds.size() > batchMaxSize) {
+            return Flux.error(new InvalidInputException("Too many productIds: " + productIds.size() + ", max is: " + batchMaxSize));
         }
+        Optional<Integer> invalidId = productIds.stream().filter(id -> id < 1).findFirst();
+        if (invalidId.isPresent()) {
+            return Flux.error(new InvalidInputException("Invalid productId: " + invalidId.get()));
+        }
+
+        // One call per core service for the whole batch, the results are grouped per productId afterwards
+        Mono<Map<Integer, Product>> products = integration.getProducts(productIds)
+                .collectMap(Product::getProductId);
+
+        Mono<Map<Integer, ProductItems<Recommendation>>> recommendations = integration.lookupRecommendationsForProducts(productIds);
+
+        Mono<Map<Integer, ProductItems<Review>>> reviews = integration.lookupReviewsForProducts(productIds);
+
+        return Mono.zip(products, recommendations, reviews)
+                .flatMapMany(t -> Flux.fromIterable(productIds).map(productId -> {
+                    Product product = t.getT1().get(productId);
+                    if (product == null) {
+                        return new ProductAggregateEntry(productId, null, "No product found for productId: " + productId);
+                    }
+                    ProductAggregate aggregate = createProductAggregate(productId, product,
+                            t.getT2().get(productId), t.getT3().get(productId), serviceUtil.getServiceAddress(), List.of());
+                    return new ProductAggregateEntry(productId, aggregate, null);
+                }));
     }
 
-    public void deleteProduct(int productId) {
+    @Override
+    public Mono<CompositeOperationResult> createProduct(ProductAggregate body) {
+        int productId = body.getProductId();
+        LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", productId);
+
+        Product product = new Product(productId, body.getName(), body.getWeight(), null);
+
+        // The product is created first, a failure there fails the whole request as before.
+        // The children are then created concurrently, at most createConcurrency at a time.
+        Flux<OperationFailure> childFailures = Flux.concat(
+                Flux.fromIterable(body.getRecommendations() != null ? body.getRecommendations() : new ArrayList<>())
+                        .map(r -> createRecommendation(productId, r)),
+                Flux.fromIterable(body.getReviews() != null ? body.getReviews() : new ArrayList<>())
+                        .map(r -> createReview(productId, r)))
+                .flatMap(create -> create, createConcurrency);
+
+        return integration.createProduct(product)
+                .thenMany(childFailures)
+                .collectList()
+                .map(failures -> new CompositeOperationResult(productId, failures))
+                .doOnNext(result -> {
+                    if (result.isSuccessful()) {
+                        LOG.debug("createCompositeProduct: composite entities created for productId: {}", productId);
+                    } else {
+                        LOG.warn("createCompositeProduct: {} child entities failed for productId: {}", result.getFailures().size(), productId);
+                    }
+                })
+                .doOnError(ex -> LOG.warn("createCompositeProduct failed", ex))
+                .doFinally(signal -> invalidate(productId));
+    }
+
+    private Mono<OperationFailure> createRecommendation(int productId, RecommendationSummary r) {
+        Recommendation recommendation = new Recommendation(productId, r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(), null);
+        return integration.createRecommendation(recommendation)
+                .then(Mono.<OperationFailure>empty())
+                .onErrorResume(ex -> Mono.just(new OperationFailure("recommendation", r.getRecommendationId(), ex.getMessage())));
+    }
+
+    private Mono<OperationFailure> createReview(int productId, ReviewSummary r) {
+        Review review = new Review(productId, r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null);
+        return integration.createReview(review)
+                .then(Mono.<OperationFailure>empty())
+                .onErrorResume(ex -> Mono.just(new OperationFailure("review", r.getReviewId(), ex.getMessage())));
+    }
+
+    @Override
+    public Mono<CompositeOperationResult> deleteProduct(int productId) {
 
         LOG.debug("deleteCompositeProduct: Deletes a product aggregate for productId: {}", productId);
 
-        integration.deleteProduct(productId);
-        integration.deleteRecommendations(productId);
-        integration.deleteReviews(productId);
+        // The deletes are independent and idempotent, issue them at once so the latency is the slowest one.
+        // A failing delete does not cancel the others, it is reported in the result and can simply be retried.
+        return Flux.merge(
+                        deleteFrom("product", integration.deleteProduct(productId)),
+                        deleteFrom("recommendation", integration.deleteRecommendations(productId)),
+                        deleteFrom("review", integration.deleteReviews(productId)))
+                .collectList()
+                .map(failures -> new CompositeOperationResult(productId, failures))
+                .doOnNext(result -> {
+                    if (result.isSuccessful()) {
+                        LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId);
+                    } else {
+                        LOG.warn("deleteCompositeProduct: {} deletes failed for productId: {}", result.getFailures().size(), productId);
+                    }
+                })
+                .doFinally(signal -> invalidate(productId));
+    }
+
+    // Later lookups of the productId neither get the cached aggregate nor join a call started before the write
+    private void invalidate(int productId) {
+        productCalls.forget(productId);
+        recommendationCalls.forget(productId);
+        reviewCalls.forget(productId);
+        cache.invalidate(productId);
+    }
 
-        LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId);
+    private Mono<OperationFailure> deleteFrom(String service, Mono<Void> delete) {
+        return delete
+                .then(Mono.<OperationFailure>empty())
+                .onErrorResume(ex -> Mono.just(new OperationFailure(service, null, ex.getMessage())));
     }
 
+    /**
+     * Sections whose items are the last known good ones, as their service failed, are flagged as stale. Sections
+     * that are left empty, as their service failed without last known good items, are flagged as failed.
+     */
     private ProductAggregate createProductAggregate(
+            int productId,
             Product product,
-            List<Recommendation> recommendations,
-            List<Review> reviews,
-            String serviceAddress) {
+            ProductItems<Recommendation> recommendationItems,
+            ProductItems<Review> reviewItems,
+            String serviceAddress,
+            List<String> timedOut) {
+
+        List<Recommendation> recommendations = recommendationItems.items();
+        List<Review> reviews = reviewItems.items();
+        List<String> stale = new ArrayList<>();
+        if (recommendationItems.stale()) {
+            stale.add(ProductAggregate.RECOMMENDATIONS);
+        }
+        if (reviewItems.stale()) {
+            stale.add(ProductAggregate.REVIEWS);
+        }
+        if (!stale.isEmpty()) {
+            LOG.warn("getCompositeProduct: {} are stale for productId: {}", stale, productId);
+        }
+        List<String> failed = new ArrayList<>();
+        if (recommendationItems.failed()) {
+            failed.add(ProductAggregate.RECOMMENDATIONS);
+        }
+        if (reviewItems.failed()) {
+            failed.add(ProductAggregate.REVIEWS);
+        }
 
-        int productId = product.getProductId();
-        String name = product.getName();
-        int weight = product.getWeight();
+        String name = (product == null) ? null : product.getName();
+        int weight = (product == null) ? 0 : product.getWeight();
 
         List<RecommendationSummary> recommendationSummaries = (recommendations == null) ? null :
                 recommendations.stream()
@@ -105,10 +370,11 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
                         .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
                         .collect(Collectors.toList());
 
-        String productAddress = product.getServiceAddress();
+        String productAddress = (product == null) ? "" : product.getServiceAddress();
         String reviewAddress = (reviews != null && reviews.size() > 0) ? reviews.get(0).getServiceAddress() : "";
         String recommendationAddress = (recommendations != null && recommendations.size() > 0) ? recommendations.get(0).getServiceAddress() : "";
         ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
-        return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries, serviceAddresses);
+        return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries, serviceAddresses, timedOut, stale,
+                failed);
     }
 }
@@ -0,0 +1,74 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.spinic.microservices.api.exceptions.InvalidInputException;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.schema.DataFetchingEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+
+import java.util.List;
+
+/**
+ * Limits and error mapping of the GraphQL endpoint.
+ * <p>
+ * A query is rejected before it is executed if it is nested deeper than the max depth, or if its complexity is
+ * above the max complexity. Every field counts one, and the fields below a products query count once per
+ * requested productId, so the complexity follows the fan-out of the query and not only its size.
+ */
+@Configuration
+public class ProductGraphQlConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductGraphQlConfiguration.class);
+
+    @Bean
+    public MaxQueryDepthInstrumentation maxQueryDepthInstrumentation(
+            @Value("${app.product-composite.graphql.max-depth:5}") int maxDepth) {
+        return new MaxQueryDepthInstrumentation(maxDepth);
+    }
+
+    @Bean
+    public MaxQueryComplexityInstrumentation maxQueryComplexityInstrumentation(
+            @Value("${app.product-composite.graphql.max-complexity:1000}") int maxComplexity) {
+        LOG.info("GraphQL max query complexity: {}", maxComplexity);
+        return new MaxQueryComplexityInstrumentation(maxComplexity, fanOutComplexity());
+    }
+
+    private static FieldComplexityCalculator fanOutComplexity() {
+        return (environment, childComplexity) -> {
+            Object productIds = environment.getArguments().get("productIds");
+            int fanOut = (productIds instanceof List<?> ids) ? Math.max(1, ids.size()) : 1;
+            return 1 + fanOut * childComplexity;
+        };
+    }
+
+    @Bean
+    public DataFetcherExceptionResolverAdapter graphQlExceptionResolver() {
+        return new DataFetcherExceptionResolverAdapter() {
+            @Override
+            protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+                ErrorType errorType;
+                if (ex instanceof NotFoundException) {
+                    errorType = ErrorType.NOT_FOUND;
+                } else if (ex instanceof InvalidInputException) {
+                    errorType = ErrorType.BAD_REQUEST;
+                } else {
+                    return null;
+                }
+                return GraphqlErrorBuilder.newError(env)
+                        .errorType(errorType)
+                        .message(ex.getMessage())
+                        .build();
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.spinic.microservices.composite.product.services;
+
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.exceptions.InvalidInputException;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherResult;
+import org.dataloader.DataLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL view of the products, recommendations and reviews, see graphql/schema.graphqls.
+ * <p>
+ * The product queries of one request, e.g. under several aliases, are loaded together with a single getProducts call.
+ * Recommendations and reviews are batch mappings: the products of one query, however many and wherever they appear
+ * in it, are resolved with a single call per core service. Only the core services of the fields the query asks for
+ * are called. Recommendations or reviews that are the last known good ones, as their service failed, are returned
+ * with an error that flags them as stale, and with one that flags them as failed if they are left empty.
+ */
+@Controller
+public class ProductGraphQlController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductGraphQlController.class);
+
+    private final ProductCompositeIntegration integration;
+    private final int batchMaxSize;
+
+    @Autowired
+    public ProductGraphQlController(
+            ProductCompositeIntegration integration,
+            BatchLoaderRegistry batchLoaders,
+            @Value("${app.product-composite.batch.max-size:100}") int batchMaxSize) {
+        this.integration = integration;
+        this.batchMaxSize = batchMaxSize;
+
+        batchLoaders.forTypePair(Integer.class, Product.class)
+                .withOptions(options -> options.setMaxBatchSize(batchMaxSize))
+                .registerMappedBatchLoader((productIds, environment) -> {
+                    LOG.debug("product: lookup {} products", productIds.size());
+                    return integration.getProducts(new ArrayList<>(productIds)).collectMap(Product::getProductId);
+                });
+    }
+
+    @QueryMapping
+    public Mono<Product> product(@Argument int productId, DataLoader<Integer, Product> products) {
+        LOG.debug("product: lookup the product with productId: {}", productId);
+
+        if (productId < 1) {
+            return Mono.error(new InvalidInputException("Invalid productId: " + productId));
+        }
+        // An unknown productId is answered as null, as the schema says, not as an error
+        return Mono.fromFuture(products.load(productId));
+    }
+
+    @QueryMapping
+    public Mono<List<Product>> products(@Argument List<Integer> productIds) {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(productIds));
+        LOG.debug("products: lookup {} products", distinctIds.size());
+
+        if (distinctIds.size() > batchMaxSize) {
+            return Mono.error(new InvalidInputException("Too many productIds: " + distinctIds.size() + ", max is: " + batchMaxSize));
+        }
+        if (distinctIds.stream().anyMatch(id -> id < 1)) {
+            return Mono.error(new InvalidInputException("Invalid productIds: " + productIds));
+        }
+
+        return integration.getProducts(distinctIds)
+                .collectMap(Product::getProductId)
+                .map(products -> {
+                    List<Product> ordered = new ArrayList<>();
+                    productIds.forEach(productId -> ordered.add(products.get(productId)));
+                    return ordered;
+                });
+    }
+
+    @BatchMapping
+    public Mono<Map<Product, DataFetcherResult<List<Recommendation>>>> recommendations(List<Product> products) {
+        LOG.debug("recommendations: lookup the recommendations of {} products", products.size());
+
+        return integration.lookupRecommendationsForProducts(productIds(products))
+                .map(recommendations -> perProduct(products, recommendations, ProductAggregate.RECOMMENDATIONS));
+    }
+
+    @BatchMapping
+    public Mono<Map<Product, DataFetcherResult<List<Review>>>> reviews(List<Product> products) {
+        LOG.debug("reviews: lookup the reviews of {} products", products.size());
+
+        return integration.lookupReviewsForProducts(productIds(products))
+                .map(reviews -> perProduct(products, reviews, ProductAggregate.REVIEWS));
+    }
+
+    private List<Integer> productIds(List<Product> products) {
+        return products.stream().map(Product::getProductId).distinct().collect(Collectors.toList());
+    }
+
+    // The items are the data of the field. Last known good items come with an error that names the stale section,
+    // items that are left empty as their service failed with one that names the failed section.
+    private <T> Map<Product, DataFetcherResult<List<T>>> perProduct(List<Product> products, Map<Integer, ProductItems<T>> values,
+                                                                    String section) {
+        return products.stream().collect(Collectors.toMap(Function.identity(),
+                product -> {
+                    ProductItems<T> items = values.get(product.getProductId());
+                    DataFetcherResult.Builder<List<T>> result = DataFetcherResult.<List<T>>newResult().data(new ArrayList<>(items.items()));
+                    if (items.stale()) {
+                        result.error(GraphqlErrorBuilder.newError()
+                                .message("The " + section + " of productId: " + product.getProductId() + " are stale, their service failed")
+                                .extensions(Map.of("productId", product.getProductId(), "stale", section))
+                                .build());
+                    }
+                    if (items.failed()) {
+                        result.error(GraphqlErrorBuilder.newError()
+                                .message("The " + section + " of productId: " + product.getProductId() + " are left out, their service failed")
+                                .extensions(Map.of("productId", product.getProductId(), "failed", section))
+                                .build());
+                    }
+                    return result.build();
+                },
+                (first, second) -> first));
+    }
+}
@@ -0,0 +1,24 @@
+package com.spinic.microservices.composite.product.services;
+
+import java.util.List;
+
+/**
+ * The items, e.g. the reviews, of one product as a lookup in a downstream service returned them, and how the lookup
+ * went: stale items are the last known good ones, served because the service failed, see LastKnownGoodStore. A
+ * failed lookup without last known good items has no items. The flags travel with the items, so each caller sees
+ * the outcome of its own lookup.
+ */
+public record ProductItems<T>(List<T> items, boolean stale, boolean failed) {
+
+    public static <T> ProductItems<T> fresh(List<T> items) {
+        return new ProductItems<>(items, false, false);
+    }
+
+    public static <T> ProductItems<T> stale(List<T> items) {
+        return new ProductItems<>(items, true, false);
+    }
+
+    public static <T> ProductItems<T> failure() {
+        return new ProductItems<>(List.of(), false, true);
+    }
+}
@@ -0,0 +1,58 @@
+package com.spinic.microservices.composite.product.services;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of downstream calls: concurrent callers asking for the same key share one in-flight
+ * call and all receive its result, including its error.
+ * <p>
+ * The in-flight map is a {@link ConcurrentHashMap}, so callers never block on each other. An entry is removed as
+ * soon as its call terminates, the next caller after that starts a new call. After a write, {@link #forget(Object)}
+ * drops the entry at once, so later callers do not join a call that may return what was read before the write.
+ */
+public class RequestCoalescer<K, V> {
+
+    private final boolean enabled;
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> share(k, call)));
+    }
+
+    /**
+     * Removes the in-flight call for the key, if any. Callers that already joined it still receive its result, the
+     * next caller starts a new call.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Mono<V> share(K key, Supplier<Mono<V>> call) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+
+        // cache() replays the value or the error to every subscriber. The entry is removed before the result is
+        // handed out, so a caller that has seen the result never joins the finished call again.
+        Mono<V> shared = call.get()
+                .doOnTerminate(() -> inFlight.remove(key, self.get()))
+                .doOnCancel(() -> inFlight.remove(key, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
+    }
+}
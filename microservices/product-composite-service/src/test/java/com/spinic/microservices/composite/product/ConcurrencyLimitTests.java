@@ -0,0 +1,165 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.composite.product.services.ConcurrencyLimitFilter;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicies;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicy;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "app.product-composite.cache.enabled=false",
+        "app.product-composite.coalescing.enabled=false",
+        "app.product-composite.concurrency-limit.initial-limit=2",
+        "app.product-composite.concurrency-limit.min-limit=2",
+        "app.product-composite.concurrency-limit.max-limit=2",
+        "app.product-composite.concurrency-limit.retry-after=3s"})
+class ConcurrencyLimitTests {
+
+    private static final int CONCURRENT_REQUESTS = 6;
+    // The number of samples the limit is recalculated after
+    private static final int WINDOW = 20;
+
+    @Autowired
+    private WebTestClient client;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    void setUp() {
+        when(compositeIntegration.getProduct(anyInt()))
+                .thenAnswer(i -> Mono.just(new Product(i.getArgument(0), "name", 1, "mock-address")).delayElement(Duration.ofMillis(500)));
+        when(compositeIntegration.getProducts(anyList()))
+                .thenAnswer(i -> Flux.just(new Product(1, "name", 1, "mock-address")).delayElements(Duration.ofMillis(500)));
+        when(compositeIntegration.lookupRecommendations(anyInt())).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.lookupReviews(anyInt())).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+    }
+
+    @Test
+    void requestsBeyondTheLimitAreShedWith503AndRetryAfter() {
+        double rejectionsBefore = meterRegistry.get("composite.concurrency.rejections").counter().count();
+
+        List<EntityExchangeResult<byte[]>> results = callConcurrently(productId -> client.get().uri("/product-composite/" + productId));
+
+        assertShed(results);
+        assertEquals(CONCURRENT_REQUESTS - 2, meterRegistry.get("composite.concurrency.rejections").counter().count() - rejectionsBefore);
+        assertEquals(2, meterRegistry.get("composite.concurrency.limit").gauge().value());
+        awaitNoRequestsInFlight();
+    }
+
+    @Test
+    void graphQlRequestsBeyondTheLimitAreShed() {
+        List<EntityExchangeResult<byte[]>> results = callConcurrently(productId -> client.post().uri("/graphql")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(Map.of("query", "{ products(productIds: [" + productId + "]) { productId } }")));
+
+        assertShed(results);
+        awaitNoRequestsInFlight();
+    }
+
+    @Test
+    void limitFollowsTheDownstreamCallsNotTheRequests() {
+        DownstreamCallPolicies callPolicies = ProductCompositeIntegrationBuilder.callPolicies(Duration.ofSeconds(2), 1000);
+        DownstreamCallPolicy downstream = callPolicies.create("downstream");
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), callPolicies, true, 20, 4, 1000, 1.5, Duration.ofSeconds(1));
+
+        // Cache hits, then streams, neither calls a core service
+        callThrough(filter, Duration.ZERO);
+        callThrough(filter, Duration.ofMillis(100));
+        assertEquals(20, filter.getLimit());
+
+        // Core services that got ten times slower
+        callDownstream(downstream, Duration.ofMillis(10));
+        callDownstream(downstream, Duration.ofMillis(100));
+        assertTrue(filter.getLimit() < 20, "Expected a lower limit, was " + filter.getLimit());
+    }
+
+    @Test
+    void actuatorIsNotLimited() {
+        Mono<Void> load = Flux.range(1, CONCURRENT_REQUESTS)
+                .flatMap(productId -> Mono.fromRunnable(() -> client.get().uri("/product-composite/" + productId).exchange())
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then()
+                .cache();
+        load.subscribe();
+        Mono.delay(Duration.ofMillis(200)).block();
+
+        client.get().uri("/actuator/health").exchange().expectStatus().isOk();
+        load.block();
+    }
+
+    private List<EntityExchangeResult<byte[]>> callConcurrently(IntFunction<WebTestClient.RequestHeadersSpec<?>> request) {
+        return Flux.range(1, CONCURRENT_REQUESTS)
+                .flatMap(productId -> Mono.fromCallable(() -> request.apply(productId)
+                        .exchange()
+                        .expectBody().returnResult())
+                        .subscribeOn(Schedulers.boundedElastic()), CONCURRENT_REQUESTS)
+                .collectList()
+                .block();
+    }
+
+    private void assertShed(List<EntityExchangeResult<byte[]>> results) {
+        List<HttpStatusCode> statuses = results.stream().map(EntityExchangeResult::getStatus).toList();
+        assertEquals(2, statuses.stream().filter(OK::equals).count(), "Statuses: " + statuses);
+        assertEquals(CONCURRENT_REQUESTS - 2, statuses.stream().filter(SERVICE_UNAVAILABLE::equals).count(), "Statuses: " + statuses);
+        results.stream()
+                .filter(r -> SERVICE_UNAVAILABLE.equals(r.getStatus()))
+                .forEach(r -> assertEquals("3", r.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER)));
+    }
+
+    // The response can reach the client just before the filter counts the request as done
+    private void awaitNoRequestsInFlight() {
+        for (int i = 0; i < 50 && meterRegistry.get("composite.concurrency.in-flight").gauge().value() > 0; i++) {
+            Mono.delay(Duration.ofMillis(10)).block();
+        }
+        assertEquals(0, meterRegistry.get("composite.concurrency.in-flight").gauge().value());
+    }
+
+    // One window of requests that take the given time without calling a core service
+    private void callThrough(ConcurrencyLimitFilter filter, Duration time) {
+        Flux.range(0, WINDOW)
+                .flatMap(i -> filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/product-composite/1")),
+                        exchange -> Mono.delay(time).then()))
+                .blockLast();
+    }
+
+    // One window of calls to a core service that answers in the given time
+    private void callDownstream(DownstreamCallPolicy downstream, Duration time) {
+        Flux.range(0, WINDOW)
+                .flatMap(i -> downstream.idempotentCall(Mono.delay(time)))
+                .blockLast();
+    }
+}
@@ -0,0 +1,127 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.composite.product.services.DomainSocketTransport;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.netty.channel.unix.DomainSocketAddress;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRoutes;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the lookups of the integration against stub core services on a Unix domain socket and on an h2c port.
+ */
+class DomainSocketTransportTests {
+
+    @TempDir
+    static Path socketDir;
+
+    private static final Set<String> receivedProtocols = new CopyOnWriteArraySet<>();
+
+    private static DisposableServer socketServer;
+    private static DisposableServer h2cServer;
+
+    @BeforeAll
+    static void startStubServers() {
+        socketServer = HttpServer.create()
+                .bindAddress(() -> new DomainSocketAddress(socketDir.resolve("core.sock").toString()))
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(stubRoutes())
+                .bindNow();
+        h2cServer = HttpServer.create().host("localhost").port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(stubRoutes())
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopStubServers() {
+        socketServer.disposeNow();
+        h2cServer.disposeNow();
+    }
+
+    private static Consumer<HttpServerRoutes> stubRoutes() {
+        return routes -> routes
+                .get("/product/{productId}", (req, res) -> {
+                    // HTTP/2 streams reach the handler as HTTP/1.1 requests, with the stream id as an extra header
+                    receivedProtocols.add(req.requestHeaders().contains("x-http2-stream-id") ? "h2c" : "HTTP/1.1");
+                    return res.status(OK).header("Content-Type", "application/json")
+                            .sendString(Mono.just("{\"productId\":" + req.param("productId") + ",\"name\":\"name\",\"weight\":1}"));
+                })
+                .get("/recommendation", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just("[{\"productId\":1,\"recommendationId\":1,\"author\":\"a\"}]")))
+                .get("/review", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just("[{\"productId\":1,\"reviewId\":1},{\"productId\":1,\"reviewId\":2}]")));
+    }
+
+    @Test
+    void lookupsGoOverTheSocket() {
+        String socketPath = socketDir.resolve("core.sock").toString();
+        // Port 1 is never listened on, the calls only succeed over the socket
+        ProductCompositeIntegration integration = createIntegration(WebClient.builder().build(),
+                new DomainSocketTransport(false, 10, socketPath, socketPath, socketPath), 1);
+
+        verifyLookups(integration);
+    }
+
+    @Test
+    void lookupsGoOverTheSocketWithH2c() {
+        String socketPath = socketDir.resolve("core.sock").toString();
+        ProductCompositeIntegration integration = createIntegration(WebClient.builder().build(),
+                new DomainSocketTransport(true, 10, socketPath, socketPath, socketPath), 1);
+
+        receivedProtocols.clear();
+        verifyLookups(integration);
+        assertEquals(Set.of("h2c"), receivedProtocols);
+    }
+
+    @Test
+    void lookupsGoOverH2c() {
+        WebClient h2cClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().protocol(HttpProtocol.H2C)))
+                .build();
+        ProductCompositeIntegration integration = createIntegration(h2cClient,
+                new DomainSocketTransport(true, 10, "", "", ""), h2cServer.port());
+
+        receivedProtocols.clear();
+        verifyLookups(integration);
+        assertEquals(Set.of("h2c"), receivedProtocols);
+    }
+
+    private void verifyLookups(ProductCompositeIntegration integration) {
+        StepVerifier.create(integration.getProduct(1))
+                .expectNextMatches(product -> product.getProductId() == 1 && product.getName().equals("name"))
+                .verifyComplete();
+        StepVerifier.create(integration.getRecommendations(1))
+                .expectNextMatches(recommendation -> recommendation.getAuthor().equals("a"))
+                .verifyComplete();
+        StepVerifier.create(integration.getReviews(1))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    private ProductCompositeIntegration createIntegration(WebClient webClient, DomainSocketTransport domainSocketTransport, int port) {
+        return new ProductCompositeIntegrationBuilder()
+                .webClient(webClient)
+                .domainSocketTransport(domainSocketTransport)
+                .coreServicesPort(port)
+                .build();
+    }
+}
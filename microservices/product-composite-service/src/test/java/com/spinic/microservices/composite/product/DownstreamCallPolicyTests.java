@@ -0,0 +1,261 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicies;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicy;
+import com.spinic.microservices.composite.product.services.MicroBatching;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the integration against stub core services: a product-service where some productIds are often slow, hang or
+ * are not found, a recommendation-service that never answers and a review-service that always fails. The effect of
+ * hedging on the tail latency is measured by HedgingBenchmark.
+ */
+class DownstreamCallPolicyTests {
+
+    private static final Duration MIN_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration MAX_TIMEOUT = Duration.ofSeconds(5);
+    private static final int CALLS = 400;
+    private static final int LATENCY_WINDOW = 200;
+
+    private static final int PRODUCT_ID_FAST = 1;
+    private static final int PRODUCT_ID_OFTEN_SLOW = 2;
+    private static final int PRODUCT_ID_HANGING = 4;
+    private static final int PRODUCT_ID_NOT_FOUND = 5;
+
+    private static final AtomicInteger recommendationRequests = new AtomicInteger();
+    private static final AtomicInteger reviewRequests = new AtomicInteger();
+    private static DisposableServer productServer;
+
+    @BeforeAll
+    static void startStubServer() {
+        productServer = HttpServer.create().port(0).route(routes -> routes
+                .get("/product/{productId}", (req, res) -> {
+                    int productId = Integer.parseInt(req.param("productId"));
+                    switch (productId) {
+                        case PRODUCT_ID_OFTEN_SLOW:
+                            return ThreadLocalRandom.current().nextInt(10) < 3
+                                    ? Mono.delay(Duration.ofMillis(30)).then(sendProduct(res, productId))
+                                    : sendProduct(res, productId);
+                        case PRODUCT_ID_HANGING:
+                            return Mono.never();
+                        case PRODUCT_ID_NOT_FOUND:
+                            return res.status(NOT_FOUND).send();
+                        default:
+                            return sendProduct(res, productId);
+                    }
+                })
+                .get("/recommendation", (req, res) -> {
+                    recommendationRequests.incrementAndGet();
+                    return Mono.never();
+                })
+                .get("/review", (req, res) -> {
+                    reviewRequests.incrementAndGet();
+                    return res.status(INTERNAL_SERVER_ERROR).send();
+                }))
+                .bindNow();
+    }
+
+    private static Mono<Void> sendProduct(HttpServerResponse res, int productId) {
+        return res.status(OK).header("Content-Type", "application/json")
+                .sendString(Mono.just("{\"productId\":" + productId + ",\"name\":\"n\",\"weight\":1}"))
+                .then();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        productServer.disposeNow();
+    }
+
+    @Test
+    void aSlowCallIsHedgedAndTheHedgeWins() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        DownstreamCallPolicy policy = createPolicies(registry, true, 0.95, 100).create("product-service");
+        Flux.range(0, LATENCY_WINDOW).concatMap(i -> policy.idempotentCall(Mono.just("warm-up"))).blockLast();
+
+        // The fast calls set the hedge delay to its min and are not hedged themselves
+        assertEquals(Duration.ofMillis(10), policy.currentHedgeDelay());
+        assertEquals(0, hedges(registry, "sent"));
+
+        // The first attempt stalls far beyond the hedge delay, the hedge answers at once
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.just("primary").delayElement(MAX_TIMEOUT)
+                : Mono.just("hedge"));
+
+        assertEquals("hedge", policy.idempotentCall(call).block(MAX_TIMEOUT.dividedBy(2)));
+        assertEquals(2, attempts.get());
+        assertEquals(1, hedges(registry, "sent"));
+        assertEquals(0, hedges(registry, "rejected"));
+    }
+
+    @Test
+    void hedgeBudgetLimitsTheExtraLoad() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ProductCompositeIntegration integration = createIntegration(registry, true, 0.5);
+
+        // Hedging at p50, the 30% slow calls are slower than the hedge delay and would like to hedge
+        Flux.range(0, CALLS).concatMap(i -> integration.getProduct(PRODUCT_ID_OFTEN_SLOW)).blockLast();
+
+        double sent = hedges(registry, "sent");
+        assertTrue(sent <= CALLS * 0.1 + 10, "Expected the budget to limit hedges, sent: " + sent);
+        assertTrue(hedges(registry, "rejected") > 0);
+    }
+
+    @Test
+    void timeoutAdaptsToTheObservedLatency() {
+        DownstreamCallPolicy policy = createPolicies(new SimpleMeterRegistry(), false, 0.95, 100).create("test");
+        assertEquals(MAX_TIMEOUT, policy.currentTimeout());
+        assertNull(policy.currentHedgeDelay());
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ProductCompositeIntegration integration = createIntegration(registry, false, 0.95);
+        Flux.range(0, 50).concatMap(i -> integration.getProduct(PRODUCT_ID_FAST)).blockLast();
+
+        // The fast calls bring the timeout down to its min, a hanging call fails after that instead of the max
+        long start = System.currentTimeMillis();
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> integration.getProduct(PRODUCT_ID_HANGING).block());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(ex.getCause() instanceof TimeoutException, "Unexpected error: " + ex);
+        assertTrue(elapsed < MAX_TIMEOUT.toMillis() / 2, "Expected an early timeout, was " + elapsed + " ms");
+        assertEquals(MIN_TIMEOUT.toMillis(), registry.get("composite.downstream.timeout").tag("downstream", "product-service").gauge().value());
+        assertEquals(1, registry.get("composite.downstream.timeouts").tag("downstream", "product-service").counter().count());
+    }
+
+    @Test
+    void openCircuitFailsFastIntoTheDegradedPath() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ProductCompositeIntegration integration = createIntegration(registry, false, 0.95, 100);
+        reviewRequests.set(0);
+
+        Flux.range(0, 50)
+                .concatMap(i -> integration.getReviews(1).collectList())
+                .doOnNext(reviews -> assertTrue(reviews.isEmpty()))
+                .blockLast();
+
+        // The circuit opens once the minimum number of calls has failed, after that review-service is left alone
+        assertEquals(10, reviewRequests.get());
+        assertEquals(40, rejections(registry, "review-service", "circuit-breaker"));
+        assertEquals(1, registry.get("composite.downstream.circuit-breaker.transitions")
+                .tags("downstream", "review-service", "from", "CLOSED", "to", "OPEN").counter().count());
+        assertEquals(1, registry.get("resilience4j.circuitbreaker.state")
+                .tags("name", "review-service", "state", "open").gauge().value());
+    }
+
+    @Test
+    void notFoundDoesNotOpenTheCircuit() {
+        ProductCompositeIntegration integration = createIntegration(new SimpleMeterRegistry(), false, 0.95, 100);
+        DownstreamCallPolicy policy = createPolicies(new SimpleMeterRegistry(), false, 0.95, 100).create("product-service");
+
+        Flux.range(0, 50)
+                .concatMap(i -> integration.getProduct(PRODUCT_ID_NOT_FOUND).onErrorResume(ex -> Mono.empty()))
+                .blockLast();
+        Flux.range(0, 50)
+                .concatMap(i -> policy.call(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null))).onErrorResume(ex -> Mono.empty()))
+                .blockLast();
+
+        assertEquals(CircuitBreaker.State.CLOSED, policy.circuitBreakerState());
+    }
+
+    @Test
+    void onlyAnsweredCallsAreMeasured() {
+        DownstreamCallPolicies policies = createPolicies(new SimpleMeterRegistry(), false, 0.95, 100);
+        AtomicInteger measured = new AtomicInteger();
+        policies.addLatencyListener(latency -> measured.incrementAndGet());
+        DownstreamCallPolicy policy = policies.create("test");
+
+        policy.idempotentCall(Mono.just(1)).block();
+        policy.idempotentCall(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)))
+                .onErrorResume(ex -> Mono.empty()).block();
+        assertEquals(2, measured.get());
+
+        // Failures are no answers, their latency would drag the timeouts and the concurrency limit towards them
+        policy.idempotentCall(Mono.error(WebClientResponseException.create(500, "Internal Server Error", null, null, null)))
+                .onErrorResume(ex -> Mono.empty()).block();
+        policy.idempotentCall(Mono.error(new TimeoutException())).onErrorResume(ex -> Mono.empty()).block();
+        assertEquals(2, measured.get());
+    }
+
+    @Test
+    void fullBulkheadRejectsAtOnce() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ProductCompositeIntegration integration = createIntegration(registry, false, 0.95, 5);
+        recommendationRequests.set(0);
+
+        // Fill the bulkhead with calls that recommendation-service never answers
+        List<Disposable> hangingCalls = IntStream.range(0, 5)
+                .mapToObj(i -> integration.getRecommendations(1).subscribe())
+                .collect(Collectors.toList());
+        Mono.delay(Duration.ofMillis(100)).repeat(() -> recommendationRequests.get() < 5).blockLast(Duration.ofSeconds(5));
+
+        long start = System.currentTimeMillis();
+        Flux.range(0, 15)
+                .flatMap(i -> integration.getRecommendations(1).collectList())
+                .doOnNext(recommendations -> assertTrue(recommendations.isEmpty()))
+                .blockLast();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < MAX_TIMEOUT.toMillis() / 5, "Expected rejected calls to fail fast, took " + elapsed + " ms");
+        assertEquals(5, recommendationRequests.get());
+        // Rejections count as failures, after the minimum number of calls the circuit opens and takes over
+        assertEquals(10, rejections(registry, "recommendation-service", "bulkhead"));
+        assertEquals(5, rejections(registry, "recommendation-service", "circuit-breaker"));
+
+        hangingCalls.forEach(Disposable::dispose);
+    }
+
+    private double rejections(MeterRegistry registry, String downstream, String reason) {
+        return registry.get("composite.downstream.rejections").tags("downstream", downstream, "reason", reason).counter().count();
+    }
+
+    private double hedges(MeterRegistry registry, String outcome) {
+        return registry.get("composite.downstream.hedges").tag("downstream", "product-service").tag("outcome", outcome).counter().count();
+    }
+
+    private ProductCompositeIntegration createIntegration(MeterRegistry registry, boolean hedging, double hedgePercentile) {
+        return createIntegration(registry, hedging, hedgePercentile, 100);
+    }
+
+    private ProductCompositeIntegration createIntegration(MeterRegistry registry, boolean hedging, double hedgePercentile, int maxConcurrentCalls) {
+        return new ProductCompositeIntegrationBuilder()
+                .callPolicies(createPolicies(registry, hedging, hedgePercentile, maxConcurrentCalls))
+                .microBatching(new MicroBatching(registry, false, Duration.ofMillis(2), 50))
+                .coreServicesPort(productServer.port())
+                .build();
+    }
+
+    private DownstreamCallPolicies createPolicies(MeterRegistry registry, boolean hedging, double hedgePercentile, int maxConcurrentCalls) {
+        return new DownstreamCallPolicies(registry, LATENCY_WINDOW, 0.99, 2.0, MIN_TIMEOUT, MAX_TIMEOUT,
+                hedging, hedgePercentile, Duration.ofMillis(10), 0.1,
+                maxConcurrentCalls, 50, 20, 10, Duration.ofSeconds(30), 3);
+    }
+}
@@ -0,0 +1,177 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Counts the calls to the core services for GraphQL queries over many products.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class GraphQlBatchingTests {
+
+    private static final int PRODUCTS = 50;
+    private static final String NESTED_QUERY = """
+            query products($productIds: [Int!]!) {
+                products(productIds: $productIds) {
+                    productId
+                    name
+                    recommendations { recommendationId author }
+                    reviews { reviewId subject }
+                }
+            }""";
+
+    @LocalServerPort
+    private int port;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    private HttpGraphQlTester graphQlTester;
+
+    @BeforeEach
+    void setUp() {
+        graphQlTester = HttpGraphQlTester.create(WebTestClient.bindToServer().baseUrl("http://localhost:" + port + "/graphql").build());
+
+        // Every product has two recommendations and one review, except the last product that does not exist
+        when(compositeIntegration.getProducts(anyList())).thenAnswer(i -> Flux.fromIterable(i.<List<Integer>>getArgument(0))
+                .filter(productId -> productId < PRODUCTS)
+                .map(productId -> new Product(productId, "name " + productId, 1, "mock-address")));
+        when(compositeIntegration.lookupRecommendationsForProducts(anyList())).thenAnswer(i -> Mono.just(i.<List<Integer>>getArgument(0).stream()
+                .collect(Collectors.toMap(productId -> productId, productId -> ProductItems.fresh(List.of(
+                        new Recommendation(productId, 1, "author", 1, "content", "mock-address"),
+                        new Recommendation(productId, 2, "author", 1, "content", "mock-address")))))));
+        when(compositeIntegration.lookupReviewsForProducts(anyList())).thenAnswer(i -> Mono.just(i.<List<Integer>>getArgument(0).stream()
+                .collect(Collectors.toMap(productId -> productId, productId -> ProductItems.fresh(List.of(
+                        new Review(productId, 1, "author", "subject", "content", "mock-address")))))));
+    }
+
+    @Test
+    void nestedQueryMakesOneCallPerCoreService() {
+        graphQlTester.document(NESTED_QUERY)
+                .variable("productIds", productIds(PRODUCTS))
+                .execute()
+                .errors().verify()
+                .path("products").entityList(Object.class).hasSize(PRODUCTS)
+                .path("products[0].name").entity(String.class).isEqualTo("name 1")
+                .path("products[0].recommendations").entityList(Object.class).hasSize(2)
+                .path("products[48].reviews").entityList(Object.class).hasSize(1)
+                .path("products[49]").valueIsNull();
+
+        verify(compositeIntegration, times(1)).getProducts(anyList());
+        verify(compositeIntegration, times(1)).lookupRecommendationsForProducts(anyList());
+        verify(compositeIntegration, times(1)).lookupReviewsForProducts(anyList());
+        verify(compositeIntegration, never()).getProduct(anyInt());
+        verify(compositeIntegration, never()).lookupRecommendations(anyInt());
+        verify(compositeIntegration, never()).lookupReviews(anyInt());
+    }
+
+    @Test
+    void aliasedProductQueriesMakeOneCallPerCoreService() {
+        graphQlTester.document("""
+                        {
+                            first: product(productId: 1) { name reviews { reviewId } }
+                            second: product(productId: 2) { name reviews { reviewId } }
+                            missing: product(productId: 50) { name }
+                        }""")
+                .execute()
+                .errors().verify()
+                .path("first.name").entity(String.class).isEqualTo("name 1")
+                .path("second.reviews[0].reviewId").entity(Integer.class).isEqualTo(1)
+                .path("missing").valueIsNull();
+
+        verify(compositeIntegration, times(1)).getProducts(anyList());
+        verify(compositeIntegration, times(1)).lookupReviewsForProducts(anyList());
+        verify(compositeIntegration, never()).getProduct(anyInt());
+    }
+
+    @Test
+    void onlyTheRequestedFieldsAreFetched() {
+        graphQlTester.document("{ products(productIds: [1, 2, 3]) { productId name reviews { reviewId } } }")
+                .execute()
+                .errors().verify()
+                .path("products[2].reviews[0].reviewId").entity(Integer.class).isEqualTo(1);
+
+        verify(compositeIntegration, times(1)).getProducts(anyList());
+        verify(compositeIntegration, times(1)).lookupReviewsForProducts(anyList());
+        verify(compositeIntegration, never()).lookupRecommendationsForProducts(anyList());
+    }
+
+    @Test
+    void staleReviewsAreReturnedWithAnError() {
+        // review-service failed, product 2 has last known good reviews
+        when(compositeIntegration.lookupReviewsForProducts(anyList())).thenReturn(Mono.just(Map.of(
+                1, ProductItems.fresh(List.of()),
+                2, ProductItems.stale(List.of(new Review(2, 1, "author", "subject", "content", "mock-address"))))));
+
+        graphQlTester.document("{ products(productIds: [1, 2]) { productId reviews { reviewId } } }")
+                .execute()
+                .errors().satisfy(errors -> {
+                    assertEquals(1, errors.size(), "Errors: " + errors);
+                    assertEquals(2, errors.get(0).getExtensions().get("productId"));
+                    assertEquals("reviews", errors.get(0).getExtensions().get("stale"));
+                })
+                .path("products[0].reviews").entityList(Object.class).hasSize(0)
+                .path("products[1].reviews[0].reviewId").entity(Integer.class).isEqualTo(1);
+    }
+
+    @Test
+    void tooComplexQueryIsRejectedBeforeAnyCall() {
+        // 100 products with all their recommendations and reviews fields exceed the max complexity of 1000
+        String query = """
+                query products($productIds: [Int!]!) {
+                    products(productIds: $productIds) {
+                        productId name weight serviceAddress
+                        recommendations { recommendationId author rate content serviceAddress }
+                        reviews { reviewId author subject content serviceAddress }
+                    }
+                }""";
+
+        graphQlTester.document(query)
+                .variable("productIds", productIds(100))
+                .execute()
+                .errors().satisfy(errors -> assertTrue(errors.stream()
+                        .anyMatch(error -> error.getMessage().contains("maximum query complexity")), "Errors: " + errors));
+
+        verify(compositeIntegration, never()).getProducts(anyList());
+    }
+
+    @Test
+    void tooDeepQueryIsRejected() {
+        graphQlTester.document("{ products(productIds: [1]) { reviews { reviewId } recommendations { author } } __schema { types { fields { type { ofType { name } } } } } }")
+                .execute()
+                .errors().satisfy(errors -> assertTrue(errors.stream()
+                        .anyMatch(error -> error.getMessage().contains("maximum query depth")), "Errors: " + errors));
+
+        verify(compositeIntegration, never()).getProducts(anyList());
+    }
+
+    private List<Integer> productIds(int count) {
+        return IntStream.rangeClosed(1, count).boxed().collect(Collectors.toList());
+    }
+}
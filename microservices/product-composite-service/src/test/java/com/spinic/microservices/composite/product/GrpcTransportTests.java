@@ -0,0 +1,155 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ProductIdsRequest;
+import com.spinic.microservices.api.core.grpc.ProductMessage;
+import com.spinic.microservices.api.core.grpc.ProductServiceGrpc;
+import com.spinic.microservices.api.core.grpc.RecommendationMessage;
+import com.spinic.microservices.api.core.grpc.RecommendationServiceGrpc;
+import com.spinic.microservices.api.core.grpc.ReviewMessage;
+import com.spinic.microservices.api.core.grpc.ReviewServiceGrpc;
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.exceptions.InvalidInputException;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.services.GrpcTransport;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.util.grpc.GrpcErrors;
+import com.spinic.microservices.util.http.RequestDeadline;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the lookups of the integration over gRPC against stub core services on one local gRPC server.
+ */
+class GrpcTransportTests {
+
+    private static final int PRODUCT_ID_NOT_FOUND = 13;
+    private static final int PRODUCT_ID_INVALID = -1;
+    private static final int REVIEWS = 20;
+
+    private static final List<Long> receivedDeadlinesMs = new CopyOnWriteArrayList<>();
+
+    private static Server server;
+    private static GrpcTransport transport;
+    private static ProductCompositeIntegration integration;
+
+    @BeforeAll
+    static void startStubServer() throws IOException {
+        server = ServerBuilder.forPort(0)
+                .addService(new ProductServiceGrpc.ProductServiceImplBase() {
+                    @Override
+                    public void getProduct(ProductIdRequest request, StreamObserver<ProductMessage> responseObserver) {
+                        Deadline deadline = Context.current().getDeadline();
+                        if (deadline != null) {
+                            receivedDeadlinesMs.add(deadline.timeRemaining(TimeUnit.MILLISECONDS));
+                        }
+                        int productId = request.getProductId();
+                        if (productId == PRODUCT_ID_NOT_FOUND) {
+                            responseObserver.onError(GrpcErrors.toStatus(new NotFoundException("No product found for productId: " + productId)));
+                        } else if (productId == PRODUCT_ID_INVALID) {
+                            responseObserver.onError(GrpcErrors.toStatus(new InvalidInputException("Invalid productId: " + productId)));
+                        } else {
+                            responseObserver.onNext(ProductMessage.newBuilder().setProductId(productId).setName("name").setWeight(1).build());
+                            responseObserver.onCompleted();
+                        }
+                    }
+
+                    @Override
+                    public void getProducts(ProductIdsRequest request, StreamObserver<ProductMessage> responseObserver) {
+                        request.getProductIdsList().forEach(productId -> responseObserver.onNext(
+                                ProductMessage.newBuilder().setProductId(productId).setName("name").build()));
+                        responseObserver.onCompleted();
+                    }
+                })
+                .addService(new RecommendationServiceGrpc.RecommendationServiceImplBase() {
+                    @Override
+                    public void getRecommendations(ProductIdRequest request, StreamObserver<RecommendationMessage> responseObserver) {
+                        responseObserver.onNext(RecommendationMessage.newBuilder().setProductId(request.getProductId()).setAuthor("a").build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .addService(new ReviewServiceGrpc.ReviewServiceImplBase() {
+                    @Override
+                    public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+                        IntStream.range(0, REVIEWS).forEach(reviewId -> responseObserver.onNext(
+                                ReviewMessage.newBuilder().setProductId(request.getProductId()).setReviewId(reviewId).build()));
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+
+        transport = new GrpcTransport(true, server.getPort(), server.getPort(), server.getPort(), Duration.ofSeconds(30));
+        // The REST port is never called, the writes are not tested here
+        integration = new ProductCompositeIntegrationBuilder()
+                .callPolicies(ProductCompositeIntegrationBuilder.callPolicies(Duration.ofMillis(200), 100))
+                .grpcTransport(transport)
+                .build();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        transport.destroy();
+        server.shutdownNow();
+    }
+
+    @Test
+    void lookupsGoOverGrpc() {
+        StepVerifier.create(integration.getProduct(1))
+                .expectNextMatches(product -> product.getProductId() == 1 && product.getName().equals("name")
+                        && product.getServiceAddress() == null)
+                .verifyComplete();
+        StepVerifier.create(integration.getProducts(List.of(1, 2, 3)).map(Product::getProductId))
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+        StepVerifier.create(integration.getRecommendations(1))
+                .expectNextMatches(recommendation -> recommendation.getAuthor().equals("a"))
+                .verifyComplete();
+        StepVerifier.create(integration.getReviews(1))
+                .expectNextCount(REVIEWS)
+                .verifyComplete();
+    }
+
+    @Test
+    void statusesAreMappedToTheApiExceptions() {
+        StepVerifier.create(integration.getProduct(PRODUCT_ID_NOT_FOUND))
+                .expectErrorMatches(ex -> ex instanceof NotFoundException
+                        && ex.getMessage().equals("No product found for productId: " + PRODUCT_ID_NOT_FOUND))
+                .verify();
+        StepVerifier.create(integration.getProduct(PRODUCT_ID_INVALID))
+                .expectErrorMatches(ex -> ex instanceof InvalidInputException
+                        && ex.getMessage().equals("Invalid productId: " + PRODUCT_ID_INVALID))
+                .verify();
+    }
+
+    @Test
+    void requestDeadlineBecomesTheCallDeadline() {
+        receivedDeadlinesMs.clear();
+
+        StepVerifier.create(integration.getProduct(1)
+                        .contextWrite(context -> RequestDeadline.after(Duration.ofMillis(500)).addTo(context)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, receivedDeadlinesMs.size());
+        long remaining = receivedDeadlinesMs.get(0);
+        assertTrue(remaining > 0 && remaining <= 500, "Expected the remaining request deadline, was " + remaining + " ms");
+    }
+}
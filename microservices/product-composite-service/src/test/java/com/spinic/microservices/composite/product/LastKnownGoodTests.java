@@ -0,0 +1,195 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.composite.product.services.LastKnownGood;
+import com.spinic.microservices.composite.product.services.MicroBatching;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Runs the composite against stub core services where review-service can be switched to failing, and checks that
+ * the last known good reviews are served and flagged as stale meanwhile, per product and per request.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "app.product-composite.cache.enabled=false",
+        "app.product-composite.last-known-good.revalidate-after=200ms",
+        // The tests fail review-service on purpose, the circuit breaker would cut off the revalidations
+        "app.http-client.circuit-breaker.sliding-window-size=1000",
+        "app.http-client.circuit-breaker.minimum-number-of-calls=1000"})
+class LastKnownGoodTests {
+
+    private static final int PRODUCT_ID_KNOWN = 1;
+    private static final int PRODUCT_ID_UNKNOWN = 2;
+    private static final int PRODUCT_ID_UNKNOWN_IN_BATCH = 3;
+
+    private static final AtomicBoolean reviewsFailing = new AtomicBoolean();
+    private static final AtomicReference<String> reviewAuthor = new AtomicReference<>("a");
+    private static final DisposableServer coreServices = HttpServer.create().host("localhost").port(0).route(routes -> routes
+            .get("/product/{productId}", (req, res) ->
+                    send(res, "{\"productId\":" + req.param("productId") + ",\"name\":\"name\",\"weight\":1}"))
+            .get("/product", (req, res) -> send(res, "[{\"productId\":" + PRODUCT_ID_KNOWN + ",\"name\":\"name\",\"weight\":1},"
+                    + "{\"productId\":" + PRODUCT_ID_UNKNOWN_IN_BATCH + ",\"name\":\"name\",\"weight\":1}]"))
+            .get("/recommendation", (req, res) ->
+                    send(res, "[{\"productId\":1,\"recommendationId\":1,\"author\":\"a\",\"rate\":1,\"content\":\"c\"}]"))
+            .get("/review", (req, res) -> reviewsFailing.get()
+                    ? res.status(INTERNAL_SERVER_ERROR).send()
+                    : send(res, "[{\"productId\":1,\"reviewId\":1,\"author\":\"" + reviewAuthor.get() + "\",\"subject\":\"s\",\"content\":\"c\"}]")))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void coreServiceProperties(DynamicPropertyRegistry registry) {
+        for (String service : List.of("product-service", "recommendation-service", "review-service")) {
+            registry.add("app." + service + ".host", coreServices::host);
+            registry.add("app." + service + ".port", coreServices::port);
+        }
+    }
+
+    private static Mono<Void> send(HttpServerResponse res, String json) {
+        return res.status(OK).header("Content-Type", "application/json").sendString(Mono.just(json)).then();
+    }
+
+    @AfterAll
+    static void stopCoreServices() {
+        coreServices.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        reviewsFailing.set(false);
+        reviewAuthor.set("a");
+    }
+
+    @Test
+    void lastKnownGoodReviewsAreServedWhileReviewServiceFails() {
+        getProduct(PRODUCT_ID_KNOWN)
+                .jsonPath("$.reviews[0].author").isEqualTo("a")
+                .jsonPath("$.stale.length()").isEqualTo(0);
+
+        reviewsFailing.set(true);
+        double served = servedCount();
+
+        getProduct(PRODUCT_ID_KNOWN)
+                .jsonPath("$.reviews[0].author").isEqualTo("a")
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.stale.length()").isEqualTo(1)
+                .jsonPath("$.stale[0]").isEqualTo("reviews");
+        assertEquals(served + 1, servedCount());
+
+        // Without a last known good entry the reviews are left empty and flagged as failed
+        getProduct(PRODUCT_ID_UNKNOWN)
+                .jsonPath("$.reviews.length()").isEqualTo(0)
+                .jsonPath("$.stale.length()").isEqualTo(0)
+                .jsonPath("$.failed[0]").isEqualTo("reviews");
+    }
+
+    @Test
+    void lastKnownGoodReviewsAreFlaggedPerProductInABatch() {
+        getProducts(PRODUCT_ID_KNOWN).jsonPath("$[0].aggregate.reviews[0].author").isEqualTo("a");
+
+        reviewsFailing.set(true);
+        getProducts(PRODUCT_ID_KNOWN, PRODUCT_ID_UNKNOWN_IN_BATCH)
+                .jsonPath("$[0].aggregate.reviews[0].author").isEqualTo("a")
+                .jsonPath("$[0].aggregate.stale[0]").isEqualTo("reviews")
+                .jsonPath("$[1].aggregate.reviews.length()").isEqualTo(0)
+                .jsonPath("$[1].aggregate.stale.length()").isEqualTo(0)
+                .jsonPath("$[1].aggregate.failed[0]").isEqualTo("reviews");
+    }
+
+    @Test
+    void lastKnownGoodReviewsAreRevalidatedInTheBackground() {
+        getProduct(PRODUCT_ID_KNOWN).jsonPath("$.reviews[0].author").isEqualTo("a");
+
+        reviewsFailing.set(true);
+        getProduct(PRODUCT_ID_KNOWN).jsonPath("$.stale[0]").isEqualTo("reviews");
+
+        // The service recovers with new reviews, the revalidation picks them up without a request for the product.
+        // The counter is shared with the other tests, so wait for a revalidation after the recovery.
+        Counter revalidations = meterRegistry.get("composite.last-known-good.revalidations")
+                .tags("downstream", "review-service", "outcome", "success").counter();
+        double revalidationsBefore = revalidations.count();
+        reviewAuthor.set("b");
+        reviewsFailing.set(false);
+        Mono.delay(Duration.ofMillis(100))
+                .repeat(() -> revalidations.count() == revalidationsBefore)
+                .blockLast(Duration.ofSeconds(5));
+
+        reviewsFailing.set(true);
+        getProduct(PRODUCT_ID_KNOWN)
+                .jsonPath("$.reviews[0].author").isEqualTo("b")
+                .jsonPath("$.stale[0]").isEqualTo("reviews");
+    }
+
+    @Test
+    void lastKnownGoodReviewsAreServedWhenAMicroBatchFails() {
+        ProductCompositeIntegration integration = new ProductCompositeIntegrationBuilder()
+                .microBatching(new MicroBatching(new SimpleMeterRegistry(), true, Duration.ofMillis(2), 50))
+                .lastKnownGood(new LastKnownGood(new SimpleMeterRegistry(), true, 1000, Duration.ofMinutes(10), Duration.ofSeconds(5)))
+                .coreServicesPort(coreServices.port())
+                .build();
+        StepVerifier.create(integration.getReviews(PRODUCT_ID_KNOWN).map(Review::getAuthor))
+                .expectNext("a")
+                .verifyComplete();
+
+        // The failed batch reaches the lookup of the product instead of an empty list that would be stored as good
+        reviewsFailing.set(true);
+        StepVerifier.create(integration.getReviews(PRODUCT_ID_KNOWN).map(Review::getAuthor))
+                .expectNext("a")
+                .verifyComplete();
+    }
+
+    private double servedCount() {
+        return meterRegistry.get("composite.last-known-good.served").tag("downstream", "review-service").counter().count();
+    }
+
+    private WebTestClient.BodyContentSpec getProducts(int... productIds) {
+        return client.get()
+                .uri("/product-composite?ids=" + Arrays.stream(productIds).mapToObj(String::valueOf).collect(Collectors.joining(",")))
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody();
+    }
+
+    private WebTestClient.BodyContentSpec getProduct(int productId) {
+        return client.get()
+                .uri("/product-composite/" + productId)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody();
+    }
+}
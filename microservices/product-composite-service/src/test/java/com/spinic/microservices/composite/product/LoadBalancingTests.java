@@ -0,0 +1,127 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.composite.product.services.LoadBalancing;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spreads the product lookups of the integration over several stub instances of the product service on localhost.
+ */
+class LoadBalancingTests {
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final Map<Integer, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> productIdsByServer = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void stopStubServers() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    void roundRobinSpreadsTheCallsEvenly() {
+        List<DisposableServer> instances = List.of(startServer(Duration.ZERO, false), startServer(Duration.ZERO, false), startServer(Duration.ZERO, false));
+        ProductCompositeIntegration integration = createIntegration("round-robin", instances);
+
+        Flux.range(1, 30).concatMap(integration::getProduct).blockLast();
+
+        instances.forEach(server -> assertEquals(10, hits(server)));
+    }
+
+    @Test
+    void consistentHashKeepsEachProductOnOneInstance() {
+        List<DisposableServer> instances = List.of(startServer(Duration.ZERO, false), startServer(Duration.ZERO, false), startServer(Duration.ZERO, false));
+        ProductCompositeIntegration integration = createIntegration("consistent-hash", instances);
+
+        Flux.range(1, 3).concatMap(round -> Flux.range(1, 60).concatMap(integration::getProduct)).blockLast();
+
+        Map<Integer, Integer> serverByProductId = new HashMap<>();
+        productIdsByServer.forEach((port, productIds) -> productIds.forEach(productId ->
+                assertEquals(port, serverByProductId.merge(productId, port, (first, next) -> first.equals(next) ? first : -1),
+                        "Expected productId " + productId + " on one instance only")));
+        assertEquals(60, serverByProductId.size());
+        instances.forEach(server -> assertTrue(hits(server) > 0, "Expected every instance to own some products"));
+    }
+
+    @Test
+    void leastOutstandingAvoidsASlowInstance() {
+        DisposableServer slow = startServer(Duration.ofMillis(200), false);
+        List<DisposableServer> instances = List.of(slow, startServer(Duration.ZERO, false), startServer(Duration.ZERO, false));
+        ProductCompositeIntegration integration = createIntegration("least-outstanding", instances);
+
+        Flux.range(1, 60).flatMap(integration::getProduct, 3).blockLast();
+
+        assertTrue(hits(slow) < 10, "Expected few calls to the slow instance, got " + hits(slow));
+    }
+
+    @Test
+    void failingInstanceIsEjected() {
+        DisposableServer failing = startServer(Duration.ZERO, true);
+        List<DisposableServer> instances = List.of(failing, startServer(Duration.ZERO, false), startServer(Duration.ZERO, false));
+        ProductCompositeIntegration integration = createIntegration("round-robin", instances);
+
+        List<Boolean> answered = Flux.range(1, 30)
+                .concatMap(productId -> integration.getProduct(productId).map(product -> true).onErrorReturn(false))
+                .collectList()
+                .block();
+
+        // Ejected after 3 failures in a row, all later calls go to the other instances
+        assertEquals(3, hits(failing));
+        assertEquals(27, answered.stream().filter(ok -> ok).count());
+        assertTrue(answered.subList(10, 30).stream().allMatch(ok -> ok));
+    }
+
+    private DisposableServer startServer(Duration delay, boolean failing) {
+        AtomicInteger serverHits = new AtomicInteger();
+        Set<Integer> serverProductIds = ConcurrentHashMap.newKeySet();
+        DisposableServer server = HttpServer.create().host("localhost").port(0)
+                .route(routes -> routes.get("/product/{productId}", (req, res) -> {
+                    int productId = Integer.parseInt(req.param("productId"));
+                    serverHits.incrementAndGet();
+                    serverProductIds.add(productId);
+                    if (failing) {
+                        return res.status(INTERNAL_SERVER_ERROR).send();
+                    }
+                    return res.status(OK).header("Content-Type", "application/json")
+                            .sendString(Mono.delay(delay).map(tick -> "{\"productId\":" + productId + ",\"name\":\"name\",\"weight\":1}"));
+                }))
+                .bindNow();
+        servers.add(server);
+        hits.put(server.port(), serverHits);
+        productIdsByServer.put(server.port(), serverProductIds);
+        return server;
+    }
+
+    private int hits(DisposableServer server) {
+        return hits.get(server.port()).get();
+    }
+
+    private ProductCompositeIntegration createIntegration(String policy, List<DisposableServer> instances) {
+        List<String> addresses = instances.stream().map(server -> "localhost:" + server.port()).collect(Collectors.toList());
+        // The host and port of the base URL are replaced by those of the chosen instance
+        return new ProductCompositeIntegrationBuilder()
+                .loadBalancing(new LoadBalancing(new SimpleMeterRegistry(), policy, 3, Duration.ofSeconds(30), addresses, List.of(), List.of()))
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.composite.product.services.MicroBatcher;
+import com.spinic.microservices.composite.product.services.MicroBatching;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatcherTests {
+
+    private static final Duration WINDOW = Duration.ofMillis(50);
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void lookupsWithinTheWindowAreSentAsOneBatch() {
+        MicroBatcher<Integer, String> batcher = createBatcher(keys -> Flux.fromIterable(keys)
+                .filter(key -> key != 3)
+                .flatMap(key -> Flux.just(key + "a", key + "b")));
+
+        List<List<String>> results = Flux.range(1, 5)
+                .flatMap(key -> batcher.get(key))
+                .collectList()
+                .block();
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of(1, 2, 3, 4, 5), batches.get(0));
+        assertEquals(5, results.size());
+        assertTrue(results.contains(List.of("1a", "1b")));
+        assertTrue(results.contains(List.of()), "Expected no values for the key without any");
+        assertEquals(1, registry.find("composite.micro-batch.size").summary().count());
+    }
+
+    @Test
+    void sameKeyIsLookedUpOnce() {
+        MicroBatcher<Integer, String> batcher = createBatcher(keys -> Flux.fromIterable(keys).map(String::valueOf));
+
+        List<List<String>> results = Flux.just(7, 7, 7).flatMap(batcher::get).collectList().block();
+
+        assertEquals(List.of(List.of(7)), batches);
+        assertEquals(List.of(List.of("7"), List.of("7"), List.of("7")), results);
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() {
+        MicroBatcher<Integer, String> batcher = createBatcher(keys -> Flux.fromIterable(keys).map(String::valueOf));
+
+        long start = System.nanoTime();
+        Flux.range(1, MAX_BATCH_SIZE).flatMap(batcher::get).blockLast();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(1, batches.size());
+        assertTrue(elapsedMs < WINDOW.toMillis(), "Expected the full batch to be sent at once, took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void moreKeysThanTheMaxAreSplitIntoSeveralBatches() {
+        MicroBatcher<Integer, String> batcher = createBatcher(keys -> Flux.fromIterable(keys).map(String::valueOf));
+
+        Flux.range(1, MAX_BATCH_SIZE * 2 + 1).flatMap(batcher::get).blockLast();
+
+        assertEquals(3, batches.size());
+        assertEquals(MAX_BATCH_SIZE, batches.get(0).size());
+        assertEquals(1, batches.get(2).size());
+    }
+
+    @Test
+    void errorOfTheBatchCallReachesEveryCaller() {
+        MicroBatcher<Integer, String> batcher = createBatcher(keys -> Flux.error(new IllegalStateException("down")));
+
+        StepVerifier.create(Mono.zip(
+                        batcher.get(1).onErrorResume(ex -> Mono.just(List.of(ex.getMessage()))),
+                        batcher.get(2).onErrorResume(ex -> Mono.just(List.of(ex.getMessage())))))
+                .expectNextMatches(t -> t.getT1().equals(List.of("down")) && t.getT2().equals(List.of("down")))
+                .verifyComplete();
+        assertEquals(1, batches.size());
+    }
+
+    private MicroBatcher<Integer, String> createBatcher(Function<List<Integer>, Flux<String>> call) {
+        MicroBatching microBatching = new MicroBatching(registry, true, WINDOW, MAX_BATCH_SIZE);
+        return microBatching.create("test", keys -> {
+            batches.add(keys);
+            return call.apply(keys);
+        }, value -> Integer.parseInt(value.replaceAll("[^0-9]", "")));
+    }
+}
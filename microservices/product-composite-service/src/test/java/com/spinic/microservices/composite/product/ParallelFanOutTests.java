@@ -0,0 +1,147 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Verifies that the composite calls the three core services concurrently, i.e. that the latency of
+ * getProduct and deleteProduct is close to the slowest downstream call and not to the sum of them.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.product-composite.cache.enabled=false"})
+class ParallelFanOutTests {
+
+    private static final int PRODUCT_ID_OK = 1;
+    private static final int PRODUCT_ID_NOT_FOUND = 2;
+    private static final int PRODUCT_ID_FAILING_REVIEWS = 3;
+
+    private static final long PRODUCT_DELAY_MS = 300;
+    private static final long RECOMMENDATION_DELAY_MS = 400;
+    private static final long REVIEW_DELAY_MS = 500;
+
+    @Autowired
+    private WebTestClient client;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    void setUp() {
+        when(compositeIntegration.getProduct(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address"))
+                        .delayElement(Duration.ofMillis(PRODUCT_DELAY_MS)));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address"))))
+                        .delayElement(Duration.ofMillis(RECOMMENDATION_DELAY_MS)));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock-address"))))
+                        .delayElement(Duration.ofMillis(REVIEW_DELAY_MS)));
+
+        when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
+                .thenReturn(Mono.delay(Duration.ofMillis(PRODUCT_DELAY_MS))
+                        .then(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND))));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_NOT_FOUND)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_NOT_FOUND)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+
+        when(compositeIntegration.getProduct(PRODUCT_ID_FAILING_REVIEWS))
+                .thenReturn(Mono.just(new Product(PRODUCT_ID_FAILING_REVIEWS, "name", 1, "mock-address")));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_FAILING_REVIEWS))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Recommendation(PRODUCT_ID_FAILING_REVIEWS, 1, "author", 1, "content", "mock-address")))));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_FAILING_REVIEWS))
+                .thenReturn(Mono.error(new RuntimeException("review-service is down")));
+
+        when(compositeIntegration.deleteProduct(PRODUCT_ID_OK)).thenReturn(Mono.delay(Duration.ofMillis(PRODUCT_DELAY_MS)).then());
+        when(compositeIntegration.deleteRecommendations(PRODUCT_ID_OK)).thenReturn(Mono.delay(Duration.ofMillis(RECOMMENDATION_DELAY_MS)).then());
+        when(compositeIntegration.deleteReviews(PRODUCT_ID_OK)).thenReturn(Mono.delay(Duration.ofMillis(REVIEW_DELAY_MS)).then());
+    }
+
+    @Test
+    void latencyIsCloseToTheSlowestDownstreamCall() {
+        // Warm up the web stack so the measured call only contains the downstream latency
+        getProduct(PRODUCT_ID_OK);
+
+        long start = System.currentTimeMillis();
+        getProduct(PRODUCT_ID_OK)
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews.length()").isEqualTo(1);
+        long elapsed = System.currentTimeMillis() - start;
+
+        long maxDelay = Math.max(PRODUCT_DELAY_MS, Math.max(RECOMMENDATION_DELAY_MS, REVIEW_DELAY_MS));
+        long sumDelay = PRODUCT_DELAY_MS + RECOMMENDATION_DELAY_MS + REVIEW_DELAY_MS;
+
+        assertTrue(elapsed >= maxDelay, "Expected at least " + maxDelay + " ms, was " + elapsed + " ms");
+        assertTrue(elapsed < sumDelay, "Expected less than " + sumDelay + " ms, was " + elapsed + " ms");
+    }
+
+    @Test
+    void deleteLatencyIsCloseToTheSlowestDownstreamCall() {
+        // Warm up the web stack so the measured call only contains the downstream latency
+        deleteProduct(PRODUCT_ID_OK);
+
+        long start = System.currentTimeMillis();
+        deleteProduct(PRODUCT_ID_OK)
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.successful").isEqualTo(true);
+        long elapsed = System.currentTimeMillis() - start;
+
+        long maxDelay = Math.max(PRODUCT_DELAY_MS, Math.max(RECOMMENDATION_DELAY_MS, REVIEW_DELAY_MS));
+        long sumDelay = PRODUCT_DELAY_MS + RECOMMENDATION_DELAY_MS + REVIEW_DELAY_MS;
+
+        assertTrue(elapsed >= maxDelay, "Expected at least " + maxDelay + " ms, was " + elapsed + " ms");
+        assertTrue(elapsed < sumDelay, "Expected less than " + sumDelay + " ms, was " + elapsed + " ms");
+    }
+
+    @Test
+    void productNotFoundIsStillReportedAs404() {
+        getProduct(PRODUCT_ID_NOT_FOUND)
+                .expectStatus().isEqualTo(NOT_FOUND)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("NOT FOUND: " + PRODUCT_ID_NOT_FOUND);
+    }
+
+    @Test
+    void failingReviewsGivesPartialAggregate() {
+        getProduct(PRODUCT_ID_FAILING_REVIEWS)
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_FAILING_REVIEWS)
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews.length()").isEqualTo(0);
+    }
+
+    private WebTestClient.ResponseSpec getProduct(int productId) {
+        return client.get()
+                .uri("/product-composite/" + productId)
+                .accept(APPLICATION_JSON)
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec deleteProduct(int productId) {
+        return client.delete()
+                .uri("/product-composite/" + productId)
+                .exchange();
+    }
+}
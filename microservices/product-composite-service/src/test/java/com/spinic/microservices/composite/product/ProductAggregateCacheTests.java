@@ -0,0 +1,203 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import com.spinic.microservices.api.composite.product.ProductCompositeService;
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "app.product-composite.cache.max-size=100",
+        "app.product-composite.cache.ttl=10m",
+        // Every miss is expected to call the core services, none joins a call still in flight
+        "app.product-composite.coalescing.enabled=false"})
+class ProductAggregateCacheTests {
+
+    private static final int NUMBER_OF_PRODUCTS = 1000;
+    private static final int NUMBER_OF_READS = 10000;
+
+    @Autowired
+    private ProductCompositeService service;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(compositeIntegration.getProduct(anyInt())).thenAnswer(i -> {
+            downstreamCalls.incrementAndGet();
+            int productId = i.getArgument(0);
+            return Mono.just(new Product(productId, "name " + productId, 1, "mock-address"));
+        });
+        when(compositeIntegration.lookupRecommendations(anyInt())).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.lookupReviews(anyInt())).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.createProduct(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(compositeIntegration.deleteProduct(anyInt())).thenReturn(Mono.empty());
+        when(compositeIntegration.deleteRecommendations(anyInt())).thenReturn(Mono.empty());
+        when(compositeIntegration.deleteReviews(anyInt())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void zipfReadLoadMostlyHitsTheCache() {
+        ZipfGenerator zipf = new ZipfGenerator(NUMBER_OF_PRODUCTS, 1.0, new Random(42));
+        double hitsBefore = cacheCounter("cache.gets", "hit");
+        double missesBefore = cacheCounter("cache.gets", "miss");
+
+        for (int i = 0; i < NUMBER_OF_READS; i++) {
+            int productId = NUMBER_OF_PRODUCTS + zipf.next();
+            service.getProduct(productId).block();
+        }
+
+        // Without the cache every read would cost a downstream call per core service
+        assertTrue(downstreamCalls.get() < NUMBER_OF_READS / 2,
+                "Expected less than " + NUMBER_OF_READS / 2 + " downstream calls, was " + downstreamCalls.get());
+
+        double hits = cacheCounter("cache.gets", "hit") - hitsBefore;
+        double misses = cacheCounter("cache.gets", "miss") - missesBefore;
+        assertEquals(downstreamCalls.get(), (int) misses);
+        assertTrue(hits > misses, "Expected more hits than misses, hits: " + hits + ", misses: " + misses);
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", "product-aggregates").functionCounter().count() > 0);
+    }
+
+    @Test
+    void writesInvalidateTheCachedAggregate() {
+        int productId = 1;
+
+        service.getProduct(productId).block();
+        service.getProduct(productId).block();
+        assertEquals(1, downstreamCalls.get());
+
+        service.deleteProduct(productId).block();
+        service.getProduct(productId).block();
+        assertEquals(2, downstreamCalls.get());
+
+        service.createProduct(new ProductAggregate(productId, "name", 1, null, null, null)).block();
+        ProductAggregate aggregate = service.getProduct(productId).block();
+        assertEquals(3, downstreamCalls.get());
+        assertEquals(productId, aggregate.getProductId());
+    }
+
+    @Test
+    void aggregatesLoadedDuringAWriteAreNotCached() {
+        int productId = 4;
+        Sinks.One<Product> slowProduct = Sinks.one();
+        doAnswer(i -> {
+            downstreamCalls.incrementAndGet();
+            return slowProduct.asMono();
+        }).when(compositeIntegration).getProduct(productId);
+
+        CompletableFuture<ProductAggregate> inFlight = service.getProduct(productId).toFuture();
+        service.deleteProduct(productId).block();
+        slowProduct.tryEmitValue(new Product(productId, "name before the delete", 1, "mock-address"));
+        assertEquals("name before the delete", inFlight.join().getName());
+
+        // The aggregate read before the delete was not put back into the cache
+        service.getProduct(productId).block();
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    @Test
+    void aggregatesWithFailedSectionsAreNotCached() {
+        int productId = 3;
+        when(compositeIntegration.lookupReviews(productId)).thenReturn(Mono.just(ProductItems.failure()));
+
+        ProductAggregate aggregate = service.getProduct(productId).block();
+        assertEquals(List.of(ProductAggregate.REVIEWS), aggregate.getFailed());
+
+        // The next lookup tries review-service again
+        service.getProduct(productId).block();
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    @Test
+    void unknownProductIdsAreRememberedUntilCreated() {
+        int productId = 2;
+        doAnswer(i -> {
+            downstreamCalls.incrementAndGet();
+            return Mono.error(new NotFoundException("No product found for productId: " + productId));
+        }).when(compositeIntegration).getProduct(productId);
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(service.getProduct(productId))
+                    .expectErrorMatches(ex -> ex instanceof NotFoundException
+                            && ex.getMessage().equals("No product found for productId: " + productId))
+                    .verify();
+        }
+        assertEquals(1, downstreamCalls.get());
+
+        // Also for lookups of some sections only
+        StepVerifier.create(service.getProduct(productId, List.of(ProductAggregate.REVIEWS)))
+                .expectError(NotFoundException.class)
+                .verify();
+        assertEquals(1, downstreamCalls.get());
+
+        service.createProduct(new ProductAggregate(productId, "name", 1, null, null, null)).block();
+        StepVerifier.create(service.getProduct(productId)).expectError(NotFoundException.class).verify();
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    private double cacheCounter(String name, String result) {
+        return meterRegistry.get(name).tag("cache", "product-aggregates").tag("result", result).functionCounter().count();
+    }
+
+    /**
+     * Draws ranks 0..n-1 where the probability of rank k is proportional to 1 / (k + 1)^s.
+     */
+    private static class ZipfGenerator {
+        private final double[] cumulative;
+        private final Random random;
+
+        ZipfGenerator(int n, double s, Random random) {
+            this.random = random;
+            this.cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1.0 / Math.pow(k + 1, s);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        int next() {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.spinic.microservices.composite.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spinic.microservices.composite.product.services.DomainSocketTransport;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicies;
+import com.spinic.microservices.composite.product.services.GrpcTransport;
+import com.spinic.microservices.composite.product.services.LastKnownGood;
+import com.spinic.microservices.composite.product.services.LoadBalancing;
+import com.spinic.microservices.composite.product.services.MicroBatching;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Builds a ProductCompositeIntegration for the tests and benchmarks that run it without a Spring context. By default
+ * the core services are called over REST on localhost, with micro-batching, gRPC, domain sockets, load balancing over
+ * several instances and last known good data all turned off. A test only sets what it exercises.
+ */
+public class ProductCompositeIntegrationBuilder {
+
+    private WebClient webClient = WebClient.builder().build();
+    private DownstreamCallPolicies callPolicies = callPolicies(Duration.ofSeconds(2), 1000);
+    private MicroBatching microBatching = new MicroBatching(new SimpleMeterRegistry(), false, Duration.ofMillis(2), 50);
+    private GrpcTransport grpcTransport = new GrpcTransport(false, 0, 0, 0, Duration.ofSeconds(30));
+    private DomainSocketTransport domainSocketTransport = new DomainSocketTransport(false, 500, "", "", "");
+    private LoadBalancing loadBalancing = new LoadBalancing(new SimpleMeterRegistry(), "round-robin", 5, Duration.ofSeconds(30),
+            List.of(), List.of(), List.of());
+    private LastKnownGood lastKnownGood = new LastKnownGood(new SimpleMeterRegistry(), false, 100000, Duration.ofMinutes(10),
+            Duration.ofSeconds(5));
+    private int productServicePort = 1;
+    private int recommendationServicePort = 1;
+    private int reviewServicePort = 1;
+
+    /**
+     * Call policies without hedging, with a timeout of at least minTimeout and at most maxConcurrentCalls calls in
+     * flight per core service.
+     */
+    public static DownstreamCallPolicies callPolicies(Duration minTimeout, int maxConcurrentCalls) {
+        return new DownstreamCallPolicies(new SimpleMeterRegistry(), 1000, 0.99, 2.0, minTimeout, Duration.ofSeconds(5),
+                false, 0.95, Duration.ofMillis(10), 0.1,
+                maxConcurrentCalls, 50, 20, 10, Duration.ofSeconds(10), 3);
+    }
+
+    public ProductCompositeIntegrationBuilder webClient(WebClient webClient) {
+        this.webClient = webClient;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder callPolicies(DownstreamCallPolicies callPolicies) {
+        this.callPolicies = callPolicies;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder microBatching(MicroBatching microBatching) {
+        this.microBatching = microBatching;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder grpcTransport(GrpcTransport grpcTransport) {
+        this.grpcTransport = grpcTransport;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder domainSocketTransport(DomainSocketTransport domainSocketTransport) {
+        this.domainSocketTransport = domainSocketTransport;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder loadBalancing(LoadBalancing loadBalancing) {
+        this.loadBalancing = loadBalancing;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder lastKnownGood(LastKnownGood lastKnownGood) {
+        this.lastKnownGood = lastKnownGood;
+        return this;
+    }
+
+    /**
+     * All three core services answer on the same port.
+     */
+    public ProductCompositeIntegrationBuilder coreServicesPort(int port) {
+        return productServicePort(port).recommendationServicePort(port).reviewServicePort(port);
+    }
+
+    public ProductCompositeIntegrationBuilder productServicePort(int port) {
+        this.productServicePort = port;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder recommendationServicePort(int port) {
+        this.recommendationServicePort = port;
+        return this;
+    }
+
+    public ProductCompositeIntegrationBuilder reviewServicePort(int port) {
+        this.reviewServicePort = port;
+        return this;
+    }
+
+    public ProductCompositeIntegration build() {
+        return new ProductCompositeIntegration(webClient, new ObjectMapper(), callPolicies, microBatching, grpcTransport,
+                domainSocketTransport, loadBalancing, lastKnownGood,
+                "localhost", productServicePort,
+                "localhost", recommendationServicePort,
+                "localhost", reviewServicePort);
+    }
+}
@@ -0,0 +1,113 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.exceptions.InvalidInputException;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.UNPROCESSABLE_ENTITY;
+
+/**
+ * Runs the integration against local stub servers standing in for the three core services.
+ */
+class ProductCompositeIntegrationTests {
+
+    private static final String JSON = "application/json";
+
+    private static DisposableServer productServer;
+    private static DisposableServer recommendationServer;
+    private static DisposableServer reviewServer;
+
+    private static ProductCompositeIntegration integration;
+
+    @BeforeAll
+    static void startStubServers() {
+        productServer = HttpServer.create().port(0).route(routes -> routes
+                .get("/product/1", (req, res) -> res.status(OK).header("Content-Type", JSON)
+                        .sendString(Mono.just("{\"productId\":1,\"name\":\"n\",\"weight\":1,\"serviceAddress\":\"sa\"}")))
+                .get("/product/2", (req, res) -> res.status(NOT_FOUND).header("Content-Type", JSON)
+                        .sendString(Mono.just("{\"path\":\"/product/2\",\"message\":\"No product found for productId: 2\"}")))
+                .get("/product/3", (req, res) -> res.status(UNPROCESSABLE_ENTITY).header("Content-Type", JSON)
+                        .sendString(Mono.just("{\"path\":\"/product/3\",\"message\":\"Invalid productId: 3\"}")))
+                .delete("/product/1", (req, res) -> res.status(OK).send()))
+                .bindNow();
+
+        recommendationServer = HttpServer.create().port(0).route(routes -> routes
+                .get("/recommendation", (req, res) -> res.status(OK).header("Content-Type", JSON)
+                        .sendString(Mono.just("[{\"productId\":1,\"recommendationId\":1,\"author\":\"a\",\"rate\":1,\"content\":\"c\"},"
+                                + "{\"productId\":1,\"recommendationId\":2,\"author\":\"a\",\"rate\":1,\"content\":\"c\"}]"))))
+                .bindNow();
+
+        reviewServer = HttpServer.create().port(0).route(routes -> routes
+                .get("/review", (req, res) -> res.status(INTERNAL_SERVER_ERROR).send()))
+                .bindNow();
+
+        integration = new ProductCompositeIntegrationBuilder()
+                .callPolicies(ProductCompositeIntegrationBuilder.callPolicies(Duration.ofMillis(200), 100))
+                .productServicePort(productServer.port())
+                .recommendationServicePort(recommendationServer.port())
+                .reviewServicePort(reviewServer.port())
+                .build();
+    }
+
+    @AfterAll
+    static void stopStubServers() {
+        productServer.disposeNow();
+        recommendationServer.disposeNow();
+        reviewServer.disposeNow();
+    }
+
+    @Test
+    void getProduct() {
+        StepVerifier.create(integration.getProduct(1).map(Product::getName))
+                .expectNext("n")
+                .verifyComplete();
+    }
+
+    @Test
+    void getProductNotFoundIsMappedToNotFoundException() {
+        StepVerifier.create(integration.getProduct(2))
+                .expectErrorMatches(ex -> ex instanceof NotFoundException
+                        && ex.getMessage().equals("No product found for productId: 2"))
+                .verify();
+    }
+
+    @Test
+    void getProductUnprocessableEntityIsMappedToInvalidInputException() {
+        StepVerifier.create(integration.getProduct(3))
+                .expectErrorMatches(ex -> ex instanceof InvalidInputException
+                        && ex.getMessage().equals("Invalid productId: 3"))
+                .verify();
+    }
+
+    @Test
+    void getRecommendations() {
+        StepVerifier.create(integration.getRecommendations(1))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void failingReviewsGivesNoReviews() {
+        StepVerifier.create(integration.getReviews(1))
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteProduct() {
+        StepVerifier.create(integration.deleteProduct(1))
+                .verifyComplete();
+    }
+}
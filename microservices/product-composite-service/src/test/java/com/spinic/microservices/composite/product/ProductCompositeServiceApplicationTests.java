@@ -9,6 +9,7 @@ import com.spinic.microservices.api.core.review.Review;
 import com.spinic.microservices.api.exceptions.InvalidInputException;
 import com.spinic.microservices.api.exceptions.NotFoundException;
 import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,8 +17,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
@@ -30,6 +41,8 @@ class ProductCompositeServiceApplicationTests {
     private static final int PRODUCT_ID_OK = 1;
     private static final int PRODUCT_ID_NOT_FOUND = 2;
     private static final int PRODUCT_ID_INVALID = 3;
+    private static final int REVIEW_ID_DUPLICATE = 99;
+    private static final int PRODUCT_ID_REVIEWS_DOWN = 4;
 
     @Autowired
     private WebTestClient client;
@@ -39,15 +52,42 @@ class ProductCompositeServiceApplicationTests {
     @BeforeEach
     void setUp() {
         when(compositeIntegration.getProduct(PRODUCT_ID_OK))
-                .thenReturn(new Product(PRODUCT_ID_OK, "name", 1, "mock-address"));
-        when(compositeIntegration.getRecommendations(PRODUCT_ID_OK))
-                .thenReturn(singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address")));
-        when(compositeIntegration.getReviews(PRODUCT_ID_OK))
-                .thenReturn(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mck-address")));
+                .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address")))));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mck-address")))));
         when(compositeIntegration.getProduct(PRODUCT_ID_INVALID))
-                .thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
+                .thenReturn(Mono.error(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID)));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_INVALID)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_INVALID)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
         when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
-                .thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
+                .thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND)));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_NOT_FOUND)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_NOT_FOUND)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+
+        when(compositeIntegration.getProducts(anyList()))
+                .thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+        when(compositeIntegration.lookupRecommendationsForProducts(anyList()))
+                .thenReturn(Mono.just(Map.of(PRODUCT_ID_OK, ProductItems.fresh(List.of(
+                        new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address"),
+                        new Recommendation(PRODUCT_ID_OK, 2, "author", 1, "content", "mock-address"))))));
+        when(compositeIntegration.lookupReviewsForProducts(anyList()))
+                .thenReturn(Mono.just(Map.of(PRODUCT_ID_OK, ProductItems.fresh(List.of(
+                        new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock-address"))))));
+
+        when(compositeIntegration.createProduct(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(compositeIntegration.createRecommendation(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+        when(compositeIntegration.createReview(any())).thenAnswer(i -> {
+            Review review = i.getArgument(0);
+            return review.getReviewId() == REVIEW_ID_DUPLICATE
+                    ? Mono.error(new InvalidInputException("Duplicate key, Product Id: 1, Review Id:" + REVIEW_ID_DUPLICATE))
+                    : Mono.just(review);
+        });
+        when(compositeIntegration.deleteProduct(anyInt())).thenReturn(Mono.empty());
+        when(compositeIntegration.deleteRecommendations(anyInt())).thenReturn(Mono.empty());
+        when(compositeIntegration.deleteReviews(anyInt())).thenReturn(Mono.empty());
+        when(compositeIntegration.deleteReviews(PRODUCT_ID_REVIEWS_DOWN)).thenReturn(Mono.error(new RuntimeException("review-service is down")));
     }
 
     @Test
@@ -69,6 +109,40 @@ class ProductCompositeServiceApplicationTests {
     void contextLoads() {
     }
 
+    @Test
+    void testGetProductsByIds() {
+        client.get()
+                .uri("/product-composite?ids=" + PRODUCT_ID_OK + "," + PRODUCT_ID_NOT_FOUND + "," + PRODUCT_ID_OK)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_OK)
+                .jsonPath("$[0].aggregate.recommendations.length()").isEqualTo(2)
+                .jsonPath("$[0].aggregate.reviews.length()").isEqualTo(1)
+                .jsonPath("$[0].error").doesNotExist()
+                .jsonPath("$[1].productId").isEqualTo(PRODUCT_ID_NOT_FOUND)
+                .jsonPath("$[1].aggregate").doesNotExist()
+                .jsonPath("$[1].error").isEqualTo("No product found for productId: " + PRODUCT_ID_NOT_FOUND);
+
+        // The whole batch costs one call per core service
+        verify(compositeIntegration, times(1)).getProducts(List.of(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND));
+        verify(compositeIntegration, times(1)).lookupRecommendationsForProducts(List.of(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND));
+        verify(compositeIntegration, times(1)).lookupReviewsForProducts(List.of(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND));
+    }
+
+    @Test
+    void getProductsInvalidInput() {
+        client.get()
+                .uri("/product-composite?ids=" + PRODUCT_ID_OK + ",-1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid productId: -1");
+    }
 
     @Test
     void getProductInvalidInput() {
@@ -77,7 +151,6 @@ class ProductCompositeServiceApplicationTests {
                 .jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
     }
 
-
     @Test
     void createCompositeProduct1() {
 
@@ -95,6 +168,21 @@ class ProductCompositeServiceApplicationTests {
         postAndVerifyProduct(compositeProduct, OK);
     }
 
+    @Test
+    void createCompositeProductReportsFailingChildren() {
+        ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+                singletonList(new RecommendationSummary(1, "a", 1, "c")),
+                List.of(new ReviewSummary(1, "a", "s", "c"), new ReviewSummary(REVIEW_ID_DUPLICATE, "a", "s", "c")), null);
+
+        postAndVerifyProduct(compositeProduct, OK)
+                .jsonPath("$.productId").isEqualTo(1)
+                .jsonPath("$.successful").isEqualTo(false)
+                .jsonPath("$.failures.length()").isEqualTo(1)
+                .jsonPath("$.failures[0].service").isEqualTo("review")
+                .jsonPath("$.failures[0].entityId").isEqualTo(REVIEW_ID_DUPLICATE)
+                .jsonPath("$.failures[0].message").isEqualTo("Duplicate key, Product Id: 1, Review Id:" + REVIEW_ID_DUPLICATE);
+    }
+
     @Test
     void deleteCompositeProduct() {
         ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
@@ -103,16 +191,33 @@ class ProductCompositeServiceApplicationTests {
 
         postAndVerifyProduct(compositeProduct, OK);
 
+        deleteAndVerifyProduct(compositeProduct.getProductId(), OK)
+                .jsonPath("$.successful").isEqualTo(true)
+                .jsonPath("$.failures.length()").isEqualTo(0);
         deleteAndVerifyProduct(compositeProduct.getProductId(), OK);
-        deleteAndVerifyProduct(compositeProduct.getProductId(), OK);
     }
 
-    private void postAndVerifyProduct(ProductAggregate compositeProduct, HttpStatus expectedStatus) {
-        client.post()
+    @Test
+    void deleteCompositeProductReportsFailingService() {
+        deleteAndVerifyProduct(PRODUCT_ID_REVIEWS_DOWN, OK)
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_REVIEWS_DOWN)
+                .jsonPath("$.successful").isEqualTo(false)
+                .jsonPath("$.failures.length()").isEqualTo(1)
+                .jsonPath("$.failures[0].service").isEqualTo("review")
+                .jsonPath("$.failures[0].message").isEqualTo("review-service is down");
+
+        // The other deletes are not cancelled by the failing one
+        verify(compositeIntegration, times(1)).deleteProduct(PRODUCT_ID_REVIEWS_DOWN);
+        verify(compositeIntegration, times(1)).deleteRecommendations(PRODUCT_ID_REVIEWS_DOWN);
+    }
+
+    private WebTestClient.BodyContentSpec postAndVerifyProduct(ProductAggregate compositeProduct, HttpStatus expectedStatus) {
+        return client.post()
                 .uri("/product-composite")
                 .body(just(compositeProduct), ProductAggregate.class)
                 .exchange()
-                .expectStatus().isEqualTo(expectedStatus);
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectBody();
     }
 
     private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
@@ -125,10 +230,11 @@ class ProductCompositeServiceApplicationTests {
                 .expectBody();
     }
 
-    private void deleteAndVerifyProduct(int productId, HttpStatus expectedStatus) {
-        client.delete()
+    private WebTestClient.BodyContentSpec deleteAndVerifyProduct(int productId, HttpStatus expectedStatus) {
+        return client.delete()
                 .uri("/product-composite/" + productId)
                 .exchange()
-                .expectStatus().isEqualTo(expectedStatus);
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectBody();
     }
 }
@@ -0,0 +1,148 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import com.spinic.microservices.api.composite.product.ProductCompositeService;
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import com.spinic.microservices.composite.product.services.RequestCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {"app.product-composite.cache.enabled=false"})
+class RequestCoalescingTests {
+
+    private static final int CONCURRENT_REQUESTS = 500;
+    private static final int PRODUCT_ID_OK = 1;
+    private static final int PRODUCT_ID_NOT_FOUND = 2;
+    private static final Duration DOWNSTREAM_DELAY = Duration.ofMillis(300);
+
+    @Autowired
+    private ProductCompositeService service;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    void setUp() {
+        when(compositeIntegration.getProduct(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")).delayElement(DOWNSTREAM_DELAY));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address")))).delayElement(DOWNSTREAM_DELAY));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock-address")))).delayElement(DOWNSTREAM_DELAY));
+
+        when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
+                .thenReturn(Mono.delay(DOWNSTREAM_DELAY).then(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND))));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_NOT_FOUND)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_NOT_FOUND)).thenReturn(Mono.just(ProductItems.fresh(List.of())));
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneDownstreamCallPerService() {
+        List<ProductAggregate> aggregates = Flux.range(0, CONCURRENT_REQUESTS)
+                .flatMap(i -> service.getProduct(PRODUCT_ID_OK).subscribeOn(Schedulers.parallel()), CONCURRENT_REQUESTS)
+                .collectList()
+                .block();
+
+        assertEquals(CONCURRENT_REQUESTS, aggregates.size());
+        aggregates.forEach(a -> {
+            assertEquals(PRODUCT_ID_OK, a.getProductId());
+            assertEquals(1, a.getRecommendations().size());
+            assertEquals(1, a.getReviews().size());
+        });
+
+        verify(compositeIntegration, times(1)).getProduct(PRODUCT_ID_OK);
+        verify(compositeIntegration, times(1)).lookupRecommendations(PRODUCT_ID_OK);
+        verify(compositeIntegration, times(1)).lookupReviews(PRODUCT_ID_OK);
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareTheError() {
+        List<Throwable> errors = Flux.range(0, CONCURRENT_REQUESTS)
+                .flatMap(i -> service.getProduct(PRODUCT_ID_NOT_FOUND)
+                        .map(a -> (Throwable) new AssertionError("Expected an error"))
+                        .onErrorResume(Mono::just)
+                        .subscribeOn(Schedulers.parallel()), CONCURRENT_REQUESTS)
+                .collectList()
+                .block();
+
+        assertEquals(CONCURRENT_REQUESTS, errors.size());
+        errors.forEach(ex -> assertTrue(ex instanceof NotFoundException, "Unexpected error: " + ex));
+
+        verify(compositeIntegration, times(1)).getProduct(PRODUCT_ID_NOT_FOUND);
+    }
+
+    @Test
+    void inFlightEntriesAreRemovedWhenCallsTerminate() {
+        RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        Flux.range(0, CONCURRENT_REQUESTS)
+                .flatMap(i -> coalescer.execute(i % 10, () -> Mono.fromCallable(calls::incrementAndGet).delayElement(DOWNSTREAM_DELAY))
+                        .subscribeOn(Schedulers.parallel()), CONCURRENT_REQUESTS)
+                .blockLast();
+        assertEquals(10, calls.get());
+        assertEquals(0, coalescer.inFlightCount());
+
+        coalescer.execute(1, () -> Mono.error(new IllegalStateException())).onErrorResume(ex -> Mono.empty()).block();
+        assertEquals(0, coalescer.inFlightCount());
+
+        // A cancelled caller does not leave its entry behind either
+        coalescer.execute(1, () -> Mono.just(1).delayElement(DOWNSTREAM_DELAY)).timeout(Duration.ofMillis(10)).onErrorResume(ex -> Mono.empty()).block();
+        Mono.delay(DOWNSTREAM_DELAY.multipliedBy(2)).block();
+        assertEquals(0, coalescer.inFlightCount());
+
+        // Once a call has terminated, the next caller starts a new one
+        coalescer.execute(1, () -> Mono.fromCallable(calls::incrementAndGet)).block();
+        assertEquals(11, calls.get());
+    }
+
+    @Test
+    void callersAfterForgetStartANewCall() {
+        RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>(true);
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<Integer> oldCall = Sinks.one();
+        Sinks.One<Integer> newCall = Sinks.one();
+
+        CompletableFuture<Integer> before = coalescer.execute(1, () -> {
+            calls.incrementAndGet();
+            return oldCall.asMono();
+        }).toFuture();
+        coalescer.forget(1);
+        CompletableFuture<Integer> after = coalescer.execute(1, () -> {
+            calls.incrementAndGet();
+            return newCall.asMono();
+        }).toFuture();
+        assertEquals(2, calls.get());
+
+        // The old call still answers its own callers, and its termination leaves the new entry in place
+        oldCall.tryEmitValue(1);
+        assertEquals(1, before.join());
+        assertEquals(1, coalescer.inFlightCount());
+
+        newCall.tryEmitValue(2);
+        assertEquals(2, after.join());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+}
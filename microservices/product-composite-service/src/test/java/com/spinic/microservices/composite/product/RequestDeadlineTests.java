@@ -0,0 +1,177 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.util.http.RequestDeadline;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Runs the composite against stub core services where the recommendations of {@link #PRODUCT_ID_SLOW_RECOMMENDATIONS}
+ * take {@link #SLOW_LATENCY} and everything else answers at once.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.product-composite.cache.enabled=false"})
+class RequestDeadlineTests {
+
+    private static final int PRODUCT_ID_FAST = 1;
+    private static final int PRODUCT_ID_SLOW_RECOMMENDATIONS = 2;
+
+    private static final Duration SLOW_LATENCY = Duration.ofSeconds(2);
+    private static final long DEADLINE_MS = 300;
+
+    private static final List<String> receivedDeadlines = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger cancelledRecommendationCalls = new AtomicInteger();
+    private static final DisposableServer coreServices = HttpServer.create().host("localhost").port(0).route(routes -> routes
+            .get("/product/{productId}", (req, res) -> {
+                recordDeadline(req.requestHeaders().get(RequestDeadline.HEADER));
+                return send(res, "{\"productId\":" + req.param("productId") + ",\"name\":\"name\",\"weight\":1}");
+            })
+            .get("/recommendation", (req, res) -> {
+                recordDeadline(req.requestHeaders().get(RequestDeadline.HEADER));
+                String recommendations = "[{\"productId\":1,\"recommendationId\":1,\"author\":\"a\",\"rate\":1,\"content\":\"c\"}]";
+                if (req.uri().endsWith("productId=" + PRODUCT_ID_SLOW_RECOMMENDATIONS)) {
+                    return Mono.delay(SLOW_LATENCY)
+                            .then(send(res, recommendations))
+                            .doOnCancel(cancelledRecommendationCalls::incrementAndGet);
+                }
+                return send(res, recommendations);
+            })
+            .get("/review", (req, res) -> {
+                recordDeadline(req.requestHeaders().get(RequestDeadline.HEADER));
+                return send(res, "[{\"productId\":1,\"reviewId\":1,\"author\":\"a\",\"subject\":\"s\",\"content\":\"c\"}]");
+            }))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient client;
+
+    @DynamicPropertySource
+    static void coreServiceProperties(DynamicPropertyRegistry registry) {
+        for (String service : List.of("product-service", "recommendation-service", "review-service")) {
+            registry.add("app." + service + ".host", coreServices::host);
+            registry.add("app." + service + ".port", coreServices::port);
+        }
+    }
+
+    private static void recordDeadline(String deadline) {
+        if (deadline != null) {
+            receivedDeadlines.add(deadline);
+        }
+    }
+
+    private static Mono<Void> send(HttpServerResponse res, String json) {
+        return res.status(OK).header("Content-Type", "application/json").sendString(Mono.just(json)).then();
+    }
+
+    @AfterAll
+    static void stopCoreServices() {
+        coreServices.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Warm up the connections and the web stack, so the deadline only has to cover the downstream latency
+        getProduct("/product-composite/" + PRODUCT_ID_FAST).expectStatus().isOk();
+        receivedDeadlines.clear();
+    }
+
+    @Test
+    void lateSectionsAreFlaggedAsTimedOut() {
+        long start = System.currentTimeMillis();
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_SLOW_RECOMMENDATIONS)
+                .header(RequestDeadline.HEADER, String.valueOf(DEADLINE_MS))
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("name")
+                .jsonPath("$.recommendations.length()").isEqualTo(0)
+                .jsonPath("$.reviews.length()").isEqualTo(1)
+                .jsonPath("$.timedOut.length()").isEqualTo(1)
+                .jsonPath("$.timedOut[0]").isEqualTo("recommendations");
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < SLOW_LATENCY.toMillis() / 2, "Expected an answer at the deadline, was " + elapsed + " ms");
+    }
+
+    @Test
+    void deadlineCanBeSentAsQueryParameter() {
+        getProduct("/product-composite/" + PRODUCT_ID_SLOW_RECOMMENDATIONS + "?deadlineMs=" + DEADLINE_MS)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.timedOut[0]").isEqualTo("recommendations");
+    }
+
+    @Test
+    void sectionsInTimeAreNotFlagged() {
+        getProduct("/product-composite/" + PRODUCT_ID_FAST + "?deadlineMs=" + DEADLINE_MS)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews.length()").isEqualTo(1)
+                .jsonPath("$.timedOut.length()").isEqualTo(0);
+    }
+
+    @Test
+    void lateDownstreamCallsAreCancelled() throws InterruptedException {
+        int cancelledBefore = cancelledRecommendationCalls.get();
+
+        getProduct("/product-composite/" + PRODUCT_ID_SLOW_RECOMMENDATIONS + "?deadlineMs=" + DEADLINE_MS)
+                .expectStatus().isOk();
+
+        // The stub sees the cancellation when the connection is closed, shortly after the deadline
+        long waitUntil = System.currentTimeMillis() + SLOW_LATENCY.toMillis() / 2;
+        while (cancelledRecommendationCalls.get() == cancelledBefore && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertTrue(cancelledRecommendationCalls.get() > cancelledBefore, "Expected the late recommendation call to be cancelled");
+    }
+
+    @Test
+    void remainingBudgetIsPassedOnToTheCoreServices() {
+        getProduct("/product-composite/" + PRODUCT_ID_FAST + "?deadlineMs=" + DEADLINE_MS).expectStatus().isOk();
+
+        assertEquals(3, receivedDeadlines.size(), "Deadlines received: " + receivedDeadlines);
+        receivedDeadlines.forEach(deadline -> {
+            long budget = Long.parseLong(deadline);
+            assertTrue(budget > 0 && budget <= DEADLINE_MS, "Expected a part of the budget, was " + budget);
+        });
+    }
+
+    @Test
+    void noDeadlineIsPassedOnWithoutOne() {
+        getProduct("/product-composite/" + PRODUCT_ID_FAST)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.timedOut.length()").isEqualTo(0);
+
+        assertTrue(receivedDeadlines.isEmpty(), "Deadlines received: " + receivedDeadlines);
+    }
+
+    private WebTestClient.ResponseSpec getProduct(String uri) {
+        return client.get()
+                .uri(uri)
+                .accept(APPLICATION_JSON)
+                .exchange();
+    }
+}
@@ -0,0 +1,154 @@
+package com.spinic.microservices.composite.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static reactor.core.publisher.Mono.just;
+
+/**
+ * Runs the composite against stub core services that only answer in Smile, and checks that external clients
+ * still get JSON.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.product-composite.cache.enabled=false"})
+class SmileCodecTests {
+
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final int PRODUCT_ID_NOT_FOUND = 13;
+
+    private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private static final List<String> receivedAccepts = new CopyOnWriteArrayList<>();
+    private static final List<String> receivedContentTypes = new CopyOnWriteArrayList<>();
+    private static final List<JsonNode> receivedProducts = new CopyOnWriteArrayList<>();
+
+    private static final DisposableServer coreServices = HttpServer.create().host("localhost").port(0).route(routes -> routes
+            .get("/product/{productId}", (req, res) -> {
+                receivedAccepts.add(req.requestHeaders().get("Accept"));
+                int productId = Integer.parseInt(req.param("productId"));
+                if (productId == PRODUCT_ID_NOT_FOUND) {
+                    return send(res.status(NOT_FOUND), Map.of("path", "/product/" + productId,
+                            "message", "No product found for productId: " + productId));
+                }
+                return send(res, Map.of("productId", productId, "name", "name", "weight", 1));
+            })
+            .get("/recommendation", (req, res) -> {
+                receivedAccepts.add(req.requestHeaders().get("Accept"));
+                return send(res, List.of(Map.of("productId", 1, "recommendationId", 1, "author", "a", "rate", 1, "content", "c")));
+            })
+            .get("/review", (req, res) -> {
+                receivedAccepts.add(req.requestHeaders().get("Accept"));
+                return send(res, List.of(Map.of("productId", 1, "reviewId", 1, "author", "a", "subject", "s", "content", "c")));
+            })
+            .post("/product", (req, res) -> req.receive().aggregate().asByteArray().flatMap(body -> {
+                receivedContentTypes.add(req.requestHeaders().get("Content-Type"));
+                try {
+                    JsonNode product = smileMapper.readTree(body);
+                    receivedProducts.add(product);
+                    return send(res, product);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient client;
+
+    @DynamicPropertySource
+    static void coreServiceProperties(DynamicPropertyRegistry registry) {
+        for (String service : List.of("product-service", "recommendation-service", "review-service")) {
+            registry.add("app." + service + ".host", coreServices::host);
+            registry.add("app." + service + ".port", coreServices::port);
+        }
+    }
+
+    private static Mono<Void> send(HttpServerResponse res, Object body) {
+        try {
+            byte[] smile = smileMapper.writeValueAsBytes(body);
+            return res.header("Content-Type", SMILE).sendByteArray(just(smile)).then();
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+    @AfterAll
+    static void stopCoreServices() {
+        coreServices.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        receivedAccepts.clear();
+        receivedContentTypes.clear();
+        receivedProducts.clear();
+    }
+
+    @Test
+    void coreServicesAreAskedForSmileAndClientsGetJson() {
+        client.get()
+                .uri("/product-composite/1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("name")
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews[0].subject").isEqualTo("s");
+
+        assertEquals(3, receivedAccepts.size());
+        assertTrue(receivedAccepts.stream().allMatch(accept -> accept.startsWith(SMILE)), "Accept headers: " + receivedAccepts);
+    }
+
+    @Test
+    void smileErrorIsMappedToTheCompositeError() {
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_NOT_FOUND)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("No product found for productId: " + PRODUCT_ID_NOT_FOUND);
+    }
+
+    @Test
+    void bodiesAreSentAsSmile() {
+        client.post()
+                .uri("/product-composite")
+                .body(just(new ProductAggregate(1, "name", 1, null, null, null)), ProductAggregate.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.productId").isEqualTo(1);
+
+        assertEquals(List.of(SMILE), receivedContentTypes);
+        assertFalse(receivedProducts.isEmpty());
+        assertEquals("name", receivedProducts.get(0).get("name").asText());
+    }
+}
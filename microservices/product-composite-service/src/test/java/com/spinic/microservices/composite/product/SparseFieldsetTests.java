@@ -0,0 +1,133 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Verifies that the include parameter trims the aggregate and that only the core services of the included
+ * sections are called.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.product-composite.cache.enabled=false"})
+class SparseFieldsetTests {
+
+    private static final int PRODUCT_ID = 1;
+
+    @Autowired
+    private WebTestClient client;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    void setUp() {
+        when(compositeIntegration.getProduct(PRODUCT_ID))
+                .thenReturn(Mono.just(new Product(PRODUCT_ID, "name", 1, "mock-address")));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Recommendation(PRODUCT_ID, 1, "author", 1, "content", "mock-address")))));
+        when(compositeIntegration.lookupReviews(PRODUCT_ID))
+                .thenReturn(Mono.just(ProductItems.fresh(List.of(new Review(PRODUCT_ID, 1, "author", "subject", "content", "mock-address")))));
+        clearInvocations(compositeIntegration);
+    }
+
+    @Test
+    void includeReviewsOnly() {
+        double avoidedBefore = callsAvoided("recommendation-service");
+
+        getProduct("?include=reviews")
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("name")
+                .jsonPath("$.recommendations").doesNotExist()
+                .jsonPath("$.reviews.length()").isEqualTo(1);
+
+        verify(compositeIntegration, times(1)).lookupReviews(PRODUCT_ID);
+        verify(compositeIntegration, never()).lookupRecommendations(anyInt());
+        assertEquals(avoidedBefore + 1, callsAvoided("recommendation-service"));
+    }
+
+    @Test
+    void emptyIncludeGivesTheProductOnly() {
+        double recommendationsAvoidedBefore = callsAvoided("recommendation-service");
+        double reviewsAvoidedBefore = callsAvoided("review-service");
+
+        getProduct("?include=")
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("name")
+                .jsonPath("$.weight").isEqualTo(1)
+                .jsonPath("$.recommendations").doesNotExist()
+                .jsonPath("$.reviews").doesNotExist();
+
+        verify(compositeIntegration, times(1)).getProduct(PRODUCT_ID);
+        verify(compositeIntegration, never()).lookupRecommendations(anyInt());
+        verify(compositeIntegration, never()).lookupReviews(anyInt());
+        assertEquals(recommendationsAvoidedBefore + 1, callsAvoided("recommendation-service"));
+        assertEquals(reviewsAvoidedBefore + 1, callsAvoided("review-service"));
+    }
+
+    @Test
+    void noIncludeGivesAllSections() {
+        getProduct("")
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews.length()").isEqualTo(1);
+
+        getProduct("?include=recommendations,reviews")
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews.length()").isEqualTo(1);
+
+        verify(compositeIntegration, times(2)).lookupRecommendations(PRODUCT_ID);
+        verify(compositeIntegration, times(2)).lookupReviews(PRODUCT_ID);
+    }
+
+    @Test
+    void unknownSectionIsRejected() {
+        getProduct("?include=reviews,prices")
+                .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+                .expectBody()
+                .jsonPath("$.message").value((String message) -> assertTrue(message.startsWith("Invalid section to include: prices"), message));
+
+        verify(compositeIntegration, never()).getProduct(anyInt());
+    }
+
+    private double callsAvoided(String downstream) {
+        return meterRegistry.counter("composite.downstream.calls.avoided", "downstream", downstream).count();
+    }
+
+    private WebTestClient.ResponseSpec getProduct(String query) {
+        return client.get()
+                .uri("/product-composite/" + PRODUCT_ID + query)
+                .accept(APPLICATION_JSON)
+                .exchange();
+    }
+}
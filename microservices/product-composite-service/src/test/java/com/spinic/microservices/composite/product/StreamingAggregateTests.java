@@ -0,0 +1,141 @@
+package com.spinic.microservices.composite.product;
+
+import com.spinic.microservices.api.composite.product.ProductAggregateChunk;
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductItems;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
+
+/**
+ * Streams an aggregate from stub core services where the product answers after {@link #PRODUCT_DELAY}, the
+ * recommendations after {@link #RECOMMENDATION_DELAY} and the reviews one by one every {@link #REVIEW_INTERVAL}.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.product-composite.cache.enabled=false"})
+class StreamingAggregateTests {
+
+    private static final int PRODUCT_ID_OK = 1;
+    private static final int PRODUCT_ID_NOT_FOUND = 2;
+    private static final int REVIEWS = 5;
+
+    private static final Duration PRODUCT_DELAY = Duration.ofMillis(50);
+    private static final Duration RECOMMENDATION_DELAY = Duration.ofMillis(300);
+    private static final Duration REVIEW_INTERVAL = Duration.ofMillis(100);
+    private static final Duration STREAM_TIMEOUT = Duration.ofSeconds(10);
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private WebTestClient client;
+    @MockBean
+    private ProductCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    void setUp() {
+        when(compositeIntegration.getProduct(PRODUCT_ID_OK))
+                .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")).delayElement(PRODUCT_DELAY));
+        when(compositeIntegration.lookupRecommendations(PRODUCT_ID_OK)).thenReturn(recommendations().collectList().map(ProductItems::fresh));
+        when(compositeIntegration.streamRecommendations(PRODUCT_ID_OK)).thenReturn(recommendations());
+        when(compositeIntegration.lookupReviews(PRODUCT_ID_OK)).thenReturn(reviews().collectList().map(ProductItems::fresh));
+        when(compositeIntegration.streamReviews(PRODUCT_ID_OK)).thenReturn(reviews());
+
+        when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
+                .thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND)));
+        when(compositeIntegration.streamRecommendations(PRODUCT_ID_NOT_FOUND)).thenReturn(Flux.empty());
+        when(compositeIntegration.streamReviews(PRODUCT_ID_NOT_FOUND)).thenReturn(Flux.empty());
+    }
+
+    private Flux<Recommendation> recommendations() {
+        return Flux.just(
+                        new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock-address"),
+                        new Recommendation(PRODUCT_ID_OK, 2, "author", 1, "content", "mock-address"))
+                .delaySequence(RECOMMENDATION_DELAY);
+    }
+
+    private Flux<Review> reviews() {
+        return Flux.range(1, REVIEWS)
+                .map(reviewId -> new Review(PRODUCT_ID_OK, reviewId, "author", "subject", "content", "mock-address"))
+                .delayElements(REVIEW_INTERVAL);
+    }
+
+    @Test
+    void streamStartsWithTheProductAndEmitsEveryElementAsItArrives() {
+        // Each review is only sent once the client has received the chunk before it, the product chunk for the
+        // first one. So the stream can only complete if every chunk is written as soon as it is available.
+        Sinks.Many<String> received = Sinks.many().replay().all();
+        when(compositeIntegration.streamReviews(PRODUCT_ID_OK)).thenReturn(Flux.range(1, REVIEWS)
+                .concatMap(reviewId -> received.asFlux()
+                        .filter(Predicate.isEqual(reviewId == 1 ? ProductAggregateChunk.PRODUCT : ProductAggregateChunk.REVIEW + (reviewId - 1)))
+                        .next()
+                        .thenReturn(new Review(PRODUCT_ID_OK, reviewId, "author", "subject", "content", "mock-address"))));
+
+        List<ProductAggregateChunk> chunks = WebClient.create("http://localhost:" + port)
+                .get().uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+                .accept(APPLICATION_NDJSON)
+                .retrieve().bodyToFlux(ProductAggregateChunk.class)
+                .doOnNext(chunk -> received.tryEmitNext(ProductAggregateChunk.REVIEW.equals(chunk.getType())
+                        ? ProductAggregateChunk.REVIEW + chunk.getReview().getReviewId()
+                        : chunk.getType()))
+                .collectList()
+                .block(STREAM_TIMEOUT);
+
+        assertEquals(1 + 2 + REVIEWS, chunks.size());
+        assertEquals(ProductAggregateChunk.PRODUCT, chunks.get(0).getType());
+        assertEquals("name", chunks.get(0).getName());
+        assertEquals(2, chunks.stream().filter(c -> ProductAggregateChunk.RECOMMENDATION.equals(c.getType())).count());
+        assertEquals(IntStream.rangeClosed(1, REVIEWS).boxed().toList(), chunks.stream()
+                .filter(c -> ProductAggregateChunk.REVIEW.equals(c.getType()))
+                .map(c -> c.getReview().getReviewId())
+                .toList());
+    }
+
+    @Test
+    void serverSentEvents() {
+        List<ProductAggregateChunk> chunks = client.get()
+                .uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+                .accept(TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TEXT_EVENT_STREAM)
+                .returnResult(ProductAggregateChunk.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(1 + 2 + REVIEWS, chunks.size());
+        assertEquals(ProductAggregateChunk.PRODUCT, chunks.get(0).getType());
+    }
+
+    @Test
+    void streamOfUnknownProductIs404() {
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_NOT_FOUND + "/stream")
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(NOT_FOUND);
+    }
+}
@@ -0,0 +1,93 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.review.Review;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Encode and decode cost and payload size of the review and recommendation lists of one product, as JSON and as
+ * Smile, with the object mappers that the WebFlux codecs use. Each list holds {@link #ENTITIES} entities with
+ * texts of realistic length.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class CodecBenchmark {
+
+    private static final int ENTITIES = 50;
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 20_000;
+
+    private static final String CONTENT = "Arrived on time and works as described. The battery lasts about two days "
+            + "with normal use, which is better than the previous model. The case feels a bit cheap, but for the price "
+            + "it is hard to complain.";
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    void smileIsSmallerAndCheaperThanJson() throws IOException {
+        List<Review> reviews = IntStream.range(0, ENTITIES)
+                .mapToObj(i -> new Review(1, i, "author " + i, "Subject of review " + i, CONTENT, "review-service-7d9f8c-x2k4q/10.0.3.17:8080"))
+                .collect(Collectors.toList());
+        List<Recommendation> recommendations = IntStream.range(0, ENTITIES)
+                .mapToObj(i -> new Recommendation(1, i, "author " + i, i % 5 + 1, CONTENT, "recommendation-service-5b8c7d-p9m2w/10.0.3.21:8080"))
+                .collect(Collectors.toList());
+
+        Result reviewsJson = measure(json, reviews, new TypeReference<List<Review>>() {});
+        Result reviewsSmile = measure(smile, reviews, new TypeReference<List<Review>>() {});
+        Result recommendationsJson = measure(json, recommendations, new TypeReference<List<Recommendation>>() {});
+        Result recommendationsSmile = measure(smile, recommendations, new TypeReference<List<Recommendation>>() {});
+
+        System.out.println(ENTITIES + " entities per list");
+        System.out.println("  payload                 bytes  encode us  decode us");
+        print("reviews, JSON", reviewsJson);
+        print("reviews, Smile", reviewsSmile);
+        print("recommendations, JSON", recommendationsJson);
+        print("recommendations, Smile", recommendationsSmile);
+
+        assertTrue(reviewsSmile.bytes < reviewsJson.bytes, "Expected a smaller Smile payload for reviews");
+        assertTrue(recommendationsSmile.bytes < recommendationsJson.bytes, "Expected a smaller Smile payload for recommendations");
+    }
+
+    private <T> Result measure(ObjectMapper mapper, List<T> entities, TypeReference<List<T>> type) throws IOException {
+        byte[] encoded = mapper.writeValueAsBytes(entities);
+        assertEquals(entities.size(), mapper.readValue(encoded, type).size());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(entities), type);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encoded = mapper.writeValueAsBytes(entities);
+        }
+        long encodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(encoded, type);
+        }
+        long decodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        return new Result(encoded.length, encodeNanos / 1000.0, decodeNanos / 1000.0);
+    }
+
+    private void print(String payload, Result result) {
+        System.out.printf("  %-22s  %5d  %9.1f  %9.1f%n", payload, result.bytes, result.encodeMicros, result.decodeMicros);
+    }
+
+    private record Result(int bytes, double encodeMicros, double decodeMicros) {
+    }
+}
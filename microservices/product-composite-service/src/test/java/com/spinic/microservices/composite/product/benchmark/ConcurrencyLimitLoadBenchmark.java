@@ -0,0 +1,106 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import com.spinic.microservices.composite.product.ProductCompositeIntegrationBuilder;
+import com.spinic.microservices.composite.product.services.ConcurrencyLimitFilter;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicies;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Closed-loop load test of the concurrency limit. Clients call a simulated composite whose downstream services
+ * handle {@link #CAPACITY} concurrent requests in {@link #BASE_LATENCY}, more concurrent requests queue up and
+ * take proportionally longer. The calls to them pass a {@link DownstreamCallPolicy}, whose latency drives the limit.
+ * Goodput counts the responses within {@link #SLO}, shed requests are retried after
+ * {@link #CLIENT_BACKOFF}.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class ConcurrencyLimitLoadBenchmark {
+
+    private static final int CAPACITY = 10;
+    private static final Duration BASE_LATENCY = Duration.ofMillis(20);
+    private static final Duration SLO = Duration.ofMillis(200);
+    private static final Duration CLIENT_BACKOFF = Duration.ofMillis(50);
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+    private static final int[] CLIENTS = {10, 40, 160, 640};
+
+    @Test
+    void goodputStaysFlatPastSaturation() {
+        // Warm up
+        goodputPerSecond(false, CLIENTS[0]);
+
+        Map<Integer, Long> withoutLimit = new LinkedHashMap<>();
+        Map<Integer, Long> withLimit = new LinkedHashMap<>();
+        for (int clients : CLIENTS) {
+            withoutLimit.put(clients, goodputPerSecond(false, clients));
+            withLimit.put(clients, goodputPerSecond(true, clients));
+        }
+
+        System.out.println("Goodput (responses within " + SLO.toMillis() + " ms per second), capacity: "
+                + CAPACITY * 1000 / BASE_LATENCY.toMillis() + " per second");
+        System.out.println("  clients  without limit  with limit");
+        for (int clients : CLIENTS) {
+            System.out.printf("  %7d  %13d  %10d%n", clients, withoutLimit.get(clients), withLimit.get(clients));
+        }
+
+        long peak = withLimit.get(CLIENTS[0]);
+        long overloaded = withLimit.get(CLIENTS[CLIENTS.length - 1]);
+        assertTrue(overloaded > peak * 0.7, "Expected goodput to stay flat with the limit, was " + overloaded + " vs " + peak);
+        assertTrue(withoutLimit.get(CLIENTS[CLIENTS.length - 1]) < peak * 0.3, "Expected goodput to collapse without the limit");
+    }
+
+    private long goodputPerSecond(boolean limitEnabled, int clients) {
+        DownstreamCallPolicies callPolicies = ProductCompositeIntegrationBuilder.callPolicies(Duration.ofSeconds(5), 1000);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), callPolicies, limitEnabled,
+                20, 4, 1000, 1.5, Duration.ofSeconds(1));
+        WebFilterChain downstream = simulatedDownstream(callPolicies.create("simulated"));
+        AtomicInteger goodput = new AtomicInteger();
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+
+        Flux.range(0, clients)
+                .flatMap(client -> Mono.defer(() -> call(filter, downstream, goodput))
+                        .repeat(() -> System.nanoTime() < deadline), clients)
+                .blockLast();
+
+        return goodput.get() * 1000L / RUN_TIME.toMillis();
+    }
+
+    private Mono<Void> call(ConcurrencyLimitFilter filter, WebFilterChain downstream, AtomicInteger goodput) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/product-composite/1"));
+        long start = System.nanoTime();
+        return filter.filter(exchange, downstream)
+                .then(Mono.defer(() -> {
+                    if (SERVICE_UNAVAILABLE.equals(exchange.getResponse().getStatusCode())) {
+                        return Mono.delay(CLIENT_BACKOFF).then();
+                    }
+                    if (System.nanoTime() - start <= SLO.toNanos()) {
+                        goodput.incrementAndGet();
+                    }
+                    return Mono.empty();
+                }));
+    }
+
+    private WebFilterChain simulatedDownstream(DownstreamCallPolicy policy) {
+        AtomicInteger active = new AtomicInteger();
+        return exchange -> policy.idempotentCall(Mono.defer(() -> {
+            double load = Math.max(1.0, (double) active.incrementAndGet() / CAPACITY);
+            return Mono.delay(Duration.ofNanos((long) (BASE_LATENCY.toNanos() * load)))
+                    .doFinally(signal -> active.decrementAndGet());
+        })).then();
+    }
+}
@@ -0,0 +1,85 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import com.spinic.microservices.api.composite.product.CompositeOperationResult;
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import com.spinic.microservices.api.composite.product.RecommendationSummary;
+import com.spinic.microservices.api.composite.product.ReviewSummary;
+import com.spinic.microservices.composite.product.services.ProductAggregateCache;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductCompositeServiceImpl;
+import com.spinic.microservices.util.http.ServiceUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures createProduct latency for an aggregate with many children against a stub integration where every
+ * downstream POST takes a fixed time. Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class CreateProductBenchmark {
+
+    private static final Duration POST_LATENCY = Duration.ofMillis(10);
+    private static final int RECOMMENDATIONS = 100;
+    private static final int REVIEWS = 200;
+
+    @Test
+    void createLatencyScalesWithTheConcurrencyLimit() {
+        ProductCompositeIntegration integration = mock(ProductCompositeIntegration.class);
+        when(integration.createProduct(any())).thenAnswer(i -> Mono.just(i.getArgument(0)).delayElement(POST_LATENCY));
+        when(integration.createRecommendation(any())).thenAnswer(i -> Mono.just(i.getArgument(0)).delayElement(POST_LATENCY));
+        when(integration.createReview(any())).thenAnswer(i -> Mono.just(i.getArgument(0)).delayElement(POST_LATENCY));
+
+        ProductAggregate aggregate = largeAggregate();
+
+        Map<Integer, Long> latencies = new LinkedHashMap<>();
+        for (int concurrency : new int[]{1, 4, 16, 64}) {
+            ProductCompositeServiceImpl service = createService(integration, concurrency);
+
+            // Warm up
+            service.createProduct(aggregate).block();
+
+            long start = System.nanoTime();
+            CompositeOperationResult result = service.createProduct(aggregate).block();
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(result.isSuccessful());
+            latencies.put(concurrency, elapsedMs);
+        }
+
+        System.out.println("createProduct with " + (RECOMMENDATIONS + REVIEWS) + " children, " + POST_LATENCY.toMillis() + " ms per POST");
+        latencies.forEach((concurrency, ms) -> System.out.printf("  concurrency %3d: %6d ms%n", concurrency, ms));
+
+        // Sequential creation costs about one POST latency per child, concurrent creation about children / limit
+        assertTrue(latencies.get(1) > latencies.get(4) * 2);
+        assertTrue(latencies.get(4) > latencies.get(16) * 2);
+    }
+
+    private static ProductCompositeServiceImpl createService(ProductCompositeIntegration integration, int createConcurrency) {
+        ProductAggregateCache cache = new ProductAggregateCache(new SimpleMeterRegistry(), false, 1, Duration.ofSeconds(1), 1, Duration.ZERO);
+        return new ProductCompositeServiceImpl(new ServiceUtil("0"), integration, cache, new SimpleMeterRegistry(), false, 100, createConcurrency);
+    }
+
+    private static ProductAggregate largeAggregate() {
+        List<RecommendationSummary> recommendations = IntStream.rangeClosed(1, RECOMMENDATIONS)
+                .mapToObj(i -> new RecommendationSummary(i, "a", 1, "c"))
+                .collect(Collectors.toList());
+        List<ReviewSummary> reviews = IntStream.rangeClosed(1, REVIEWS)
+                .mapToObj(i -> new ReviewSummary(i, "a", "s", "c"))
+                .collect(Collectors.toList());
+        return new ProductAggregate(1, "name", 1, recommendations, reviews, null);
+    }
+}
@@ -0,0 +1,161 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.spinic.microservices.composite.product.ProductCompositeIntegrationBuilder;
+import com.spinic.microservices.composite.product.services.DomainSocketTransport;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.netty.channel.unix.DomainSocketAddress;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRoutes;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop load of the three lookups of a composite, product, recommendations and reviews, against stub core
+ * services on the same host that answer at once. Compares HTTP/1.1 over TCP, HTTP/2 without TLS (h2c) over TCP and
+ * HTTP/1.1 over a Unix domain socket.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class DomainSocketBenchmark {
+
+    private static final int ITEMS = 10;
+    private static final int CLIENTS = 64;
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+
+    @TempDir
+    static Path socketDir;
+
+    private static DisposableServer tcpServer;
+    private static DisposableServer socketServer;
+
+    @BeforeAll
+    static void startStubServers() {
+        // Without a Spring context everything logs at debug level, which would dominate the calls
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        tcpServer = HttpServer.create().host("localhost").port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(stubRoutes())
+                .bindNow();
+        socketServer = HttpServer.create()
+                .bindAddress(() -> new DomainSocketAddress(socketPath()))
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(stubRoutes())
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopStubServers() {
+        tcpServer.disposeNow();
+        socketServer.disposeNow();
+    }
+
+    private static String socketPath() {
+        return socketDir.resolve("core.sock").toString();
+    }
+
+    private static Consumer<HttpServerRoutes> stubRoutes() {
+        String recommendations = IntStream.range(0, ITEMS)
+                .mapToObj(id -> "{\"productId\":1,\"recommendationId\":" + id + ",\"author\":\"author\",\"rate\":1,\"content\":\"content\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+        String reviews = IntStream.range(0, ITEMS)
+                .mapToObj(id -> "{\"productId\":1,\"reviewId\":" + id + ",\"author\":\"author\",\"subject\":\"subject\",\"content\":\"content\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+        return routes -> routes
+                .get("/product/{productId}", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just("{\"productId\":" + req.param("productId") + ",\"name\":\"name\",\"weight\":1}")))
+                .get("/recommendation", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just(recommendations)))
+                .get("/review", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just(reviews)));
+    }
+
+    @Test
+    void domainSocketComparedToTcp() {
+        // Warm up
+        run(HttpProtocol.HTTP11, false);
+        run(HttpProtocol.H2C, false);
+        run(HttpProtocol.HTTP11, true);
+
+        Result http11 = run(HttpProtocol.HTTP11, false);
+        Result h2c = run(HttpProtocol.H2C, false);
+        Result socket = run(HttpProtocol.HTTP11, true);
+
+        System.out.println("getProduct, getRecommendations and getReviews (" + ITEMS + " items each) with " + CLIENTS + " concurrent clients");
+        System.out.println("  transport       composites/s  p50 ms  p99 ms");
+        System.out.printf("  %-14s  %12d  %6.2f  %6.2f%n", "HTTP/1.1 TCP", http11.compositesPerSecond, http11.p50Ms, http11.p99Ms);
+        System.out.printf("  %-14s  %12d  %6.2f  %6.2f%n", "h2c TCP", h2c.compositesPerSecond, h2c.p50Ms, h2c.p99Ms);
+        System.out.printf("  %-14s  %12d  %6.2f  %6.2f%n", "HTTP/1.1 UDS", socket.compositesPerSecond, socket.p50Ms, socket.p99Ms);
+
+        assertTrue(http11.compositesPerSecond > 0 && h2c.compositesPerSecond > 0 && socket.compositesPerSecond > 0,
+                "Expected all transports to answer");
+    }
+
+    private Result run(HttpProtocol protocol, boolean overSocket) {
+        ConnectionProvider connectionProvider = ConnectionProvider.create("benchmark", 500);
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider).protocol(protocol)))
+                .build();
+        String socketPath = overSocket ? socketPath() : "";
+        ProductCompositeIntegration integration = new ProductCompositeIntegrationBuilder()
+                .webClient(webClient)
+                .domainSocketTransport(new DomainSocketTransport(protocol == HttpProtocol.H2C, 500, socketPath, socketPath, socketPath))
+                .coreServicesPort(tcpServer.port())
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+        try {
+            Flux.range(0, CLIENTS)
+                    .flatMap(client -> Mono.defer(() -> {
+                                long start = System.nanoTime();
+                                int productId = ThreadLocalRandom.current().nextInt(1, 100_000);
+                                return Mono.zip(integration.getProduct(productId),
+                                                integration.getRecommendations(productId).collectList(),
+                                                integration.getReviews(productId).collectList())
+                                        .doOnNext(composite -> latencies.add(System.nanoTime() - start));
+                            })
+                            .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                    .blockLast();
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(
+                sorted.size() * 1000L / RUN_TIME.toMillis(),
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6);
+    }
+
+    private record Result(long compositesPerSecond, double p50Ms, double p99Ms) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ProductMessage;
+import com.spinic.microservices.api.core.grpc.ProductServiceGrpc;
+import com.spinic.microservices.api.core.grpc.ReviewMessage;
+import com.spinic.microservices.api.core.grpc.ReviewServiceGrpc;
+import com.spinic.microservices.composite.product.ProductCompositeIntegrationBuilder;
+import com.spinic.microservices.composite.product.services.GrpcTransport;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop load of product and review lookups, over REST and over gRPC, against stub core services on localhost
+ * that answer at once with a product and {@link #REVIEWS} reviews. Compares throughput and latency of the two
+ * transports, including the encoding of the stubs.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class GrpcTransportBenchmark {
+
+    private static final int REVIEWS = 10;
+    private static final int CLIENTS = 64;
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+
+    private static DisposableServer restServer;
+    private static Server grpcServer;
+
+    @BeforeAll
+    static void startStubServers() throws IOException {
+        // Without a Spring context everything logs at debug level, which would dominate the calls
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        String reviews = IntStream.range(0, REVIEWS)
+                .mapToObj(reviewId -> "{\"productId\":1,\"reviewId\":" + reviewId + ",\"author\":\"author\",\"subject\":\"subject\",\"content\":\"content\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+        restServer = HttpServer.create().host("localhost").port(0).route(routes -> routes
+                .get("/product/{productId}", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just("{\"productId\":" + req.param("productId") + ",\"name\":\"name\",\"weight\":1}")))
+                .get("/review", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                        .sendString(Mono.just(reviews))))
+                .bindNow();
+
+        grpcServer = ServerBuilder.forPort(0)
+                .addService(new ProductServiceGrpc.ProductServiceImplBase() {
+                    @Override
+                    public void getProduct(ProductIdRequest request, StreamObserver<ProductMessage> responseObserver) {
+                        responseObserver.onNext(ProductMessage.newBuilder().setProductId(request.getProductId()).setName("name").setWeight(1).build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .addService(new ReviewServiceGrpc.ReviewServiceImplBase() {
+                    @Override
+                    public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+                        IntStream.range(0, REVIEWS).forEach(reviewId -> responseObserver.onNext(ReviewMessage.newBuilder()
+                                .setProductId(1).setReviewId(reviewId).setAuthor("author").setSubject("subject").setContent("content").build()));
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+    }
+
+    @AfterAll
+    static void stopStubServers() {
+        restServer.disposeNow();
+        grpcServer.shutdownNow();
+    }
+
+    @Test
+    void grpcComparedToRest() {
+        // Warm up
+        run(false);
+        run(true);
+
+        Result rest = run(false);
+        Result grpc = run(true);
+
+        System.out.println("getProduct and getReviews (" + REVIEWS + " reviews) with " + CLIENTS + " concurrent clients");
+        System.out.println("  transport  lookups/s  p50 ms  p99 ms");
+        System.out.printf("  %9s  %9d  %6.2f  %6.2f%n", "REST", rest.lookupsPerSecond, rest.p50Ms, rest.p99Ms);
+        System.out.printf("  %9s  %9d  %6.2f  %6.2f%n", "gRPC", grpc.lookupsPerSecond, grpc.p50Ms, grpc.p99Ms);
+
+        assertTrue(rest.lookupsPerSecond > 0 && grpc.lookupsPerSecond > 0, "Expected both transports to answer");
+    }
+
+    private Result run(boolean grpc) {
+        GrpcTransport transport = new GrpcTransport(grpc, grpcServer.getPort(), grpcServer.getPort(), grpcServer.getPort(), Duration.ofSeconds(30));
+        ProductCompositeIntegration integration = new ProductCompositeIntegrationBuilder()
+                .grpcTransport(transport)
+                .coreServicesPort(restServer.port())
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+        try {
+            Flux.range(0, CLIENTS)
+                    .flatMap(client -> Mono.defer(() -> {
+                                long start = System.nanoTime();
+                                int productId = ThreadLocalRandom.current().nextInt(1, 100_000);
+                                return Mono.zip(integration.getProduct(productId), integration.getReviews(productId).collectList())
+                                        .doOnNext(lookup -> latencies.add(System.nanoTime() - start));
+                            })
+                            .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                    .blockLast();
+        } finally {
+            transport.destroy();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(
+                sorted.size() * 1000L / RUN_TIME.toMillis(),
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6);
+    }
+
+    private record Result(long lookupsPerSecond, double p50Ms, double p99Ms) {
+    }
+}
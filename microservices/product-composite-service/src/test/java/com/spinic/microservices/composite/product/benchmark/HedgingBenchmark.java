@@ -0,0 +1,113 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.spinic.microservices.composite.product.ProductCompositeIntegrationBuilder;
+import com.spinic.microservices.composite.product.services.DownstreamCallPolicies;
+import com.spinic.microservices.composite.product.services.MicroBatching;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * p99 latency of product lookups with and without hedging, against a stub product service with bimodal latency:
+ * most calls answer at once and every {@link #SLOW_EVERY}th call takes {@link #SLOW_LATENCY}.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class HedgingBenchmark {
+
+    private static final int SLOW_EVERY = 25;
+    private static final Duration SLOW_LATENCY = Duration.ofMillis(300);
+    private static final int CALLS = 400;
+    private static final int LATENCY_WINDOW = 200;
+    private static final int PRODUCT_ID_FAST = 1;
+    private static final int PRODUCT_ID_BIMODAL = 2;
+
+    private static final AtomicInteger bimodalRequests = new AtomicInteger();
+    private static DisposableServer productServer;
+
+    @BeforeAll
+    static void startStubServer() {
+        // Without a Spring context everything logs at debug level, which would dominate the calls
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        productServer = HttpServer.create().host("localhost").port(0).route(routes -> routes
+                        .get("/product/{productId}", (req, res) -> {
+                            int productId = Integer.parseInt(req.param("productId"));
+                            return productId == PRODUCT_ID_BIMODAL && bimodalRequests.incrementAndGet() % SLOW_EVERY == 0
+                                    ? Mono.delay(SLOW_LATENCY).then(sendProduct(res, productId))
+                                    : sendProduct(res, productId);
+                        }))
+                .bindNow();
+    }
+
+    private static Mono<Void> sendProduct(HttpServerResponse res, int productId) {
+        return res.status(OK).header("Content-Type", "application/json")
+                .sendString(Mono.just("{\"productId\":" + productId + ",\"name\":\"n\",\"weight\":1}"))
+                .then();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        productServer.disposeNow();
+    }
+
+    @Test
+    void hedgingCutsTheTailLatency() {
+        long p99WithoutHedging = p99(createIntegration(new SimpleMeterRegistry(), false));
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        long p99WithHedging = p99(createIntegration(registry, true));
+        double hedges = registry.get("composite.downstream.hedges").tag("downstream", "product-service").tag("outcome", "sent").counter().count();
+
+        System.out.println("getProduct with every " + SLOW_EVERY + "th call taking " + SLOW_LATENCY.toMillis() + " ms, " + CALLS + " calls");
+        System.out.println("  hedging   p99 ms  hedges sent");
+        System.out.printf("  %-8s  %6d  %11s%n", "off", p99WithoutHedging, "-");
+        System.out.printf("  %-8s  %6d  %11d%n", "p95", p99WithHedging, (int) hedges);
+
+        assertTrue(p99WithHedging < p99WithoutHedging, "Expected hedging to hide the slow calls");
+    }
+
+    private long p99(ProductCompositeIntegration integration) {
+        // Warm up connections and JIT, the window forgets these calls before the measured ones are done
+        Flux.range(0, LATENCY_WINDOW).flatMap(i -> integration.getProduct(PRODUCT_ID_FAST), 4).blockLast();
+
+        List<Long> latencies = Flux.range(0, CALLS)
+                .flatMap(i -> Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return integration.getProduct(PRODUCT_ID_BIMODAL).map(p -> (System.nanoTime() - start) / 1_000_000);
+                }), 4)
+                .collectSortedList()
+                .block();
+        return latencies.get((int) Math.ceil(0.99 * latencies.size()) - 1);
+    }
+
+    private ProductCompositeIntegration createIntegration(MeterRegistry registry, boolean hedging) {
+        DownstreamCallPolicies callPolicies = new DownstreamCallPolicies(registry, LATENCY_WINDOW, 0.99, 2.0,
+                Duration.ofMillis(500), Duration.ofSeconds(5), hedging, 0.95, Duration.ofMillis(10), 0.1,
+                100, 50, 20, 10, Duration.ofSeconds(30), 3);
+        return new ProductCompositeIntegrationBuilder()
+                .callPolicies(callPolicies)
+                .microBatching(new MicroBatching(registry, false, Duration.ofMillis(2), 50))
+                .coreServicesPort(productServer.port())
+                .build();
+    }
+}
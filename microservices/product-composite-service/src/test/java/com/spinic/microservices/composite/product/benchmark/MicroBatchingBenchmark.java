@@ -0,0 +1,143 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.spinic.microservices.composite.product.ProductCompositeIntegrationBuilder;
+import com.spinic.microservices.composite.product.services.MicroBatching;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop load of concurrent getProduct lookups for random productIds against a stub product-service that
+ * answers every request, single or multi-id, after {@link #SERVICE_LATENCY}. Compares the downstream request rate
+ * and the lookup latency without micro-batching and with several windows.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class MicroBatchingBenchmark {
+
+    private static final Duration SERVICE_LATENCY = Duration.ofMillis(5);
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+    private static final int CLIENTS = 64;
+    private static final int MAX_BATCH_SIZE = 50;
+    private static final Duration[] WINDOWS = {Duration.ofMillis(1), Duration.ofMillis(2), Duration.ofMillis(5)};
+
+    private static final AtomicInteger downstreamRequests = new AtomicInteger();
+    private static DisposableServer productServer;
+
+    @BeforeAll
+    static void startStubServer() {
+        // Without a Spring context everything logs at debug level, which would dominate the unbatched calls
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        productServer = HttpServer.create().host("localhost").port(0).route(routes -> routes
+                .get("/product/{productId}", (req, res) -> {
+                    downstreamRequests.incrementAndGet();
+                    return Mono.delay(SERVICE_LATENCY).then(send(res, product(Integer.parseInt(req.param("productId")))));
+                })
+                .get("/product", (req, res) -> {
+                    downstreamRequests.incrementAndGet();
+                    List<String> productIds = new QueryStringDecoder(req.uri()).parameters().getOrDefault("productIds", List.of());
+                    String products = productIds.stream()
+                            .flatMap(ids -> List.of(ids.split(",")).stream())
+                            .map(productId -> product(Integer.parseInt(productId)))
+                            .collect(Collectors.joining(",", "[", "]"));
+                    return Mono.delay(SERVICE_LATENCY).then(send(res, products));
+                }))
+                .bindNow();
+    }
+
+    private static String product(int productId) {
+        return "{\"productId\":" + productId + ",\"name\":\"n\",\"weight\":1}";
+    }
+
+    private static Mono<Void> send(HttpServerResponse res, String json) {
+        return res.status(OK).header("Content-Type", "application/json").sendString(Mono.just(json)).then();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        productServer.disposeNow();
+    }
+
+    @Test
+    void batchingTradesLatencyForFewerDownstreamRequests() {
+        // Warm up
+        run(null);
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        results.put("off", run(null));
+        for (Duration window : WINDOWS) {
+            results.put(window.toMillis() + " ms", run(window));
+        }
+
+        System.out.println("getProduct with " + CLIENTS + " concurrent clients, " + SERVICE_LATENCY.toMillis() + " ms per downstream request");
+        System.out.println("  window  lookups/s  downstream requests/s  keys/request  p50 ms  p99 ms");
+        results.forEach((window, result) -> System.out.printf("  %6s  %9d  %21d  %12.1f  %6.1f  %6.1f%n",
+                window, result.lookupsPerSecond, result.requestsPerSecond,
+                (double) result.lookupsPerSecond / result.requestsPerSecond, result.p50Ms, result.p99Ms));
+
+        Result off = results.get("off");
+        Result twoMs = results.get("2 ms");
+        assertTrue(twoMs.requestsPerSecond * 4 < twoMs.lookupsPerSecond,
+                "Expected at least 4 lookups per downstream request with a 2 ms window");
+        assertTrue(twoMs.p50Ms < off.p50Ms + 2 * 2 + 5, "Expected at most about one window of added latency");
+    }
+
+    private Result run(Duration window) {
+        MicroBatching microBatching = new MicroBatching(new SimpleMeterRegistry(), window != null,
+                window != null ? window : Duration.ofMillis(2), MAX_BATCH_SIZE);
+        ProductCompositeIntegration integration = new ProductCompositeIntegrationBuilder()
+                .microBatching(microBatching)
+                .coreServicesPort(productServer.port())
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        downstreamRequests.set(0);
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+
+        Flux.range(0, CLIENTS)
+                .flatMap(client -> Mono.defer(() -> {
+                            long start = System.nanoTime();
+                            return integration.getProduct(ThreadLocalRandom.current().nextInt(1, 100_000))
+                                    .doOnNext(product -> latencies.add(System.nanoTime() - start));
+                        })
+                        .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                .blockLast();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(
+                sorted.size() * 1000L / RUN_TIME.toMillis(),
+                downstreamRequests.get() * 1000L / RUN_TIME.toMillis(),
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6);
+    }
+
+    private record Result(long lookupsPerSecond, long requestsPerSecond, double p50Ms, double p99Ms) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import com.spinic.microservices.composite.product.ProductCompositeIntegrationBuilder;
+import com.spinic.microservices.composite.product.services.ProductAggregateCache;
+import com.spinic.microservices.composite.product.services.ProductCompositeIntegration;
+import com.spinic.microservices.composite.product.services.ProductCompositeServiceImpl;
+import com.spinic.microservices.util.http.ServiceUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop load of composite lookups of unknown productIds, as from a crawler, against a stub product service that
+ * answers 404. Compares a stub that pays for a database query per lookup, one that answers at once as the productId
+ * filter of the product service does, and the latter with the not-found cache of the composite in front.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class NotFoundBenchmark {
+
+    private static final int UNKNOWN_PRODUCTS = 100;
+    private static final int CLIENTS = 64;
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+    private static final Duration QUERY_TIME = Duration.ofMillis(2);
+
+    private static volatile Duration lookupTime = Duration.ZERO;
+    private static final AtomicLong productLookups = new AtomicLong();
+    private static DisposableServer coreServices;
+
+    @BeforeAll
+    static void startStubServer() {
+        // Without a Spring context everything logs at debug level, which would dominate the calls
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        coreServices = HttpServer.create().host("localhost").port(0).route(routes -> routes
+                        .get("/product/{productId}", (req, res) -> {
+                            productLookups.incrementAndGet();
+                            String productId = req.param("productId");
+                            Mono<String> body = Mono.just("{\"path\":\"/product/" + productId + "\",\"message\":\"No product found for productId: " + productId + "\"}");
+                            return res.status(NOT_FOUND).header("Content-Type", "application/json")
+                                    .sendString(lookupTime.isZero() ? body : body.delayElement(lookupTime));
+                        })
+                        .get("/recommendation", (req, res) -> res.status(OK).header("Content-Type", "application/json").sendString(Mono.just("[]")))
+                        .get("/review", (req, res) -> res.status(OK).header("Content-Type", "application/json").sendString(Mono.just("[]"))))
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        coreServices.disposeNow();
+    }
+
+    @Test
+    void notFoundThroughput() {
+        // Warm up
+        run(QUERY_TIME, false);
+        run(Duration.ZERO, true);
+
+        Result query = run(QUERY_TIME, false);
+        Result filter = run(Duration.ZERO, false);
+        Result cached = run(Duration.ZERO, true);
+
+        System.out.println("getProduct of " + UNKNOWN_PRODUCTS + " unknown productIds with " + CLIENTS + " concurrent clients");
+        System.out.println("  product service                        404s/s  p50 ms  p99 ms  product lookups");
+        System.out.printf("  %-36s  %6d  %6.2f  %6.2f  %15d%n", "queries (" + QUERY_TIME.toMillis() + " ms)", query.notFoundPerSecond, query.p50Ms, query.p99Ms, query.productLookups);
+        System.out.printf("  %-36s  %6d  %6.2f  %6.2f  %15d%n", "productId filter", filter.notFoundPerSecond, filter.p50Ms, filter.p99Ms, filter.productLookups);
+        System.out.printf("  %-36s  %6d  %6.2f  %6.2f  %15d%n", "productId filter + not-found cache", cached.notFoundPerSecond, cached.p50Ms, cached.p99Ms, cached.productLookups);
+
+        assertTrue(cached.notFoundPerSecond > query.notFoundPerSecond, "Expected the not-found cache to answer more 404s");
+        assertTrue(cached.productLookups <= UNKNOWN_PRODUCTS * 2L, "Expected about one lookup per unknown productId and TTL");
+    }
+
+    private Result run(Duration productLookupTime, boolean notFoundCache) {
+        lookupTime = productLookupTime;
+        productLookups.set(0);
+
+        ConnectionProvider connectionProvider = ConnectionProvider.create("benchmark", 500);
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        ProductCompositeIntegration integration = new ProductCompositeIntegrationBuilder()
+                .webClient(webClient)
+                .coreServicesPort(coreServices.port())
+                .build();
+        ProductAggregateCache cache = new ProductAggregateCache(new SimpleMeterRegistry(), notFoundCache, 10000, Duration.ofSeconds(30),
+                100000, notFoundCache ? Duration.ofSeconds(5) : Duration.ZERO);
+        ProductCompositeServiceImpl service = new ProductCompositeServiceImpl(new ServiceUtil("0"), integration, cache,
+                new SimpleMeterRegistry(), true, 100, 16);
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+        try {
+            Flux.range(0, CLIENTS)
+                    .flatMap(client -> Mono.defer(() -> {
+                                long start = System.nanoTime();
+                                int productId = ThreadLocalRandom.current().nextInt(1, UNKNOWN_PRODUCTS + 1);
+                                return service.getProduct(productId)
+                                        .then(Mono.just(false))
+                                        .onErrorResume(NotFoundException.class, ex -> Mono.just(true))
+                                        .doOnNext(notFound -> {
+                                            if (notFound) {
+                                                latencies.add(System.nanoTime() - start);
+                                            }
+                                        });
+                            })
+                            .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                    .blockLast();
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(
+                sorted.size() * 1000L / RUN_TIME.toMillis(),
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6,
+                productLookups.get());
+    }
+
+    private record Result(long notFoundPerSecond, double p50Ms, double p99Ms, long productLookups) {
+    }
+}
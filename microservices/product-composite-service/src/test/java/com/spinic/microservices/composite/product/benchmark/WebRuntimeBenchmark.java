@@ -0,0 +1,104 @@
+package com.spinic.microservices.composite.product.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.spinic.microservices.api.composite.product.ProductAggregate;
+import com.spinic.microservices.composite.product.ProductCompositeServiceApplication;
+import com.spinic.microservices.util.http.WebRuntimeLoad;
+import com.spinic.microservices.util.http.WebRuntimeLoad.Result;
+import com.spinic.microservices.util.http.WebRuntimeLoad.WebRuntime;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.spinic.microservices.util.http.WebRuntimeLoad.CLIENTS;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+
+/**
+ * Closed-loop load of getProduct over REST against the composite in each web runtime, see WebRuntimeLoad. The core
+ * services are a stub that answers after a delay, the cache, request coalescing and the concurrency limit of the
+ * composite are turned off so every request calls them. The calls go through WebClient in every web runtime, so
+ * Spring MVC serves the aggregates asynchronously too and no request thread blocks on the core services.
+ * Run with "./gradlew :microservices:product-composite-service:benchmark".
+ */
+@Tag("benchmark")
+class WebRuntimeBenchmark {
+
+    private static final int PRODUCTS = 100;
+    private static final Duration CORE_SERVICE_TIME = Duration.ofMillis(5);
+
+    private static LoopResources coreServiceLoops;
+    private static DisposableServer coreServices;
+
+    @BeforeAll
+    static void startStubServer() {
+        // Without a Spring context everything logs at debug level, which would dominate the calls
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        // Not on the global event loops, each Spring context disposes them when it is closed
+        coreServiceLoops = LoopResources.create("core-services");
+        coreServices = HttpServer.create().runOn(coreServiceLoops).host("localhost").port(0).route(routes -> routes
+                        .get("/product/{productId}", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"productId\":" + req.param("productId") + ",\"name\":\"Name\",\"weight\":1}")
+                                        .delayElement(CORE_SERVICE_TIME)))
+                        .get("/recommendation", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                                .sendString(Mono.just("[{\"productId\":1,\"recommendationId\":1,\"author\":\"a\",\"rate\":1,\"content\":\"c\"}]")
+                                        .delayElement(CORE_SERVICE_TIME)))
+                        .get("/review", (req, res) -> res.status(OK).header("Content-Type", "application/json")
+                                .sendString(Mono.just("[{\"productId\":1,\"reviewId\":1,\"author\":\"a\",\"subject\":\"s\",\"content\":\"c\"}]")
+                                        .delayElement(CORE_SERVICE_TIME))))
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        coreServices.disposeNow();
+        coreServiceLoops.disposeLater().block();
+    }
+
+    @Test
+    void webRuntimeThroughput() {
+        WebRuntimeLoad.runInEachWebRuntime(
+                "getProduct, core services answer in " + CORE_SERVICE_TIME.toMillis() + " ms, with " + CLIENTS + " concurrent clients", this::run,
+                "The core service calls are reactive in every web runtime, mvc does not block on them");
+    }
+
+    private Result run(WebRuntime runtime) {
+        ConnectionProvider connectionProvider = ConnectionProvider.create("benchmark", CLIENTS);
+        try (ConfigurableApplicationContext context = WebRuntimeLoad.start(ProductCompositeServiceApplication.class, runtime,
+                "--app.product-composite.cache.enabled=false",
+                "--app.product-composite.coalescing.enabled=false",
+                "--app.product-composite.last-known-good.enabled=false",
+                "--app.product-composite.concurrency-limit.enabled=false",
+                "--app.product-service.port=" + coreServices.port(),
+                "--app.recommendation-service.port=" + coreServices.port(),
+                "--app.review-service.port=" + coreServices.port())) {
+            WebClient client = WebClient.builder()
+                    .baseUrl(WebRuntimeLoad.baseUrl(context))
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                    .build();
+
+            // A complete composite is counted
+            return WebRuntimeLoad.measure(runtime, () -> client.get()
+                    .uri("/product-composite/" + ThreadLocalRandom.current().nextInt(1, PRODUCTS + 1))
+                    .retrieve().bodyToMono(ProductAggregate.class)
+                    .map(aggregate -> aggregate.getRecommendations().size() == 1 && aggregate.getReviews().size() == 1));
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+    }
+}
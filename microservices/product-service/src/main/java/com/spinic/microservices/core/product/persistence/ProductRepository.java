@@ -1,11 +1,21 @@
 package com.spinic.microservices.core.product.persistence;
 
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.Optional;
+import java.util.Collection;
 
-public interface ProductRepository extends PagingAndSortingRepository<ProductEntity, String>, CrudRepository<ProductEntity, String> {
+public interface ProductRepository extends ReactiveMongoRepository<ProductEntity, String> {
 
-    Optional<ProductEntity> findByProductId(int productId);
+    Mono<ProductEntity> findByProductId(int productId);
+
+    Flux<ProductEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    /**
+     * Streams all products with only their productId read.
+     */
+    @Query(value = "{}", fields = "{ 'productId' : 1 }")
+    Flux<ProductEntity> streamAllProductIds();
 }
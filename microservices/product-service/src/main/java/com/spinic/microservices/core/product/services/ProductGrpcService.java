@@ -0,0 +1,37 @@
+package com.spinic.microservices.core.product.services;
+
+import com.spinic.microservices.api.core.grpc.CoreMessages;
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ProductIdsRequest;
+import com.spinic.microservices.api.core.grpc.ProductMessage;
+import com.spinic.microservices.api.core.grpc.ProductServiceGrpc;
+import com.spinic.microservices.api.core.product.ProductService;
+import com.spinic.microservices.util.grpc.GrpcStreams;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves the product lookups over gRPC, see GrpcServer. The products of a multi-id lookup are streamed as they are
+ * read from the database, as fast as the client reads them, see GrpcStreams.
+ */
+@Component
+public class ProductGrpcService extends ProductServiceGrpc.ProductServiceImplBase {
+
+    private final ProductService productService;
+
+    @Autowired
+    public ProductGrpcService(ProductService productService) {
+        this.productService = productService;
+    }
+
+    @Override
+    public void getProduct(ProductIdRequest request, StreamObserver<ProductMessage> responseObserver) {
+        GrpcStreams.stream(productService.getProduct(request.getProductId()), CoreMessages::toMessage, responseObserver);
+    }
+
+    @Override
+    public void getProducts(ProductIdsRequest request, StreamObserver<ProductMessage> responseObserver) {
+        GrpcStreams.stream(productService.getProducts(request.getProductIdsList()), CoreMessages::toMessage, responseObserver);
+    }
+}
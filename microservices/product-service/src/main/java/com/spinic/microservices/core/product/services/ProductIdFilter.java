@@ -0,0 +1,207 @@
+package com.spinic.microservices.core.product.services;
+
+import com.spinic.microservices.core.product.persistence.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+
+/**
+ * Bloom filter over the productIds in the database, so lookups of unknown productIds, e.g. from crawlers, are
+ * answered without a query. A miss is definite, a hit may be false at the configured rate and is looked up.
+ * <p>
+ * The filter is built from the database at startup, in the background, and productIds are added on create. Deleted
+ * productIds are not removed, they stay false positives until the next rebuild drops them. Removing them would clear
+ * bits shared with other productIds and turn their hits into false misses.
+ * Until the first build is done every productId might be present. Writes that bypass this instance, i.e. those of the
+ * other replicas or a restore of the database, are only seen at the next rebuild, so a new product can be answered as
+ * not found for up to the rebuild interval. Hence the filter is disabled by default, enable it for a single instance
+ * or where that delay is acceptable.
+ * <p>
+ * Metric: "product.id-filter.rejections", lookups answered as not found without a query.
+ */
+@Component
+public class ProductIdFilter implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductIdFilter.class);
+
+    private final ProductRepository repository;
+    private final boolean enabled;
+    private final int expectedProducts;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+    private final Counter rejections;
+
+    // Null until the first rebuild is done, then replaced only by a rebuild
+    private volatile Bits live;
+    // Also receives adds while a rebuild reads the database, so none of them is lost on the swap
+    private Bits building;
+    private volatile Disposable rebuilds;
+
+    @Autowired
+    public ProductIdFilter(
+            ProductRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${app.product-id-filter.enabled:false}") boolean enabled,
+            @Value("${app.product-id-filter.expected-products:1000000}") int expectedProducts,
+            @Value("${app.product-id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.product-id-filter.rebuild-interval:1m}") Duration rebuildInterval) {
+
+        LOG.info("ProductId filter enabled: {}, expected products: {}, false positive rate: {}, rebuilt every: {}",
+                enabled, expectedProducts, falsePositiveRate, rebuildInterval);
+
+        this.repository = repository;
+        this.enabled = enabled;
+        this.expectedProducts = expectedProducts;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+        this.rejections = meterRegistry.counter("product.id-filter.rejections");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAfterStartup() {
+        if (!enabled) {
+            return;
+        }
+        // A failed rebuild keeps the previous filter, a rebuild that is still running skips the next tick
+        rebuilds = Flux.interval(Duration.ZERO, rebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild().onErrorResume(ex -> {
+                    LOG.warn("Could not rebuild the productId filter, keeps the previous one: {}", ex.getMessage());
+                    return Mono.empty();
+                }), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuilds != null) {
+            rebuilds.dispose();
+        }
+    }
+
+    /**
+     * Returns false if the productId is definitely not in the database.
+     */
+    public boolean mightContain(int productId) {
+        Bits bits = live;
+        if (bits == null || bits.mightContain(productId)) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    /**
+     * Adds the productId, call before the product is saved so it can be found as soon as it is.
+     */
+    public synchronized void add(int productId) {
+        if (live != null) {
+            live.add(productId);
+        }
+        if (building != null) {
+            building.add(productId);
+        }
+    }
+
+    /**
+     * Reads all productIds from the database into a new filter and swaps it in.
+     */
+    public Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Bits bits = new Bits(expectedProducts, falsePositiveRate);
+            synchronized (this) {
+                building = bits;
+            }
+
+            return repository.streamAllProductIds()
+                    .doOnNext(product -> {
+                        synchronized (this) {
+                            bits.add(product.getProductId());
+                        }
+                    })
+                    .count()
+                    .doOnNext(count -> {
+                        synchronized (this) {
+                            live = bits;
+                        }
+                        LOG.info("Built the productId filter from {} products in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+                    })
+                    .doFinally(signal -> {
+                        synchronized (this) {
+                            building = null;
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * One bit per slot, k slots per productId by double hashing.
+     */
+    static class Bits {
+
+        private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+        private final long[] words;
+        private final long slots;
+        private final int hashes;
+
+        Bits(int expectedProducts, double falsePositiveRate) {
+            long wanted = (long) Math.ceil(-expectedProducts * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new long[(int) Math.max(1, Math.min((wanted + 63) / 64, Integer.MAX_VALUE - 8))];
+            this.slots = (long) words.length * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) slots / Math.max(1, expectedProducts) * Math.log(2)));
+        }
+
+        boolean mightContain(int productId) {
+            long hash = mix(productId);
+            for (int i = 0; i < hashes; i++) {
+                long slot = slot(hash, i);
+                if (((long) WORD.getAcquire(words, (int) (slot >>> 6)) & (1L << slot)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Callers synchronize the writes
+        void add(int productId) {
+            long hash = mix(productId);
+            for (int i = 0; i < hashes; i++) {
+                long slot = slot(hash, i);
+                int word = (int) (slot >>> 6);
+                WORD.setRelease(words, word, words[word] | (1L << slot));
+            }
+        }
+
+        private long slot(long hash, int i) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            return Math.floorMod(h1 + (long) i * h2, slots);
+        }
+        // The murmur3 64 bit finalizer
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
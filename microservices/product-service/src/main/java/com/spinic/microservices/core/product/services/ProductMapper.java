@@ -6,6 +6,8 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface ProductMapper {
 
@@ -18,4 +20,6 @@ public interface ProductMapper {
             @Mapping(target = "id", ignore = true), @Mapping(target = "version", ignore = true)
     })
     ProductEntity apiToEntity(Product api);
+
+    List<Product> entityListToApiList(List<ProductEntity> entity);
 }
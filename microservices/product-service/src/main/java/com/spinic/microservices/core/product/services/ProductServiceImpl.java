@@ -1,6 +1,5 @@
 package com.spinic.microservices.core.product.services;
 
-import com.mongodb.DuplicateKeyException;
 import com.spinic.microservices.api.core.product.Product;
 import com.spinic.microservices.api.core.product.ProductService;
 import com.spinic.microservices.api.exceptions.InvalidInputException;
@@ -11,7 +10,17 @@ import com.spinic.microservices.util.http.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 @RestController
 public class ProductServiceImpl implements ProductService {
@@ -21,48 +30,79 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository repository;
     private final ProductMapper mapper;
+    private final ProductIdFilter productIdFilter;
 
     @Autowired
-    public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+    public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ProductIdFilter productIdFilter, ServiceUtil serviceUtil) {
         this.serviceUtil = serviceUtil;
         this.mapper = mapper;
         this.repository = repository;
+        this.productIdFilter = productIdFilter;
     }
 
     @Override
-    public Product getProduct(int productId) {
+    public Mono<Product> getProduct(int productId) {
 
         if (productId < 1) {
-            throw new InvalidInputException("Invalid productId: " + productId);
+            return Mono.error(new InvalidInputException("Invalid productId: " + productId));
         }
 
-        ProductEntity entity = repository.findByProductId(productId)
-                .orElseThrow(() -> new NotFoundException("No product found for productId: " + productId));
-
-        Product response = mapper.entityToApi(entity);
-        response.setServiceAddress(serviceUtil.getServiceAddress());
-
-        LOGGER.debug("getProduct: found productId: {}", response.getProductId());
+        if (!productIdFilter.mightContain(productId)) {
+            return Mono.error(new NotFoundException("No product found for productId: " + productId));
+        }
 
-        return response;
+        return repository.findByProductId(productId)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("No product found for productId: " + productId)))
+                .map(this::toApi)
+                .doOnNext(response -> LOGGER.debug("getProduct: found productId: {}", response.getProductId()));
     }
 
-    public Product createProduct(Product body) {
-        try {
-            ProductEntity entity = mapper.apiToEntity(body);
-            ProductEntity newEntity = repository.save(entity);
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
 
-            LOGGER.debug("createProduct: entity created for productId: {}", body.getProductId());
-            return mapper.entityToApi(newEntity);
+        Optional<Integer> invalid = productIds.stream().filter(id -> id < 1).findFirst();
+        if (invalid.isPresent()) {
+            return Flux.error(new InvalidInputException("Invalid productId: " + invalid.get()));
+        }
 
-        } catch (DuplicateKeyException dke) {
-            throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId());
+        Set<Integer> candidates = productIds.stream().filter(productIdFilter::mightContain).collect(Collectors.toSet());
+        if (candidates.isEmpty()) {
+            return Flux.empty();
         }
+
+        return countOnComplete(repository.findByProductIdIn(candidates).map(this::toApi),
+                size -> LOGGER.debug("getProducts: found {} of {} products", size, productIds.size()));
+    }
+
+    @Override
+    public Mono<Product> createProduct(Product body) {
+
+        // Added on subscribe, before the save, so the product can be found as soon as it is saved
+        return Mono.fromRunnable(() -> productIdFilter.add(body.getProductId()))
+                .then(repository.save(mapper.apiToEntity(body)))
+                .onErrorMap(DuplicateKeyException.class, ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
+                .doOnNext(entity -> LOGGER.debug("createProduct: entity created for productId: {}", body.getProductId()))
+                .map(mapper::entityToApi);
     }
 
-    public void deleteProduct(int productId) {
+    @Override
+    public Mono<Void> deleteProduct(int productId) {
         LOGGER.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
-        repository.findByProductId(productId).ifPresent(e -> repository.delete(e));
+        return repository.findByProductId(productId)
+                .flatMap(repository::delete);
     }
-}
 
+    private Product toApi(ProductEntity entity) {
+        Product product = mapper.entityToApi(entity);
+        product.setServiceAddress(serviceUtil.getServiceAddress());
+        return product;
+    }
+
+    // Counts the products as they pass, so they are not collected for the log
+    private static Flux<Product> countOnComplete(Flux<Product> products, IntConsumer onComplete) {
+        return Flux.defer(() -> {
+            AtomicInteger size = new AtomicInteger();
+            return products.doOnNext(product -> size.incrementAndGet()).doOnComplete(() -> onComplete.accept(size.get()));
+        });
+    }
+}
@@ -6,6 +6,9 @@ import com.spinic.microservices.core.product.services.ProductMapper;
 import org.junit.jupiter.api.Test;
 import org.mapstruct.factory.Mappers;
 
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MapperTests {
@@ -31,4 +34,18 @@ public class MapperTests {
         assertEquals(api.getWeight(), api2.getWeight());
         assertNull(api2.getServiceAddress());
     }
+
+    @Test
+    void mapperListTests() {
+        assertNotNull(mapper);
+
+        ProductEntity entity = new ProductEntity(1, "n", 1);
+        List<Product> apiList = mapper.entityListToApiList(Collections.singletonList(entity));
+
+        assertEquals(1, apiList.size());
+        assertEquals(entity.getProductId(), apiList.get(0).getProductId());
+        assertEquals(entity.getName(), apiList.get(0).getName());
+        assertEquals(entity.getWeight(), apiList.get(0).getWeight());
+        assertNull(apiList.get(0).getServiceAddress());
+    }
 }
@@ -0,0 +1,69 @@
+package com.spinic.microservices.core.product;
+
+import com.spinic.microservices.api.core.product.Product;
+import com.spinic.microservices.core.product.persistence.ProductRepository;
+import com.spinic.microservices.util.reactor.BlockingCalls;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.assertNoBlockingCalls;
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.count;
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.statuses;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Concurrent creates, lookups and deletes over REST while BlockHound watches the non-blocking threads, e.g. the
+ * reactor-http event loops. Blocking calls on them are recorded by {@link BlockingCalls}, and none is expected.
+ * Debug logging is turned off, a console appender writes synchronously.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"logging.level.com.spinic=INFO"})
+class NonBlockingLoadTests extends MongoDbTestBase {
+
+    private static final int PRODUCTS = 500;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProductRepository repository;
+
+    private WebClient client;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll().block();
+        client = WebClient.create("http://localhost:" + port);
+        BlockingCalls.clear();
+    }
+
+    @Test
+    void eventLoopsAreNeverBlocked() {
+        List<HttpStatusCode> created = statuses(1, PRODUCTS, productId -> client.post().uri("/product")
+                .bodyValue(new Product(productId, "Name " + productId, productId, "SA")));
+        assertTrue(created.stream().allMatch(HttpStatusCode::is2xxSuccessful), "Expected all creates to succeed");
+
+        // Known and unknown productIds, single and multi-id lookups
+        List<HttpStatusCode> found = statuses(1, PRODUCTS * 2, productId -> client.get().uri("/product/" + productId));
+        assertEquals(PRODUCTS, found.stream().filter(HttpStatusCode::is2xxSuccessful).count());
+        assertEquals(PRODUCTS, found.stream().filter(status -> status.value() == 404).count());
+
+        long listed = count(1, PRODUCTS / 10, i -> client.get().uri("/product?productIds={ids}", (i * 10 - 9) + "," + (i * 10) + "," + (PRODUCTS + i))
+                .retrieve().bodyToFlux(Product.class));
+        assertEquals(PRODUCTS / 10 * 2, listed);
+
+        List<HttpStatusCode> deleted = statuses(1, PRODUCTS, productId -> client.delete().uri("/product/" + productId));
+        assertTrue(deleted.stream().allMatch(HttpStatusCode::is2xxSuccessful), "Expected all deletes to succeed");
+        assertEquals(0L, repository.count().block());
+
+        assertNoBlockingCalls();
+    }
+}
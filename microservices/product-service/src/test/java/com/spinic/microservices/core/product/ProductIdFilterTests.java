@@ -0,0 +1,63 @@
+package com.spinic.microservices.core.product;
+
+import com.spinic.microservices.core.product.persistence.ProductEntity;
+import com.spinic.microservices.core.product.persistence.ProductRepository;
+import com.spinic.microservices.core.product.services.ProductIdFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProductIdFilterTests {
+
+    private final ProductRepository repository = mock(ProductRepository.class);
+    private final ProductIdFilter filter = new ProductIdFilter(repository, new SimpleMeterRegistry(), true, 1000, 0.01, Duration.ofMinutes(1));
+
+    @Test
+    void everyProductIdMightBePresentUntilBuilt() {
+        assertTrue(filter.mightContain(1));
+        assertTrue(filter.mightContain(2));
+    }
+
+    @Test
+    void unknownProductIdsAreRejected() {
+        buildFrom(1, 1000);
+
+        assertTrue(IntStream.rangeClosed(1, 1000).allMatch(filter::mightContain));
+        long falsePositives = IntStream.rangeClosed(1001, 11000).filter(filter::mightContain).count();
+        assertTrue(falsePositives < 300, "Expected about 1% false positives, got " + falsePositives + " of 10000");
+    }
+
+    @Test
+    void createdProductIdsAreTracked() {
+        buildFrom(1, 10);
+        assertFalse(filter.mightContain(100));
+
+        filter.add(100);
+        assertTrue(filter.mightContain(100));
+        assertTrue(IntStream.rangeClosed(1, 10).allMatch(filter::mightContain));
+    }
+
+    @Test
+    void productIdsWrittenElsewhereAreSeenAfterARebuild() {
+        buildFrom(1, 10);
+        assertFalse(filter.mightContain(100));
+
+        // E.g. created by another replica, and one deleted. Deleted productIds are only dropped by a rebuild.
+        buildFrom(2, 100);
+        assertTrue(filter.mightContain(100));
+        assertFalse(filter.mightContain(1));
+    }
+
+    private void buildFrom(int first, int last) {
+        when(repository.streamAllProductIds()).thenReturn(
+                Flux.range(first, last - first + 1).map(productId -> new ProductEntity(productId, "n", 1)));
+        filter.rebuild().block();
+    }
+}
@@ -3,13 +3,14 @@ package com.spinic.microservices.core.product;
 import com.spinic.microservices.api.core.product.Product;
 import com.spinic.microservices.core.product.persistence.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -28,7 +29,7 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 
     @BeforeEach
     void setUpDb() {
-        repository.deleteAll();
+        repository.deleteAll().block();
     }
 
     @Test
@@ -36,18 +37,54 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
         int productId = 1;
 
         postAndVerifyProduct(productId, OK);
-        assertTrue(repository.findByProductId(productId).isPresent());
+        assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
         getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
     }
 
-    @Disabled("Due to the error related to MongoDb")
+    @Test
+    void testGetProductsByIds() {
+        postAndVerifyProduct(1, OK);
+        postAndVerifyProduct(2, OK);
+        postAndVerifyProduct(3, OK);
+
+        client.get()
+                .uri("/product?productIds=1,3,13")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[?(@.productId == 1)]").exists()
+                .jsonPath("$[?(@.productId == 3)]").exists();
+    }
+
+    @Test
+    void getProductAsSmile() {
+        int productId = 1;
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+
+        postAndVerifyProduct(productId, OK);
+
+        Product product = client.get()
+                .uri("/product/" + productId)
+                .accept(smile)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(smile)
+                .expectBody(Product.class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(productId, product.getProductId());
+    }
+
     @Test
     void duplicateError() {
         int productId = 1;
 
         postAndVerifyProduct(productId, OK);
-        assertTrue(repository.findByProductId(productId).isPresent());
+        assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
         postAndVerifyProduct(productId, UNPROCESSABLE_ENTITY)
                 .jsonPath("$.path").isEqualTo("/product")
@@ -59,10 +96,10 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
         int productId = 1;
 
         postAndVerifyProduct(productId, OK);
-        assertTrue(repository.findByProductId(productId).isPresent());
+        assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
         deleteAndVerifyProduct(productId, OK);
-        assertFalse(repository.findByProductId(productId).isPresent());
+        assertFalse(repository.findByProductId(productId).blockOptional().isPresent());
 
         deleteAndVerifyProduct(productId, OK);
     }
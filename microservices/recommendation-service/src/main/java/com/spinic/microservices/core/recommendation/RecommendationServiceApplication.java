@@ -11,10 +11,10 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.mapping.context.MappingContext;
-import org.springframework.data.mongodb.core.MongoOperations;
-import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.data.mongodb.core.index.IndexResolver;
 import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 
@@ -25,7 +25,7 @@ public class RecommendationServiceApplication {
     private static final Logger LOG = LoggerFactory.getLogger(RecommendationServiceApplication.class);
 
     @Autowired
-    MongoOperations mongoTemplate;
+    ReactiveMongoOperations mongoTemplate;
 
     public static void main(String[] args) {
         ConfigurableApplicationContext ctx = SpringApplication.run(RecommendationServiceApplication.class, args);
@@ -41,8 +41,9 @@ public class RecommendationServiceApplication {
         MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext = mongoTemplate.getConverter().getMappingContext();
         IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
 
-        IndexOperations indexOps = mongoTemplate.indexOps(RecommendationEntity.class);
-        resolver.resolveIndexFor(RecommendationEntity.class).forEach(e -> indexOps.ensureIndex(e));
+        ReactiveIndexOperations indexOps = mongoTemplate.indexOps(RecommendationEntity.class);
+        // Startup may block, the indexes must exist before the first write
+        resolver.resolveIndexFor(RecommendationEntity.class).forEach(e -> indexOps.ensureIndex(e).block());
     }
 }
 
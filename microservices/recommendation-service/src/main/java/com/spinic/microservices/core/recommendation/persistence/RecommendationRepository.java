@@ -1,9 +1,12 @@
 package com.spinic.microservices.core.recommendation.persistence;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
 
-import java.util.List;
+import java.util.Collection;
 
-public interface RecommendationRepository extends CrudRepository<RecommendationEntity, String> {
-    List<RecommendationEntity> findByProductId(int productId);
+public interface RecommendationRepository extends ReactiveMongoRepository<RecommendationEntity, String> {
+    Flux<RecommendationEntity> findByProductId(int productId);
+
+    Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds);
 }
@@ -0,0 +1,45 @@
+package com.spinic.microservices.core.recommendation.service;
+
+import com.spinic.microservices.api.core.grpc.CoreMessages;
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ProductIdsRequest;
+import com.spinic.microservices.api.core.grpc.RecommendationMessage;
+import com.spinic.microservices.api.core.grpc.RecommendationServiceGrpc;
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.api.core.recommendation.RecommendationService;
+import com.spinic.microservices.util.grpc.GrpcStreams;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Supplier;
+
+/**
+ * Serves the recommendation lookups over gRPC, see GrpcServer. The recommendations are streamed as fast as the client
+ * reads them, see GrpcStreams.
+ */
+@Component
+public class RecommendationGrpcService extends RecommendationServiceGrpc.RecommendationServiceImplBase {
+
+    private final RecommendationService recommendationService;
+
+    @Autowired
+    public RecommendationGrpcService(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+    }
+
+    @Override
+    public void getRecommendations(ProductIdRequest request, StreamObserver<RecommendationMessage> responseObserver) {
+        stream(() -> recommendationService.getRecommendations(request.getProductId()), responseObserver);
+    }
+
+    @Override
+    public void getRecommendationsForProducts(ProductIdsRequest request, StreamObserver<RecommendationMessage> responseObserver) {
+        stream(() -> recommendationService.getRecommendationsForProducts(request.getProductIdsList()), responseObserver);
+    }
+
+    private void stream(Supplier<Flux<Recommendation>> lookup, StreamObserver<RecommendationMessage> responseObserver) {
+        GrpcStreams.stream(Flux.defer(lookup), CoreMessages::toMessage, responseObserver);
+    }
+}
@@ -1,6 +1,5 @@
 package com.spinic.microservices.core.recommendation.service;
 
-import com.mongodb.DuplicateKeyException;
 import com.spinic.microservices.api.core.recommendation.Recommendation;
 import com.spinic.microservices.api.core.recommendation.RecommendationService;
 import com.spinic.microservices.api.exceptions.InvalidInputException;
@@ -10,9 +9,16 @@ import com.spinic.microservices.util.http.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 @RestController
 public class RecommendationServiceImpl implements RecommendationService {
@@ -29,36 +35,51 @@ public class RecommendationServiceImpl implements RecommendationService {
         this.mapper = mapper;
     }
 
-    public Recommendation createRecommendation(Recommendation body) {
-        try {
-            RecommendationEntity entity = mapper.apiToEntity(body);
-            RecommendationEntity newEntity = repository.save(entity);
-
-            LOGGER.debug("createRecommendation: created a recommendation entity: {}/{}", body.getProductId(), body.getRecommendationId());
-            return mapper.entityToApi(newEntity);
+    @Override
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
+        return repository.save(mapper.apiToEntity(body))
+                .onErrorMap(DuplicateKeyException.class, ex -> new InvalidInputException(
+                        "Duplicate key, Product Id: " + body.getProductId() + ", Recommendation Id:" + body.getRecommendationId()))
+                .doOnNext(entity -> LOGGER.debug("createRecommendation: created a recommendation entity: {}/{}", body.getProductId(), body.getRecommendationId()))
+                .map(mapper::entityToApi);
+    }
 
-        } catch (DuplicateKeyException dke) {
-            throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Recommendation Id:" + body.getRecommendationId());
+    @Override
+    public Flux<Recommendation> getRecommendations(int productId) {
+        if (productId < 1) {
+            return Flux.error(new InvalidInputException("Invalid productId: " + productId));
         }
+        return countOnComplete(repository.findByProductId(productId).map(this::toApi),
+                size -> LOGGER.debug("getRecommendations: response size: {}", size));
     }
 
     @Override
-    public List<Recommendation> getRecommendations(int productId) {
-        if (productId < 1) {
-            throw new InvalidInputException("Invalid productId: " + productId);
+    public Flux<Recommendation> getRecommendationsForProducts(List<Integer> productIds) {
+        Optional<Integer> invalid = productIds.stream().filter(id -> id < 1).findFirst();
+        if (invalid.isPresent()) {
+            return Flux.error(new InvalidInputException("Invalid productId: " + invalid.get()));
         }
-        List<RecommendationEntity> entityList = repository.findByProductId(productId);
-        List<Recommendation> list = mapper.entityListToApiList(entityList);
-        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+        return countOnComplete(repository.findByProductIdIn(new HashSet<>(productIds)).map(this::toApi),
+                size -> LOGGER.debug("getRecommendationsForProducts: response size: {} for {} products", size, productIds.size()));
+    }
 
-        LOGGER.debug("getRecommendations: response size: {}", list.size());
+    @Override
+    public Mono<Void> deleteRecommendations(int productId) {
+        LOGGER.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}", productId);
+        return repository.deleteAll(repository.findByProductId(productId));
+    }
 
-        return list;
+    private Recommendation toApi(RecommendationEntity entity) {
+        Recommendation recommendation = mapper.entityToApi(entity);
+        recommendation.setServiceAddress(serviceUtil.getServiceAddress());
+        return recommendation;
     }
 
-    public void deleteRecommendations(int productId) {
-        LOGGER.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}", productId);
-        repository.deleteAll(repository.findByProductId(productId));
+    // Counts the recommendations as they pass, so they are not collected for the log
+    private static Flux<Recommendation> countOnComplete(Flux<Recommendation> recommendations, IntConsumer onComplete) {
+        return Flux.defer(() -> {
+            AtomicInteger size = new AtomicInteger();
+            return recommendations.doOnNext(recommendation -> size.incrementAndGet()).doOnComplete(() -> onComplete.accept(size.get()));
+        });
     }
 }
-
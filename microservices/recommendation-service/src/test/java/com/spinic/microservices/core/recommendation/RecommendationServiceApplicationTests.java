@@ -3,7 +3,6 @@ package com.spinic.microservices.core.recommendation;
 import com.spinic.microservices.api.core.recommendation.Recommendation;
 import com.spinic.microservices.core.recommendation.persistence.RecommendationRepository;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -27,7 +26,7 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 
     @BeforeEach
     void setupDb() {
-        repository.deleteAll();
+        repository.deleteAll().block();
     }
 
     @Test
@@ -38,7 +37,7 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
         postAndVerifyRecommendation(productId, 2, OK);
         postAndVerifyRecommendation(productId, 3, OK);
 
-        assertEquals(3, repository.findByProductId(productId).size());
+        assertEquals(3L, repository.findByProductId(productId).count().block());
 
         getAndVerifyRecommendationsByProductId(productId, OK)
                 .jsonPath("$.length()").isEqualTo(3)
@@ -46,7 +45,17 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
                 .jsonPath("$[2].recommendationId").isEqualTo(3);
     }
 
-    @Disabled("Write operation error on server localhost:51458. Write error: WriteError{code=11000, message='E11000 duplicate key error collection: test.recommendations index: prod-rec-id dup key: { productId: 1, recommendationId: 1 }', details={}}.")
+    @Test
+    void getRecommendationsForProducts() {
+        postAndVerifyRecommendation(1, 1, OK);
+        postAndVerifyRecommendation(1, 2, OK);
+        postAndVerifyRecommendation(2, 1, OK);
+        postAndVerifyRecommendation(3, 1, OK);
+
+        getAndVerifyRecommendationsByProductId("?productIds=1,2,113", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
     @Test
     void duplicateError() {
         int productId = 1;
@@ -56,13 +65,13 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
                 .jsonPath("$.productId").isEqualTo(productId)
                 .jsonPath("$.recommendationId").isEqualTo(recommendationId);
 
-        assertEquals(1, repository.count());
+        assertEquals(1L, repository.count().block());
 
         postAndVerifyRecommendation(productId, recommendationId, UNPROCESSABLE_ENTITY)
                 .jsonPath("$.path").isEqualTo("/recommendation")
                 .jsonPath("$.message").isEqualTo("Duplicate key, Product Id: 1, Recommendation Id:1");
 
-        assertEquals(1, repository.count());
+        assertEquals(1L, repository.count().block());
     }
 
     @Test
@@ -71,10 +80,10 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
         int recommendationId = 1;
 
         postAndVerifyRecommendation(productId, recommendationId, OK);
-        assertEquals(1, repository.findByProductId(productId).size());
+        assertEquals(1L, repository.findByProductId(productId).count().block());
 
         deleteAndVerifyRecommendationsByProductId(productId, OK);
-        assertEquals(0, repository.findByProductId(productId).size());
+        assertEquals(0L, repository.findByProductId(productId).count().block());
 
         deleteAndVerifyRecommendationsByProductId(productId, OK);
     }
@@ -0,0 +1,85 @@
+package com.spinic.microservices.core.recommendation.benchmark;
+
+import com.spinic.microservices.api.core.recommendation.Recommendation;
+import com.spinic.microservices.core.recommendation.RecommendationServiceApplication;
+import com.spinic.microservices.util.http.WebRuntimeLoad;
+import com.spinic.microservices.util.http.WebRuntimeLoad.Result;
+import com.spinic.microservices.util.http.WebRuntimeLoad.WebRuntime;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.spinic.microservices.util.http.WebRuntimeLoad.CLIENTS;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Closed-loop load of getRecommendations over REST against the service in each web runtime, see WebRuntimeLoad. The
+ * recommendations are stored in a MongoDB container, the benchmark is skipped without Docker. The repository is
+ * reactive in every web runtime, so Spring MVC serves its lookups asynchronously too and no request thread blocks on
+ * the database.
+ * Run with "./gradlew :microservices:recommendation-service:benchmark".
+ */
+@Tag("benchmark")
+class WebRuntimeBenchmark {
+
+    private static final int PRODUCTS = 100;
+    private static final int RECOMMENDATIONS_PER_PRODUCT = 3;
+
+    private static MongoDBContainer dbContainer;
+
+    @BeforeAll
+    static void startDatabase() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker for the MongoDB container");
+        dbContainer = new MongoDBContainer("mongo:6.0.4");
+        dbContainer.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        if (dbContainer != null) {
+            dbContainer.stop();
+        }
+    }
+
+    @Test
+    void webRuntimeThroughput() {
+        WebRuntimeLoad.runInEachWebRuntime(
+                "getRecommendations (" + RECOMMENDATIONS_PER_PRODUCT + " recommendations) with " + CLIENTS + " concurrent clients", this::run,
+                "The MongoDB calls are reactive in every web runtime, mvc does not block on them");
+    }
+
+    private Result run(WebRuntime runtime) {
+        try (ConfigurableApplicationContext context = WebRuntimeLoad.start(RecommendationServiceApplication.class, runtime,
+                "--app.grpc.enabled=false",
+                "--spring.data.mongodb.host=" + dbContainer.getHost(),
+                "--spring.data.mongodb.port=" + dbContainer.getMappedPort(27017),
+                "--spring.data.mongodb.database=benchmark-" + runtime.name().toLowerCase())) {
+            WebClient client = WebClient.create(WebRuntimeLoad.baseUrl(context));
+
+            List<HttpStatusCode> created = Flux.range(0, PRODUCTS * RECOMMENDATIONS_PER_PRODUCT)
+                    .flatMap(i -> client.post().uri("/recommendation")
+                            .bodyValue(new Recommendation(i / RECOMMENDATIONS_PER_PRODUCT + 1, i % RECOMMENDATIONS_PER_PRODUCT + 1, "Author", 1, "Content", null))
+                            .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode())), CLIENTS)
+                    .collectList().block();
+            assertTrue(created.stream().allMatch(HttpStatusCode::is2xxSuccessful), "Expected all creates to succeed in " + runtime);
+
+            // A lookup that finds all recommendations is counted
+            return WebRuntimeLoad.measure(runtime, () -> client.get()
+                    .uri("/recommendation?productId=" + ThreadLocalRandom.current().nextInt(1, PRODUCTS + 1))
+                    .retrieve().bodyToFlux(Recommendation.class)
+                    .count()
+                    .map(count -> count == RECOMMENDATIONS_PER_PRODUCT));
+        }
+    }
+}
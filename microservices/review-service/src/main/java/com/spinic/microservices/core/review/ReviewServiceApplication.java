@@ -6,6 +6,8 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 
 @SpringBootApplication
 @ComponentScan("com.spinic")
@@ -16,7 +18,8 @@ public class ReviewServiceApplication {
     public static void main(String[] args) {
         ConfigurableApplicationContext ctx = SpringApplication.run(ReviewServiceApplication.class, args);
 
-        String mysqlUri = ctx.getEnvironment().getProperty("spring.datasource.url");
+        Environment environment = ctx.getEnvironment();
+        String mysqlUri = environment.getProperty(environment.acceptsProfiles(Profiles.of("r2dbc")) ? "spring.r2dbc.url" : "spring.datasource.url");
         LOG.info("Connected to MySQL: " + mysqlUri);
     }
 }
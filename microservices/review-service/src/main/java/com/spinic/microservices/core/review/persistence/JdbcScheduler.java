@@ -0,0 +1,113 @@
+package com.spinic.microservices.core.review.persistence;
+
+import com.spinic.microservices.util.concurrent.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.WebApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the blocking JPA calls off the event loops, on a dedicated scheduler with as many threads as the Hikari pool has
+ * connections. More threads would only wait for a connection, fewer would leave connections unused. Calls beyond that
+ * wait in a bounded queue, a call that finds it full fails with a RejectedExecutionException.
+ * <p>
+ * With virtual threads, on Java 21 or later, each call gets a virtual thread of its own that waits for one of as many
+ * permits as the pool has connections. Waiting is cheap there, so there is no queue bound. On an older Java the
+ * platform threads are used.
+ * <p>
+ * With the mvc web runtime, see WebRuntimeConfiguration, the calls are made inline, on the thread of the request. That
+ * is a virtual thread of its own on Java 21 or later, and the Hikari pool bounds the calls.
+ * <p>
+ * Not needed with the "r2dbc" profile, see {@link R2dbcReviewPersistence}.
+ */
+@Component
+@Profile("!r2dbc")
+public class JdbcScheduler implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcScheduler.class);
+
+    private final Scheduler scheduler;
+    // Only with virtual threads, the platform threads are bounded by the scheduler itself
+    private final Semaphore permits;
+
+    @Autowired
+    public JdbcScheduler(
+            ApplicationContext context,
+            @Value("${app.jdbc-scheduler.threads:${spring.datasource.hikari.maximum-pool-size:10}}") int threads,
+            @Value("${app.jdbc-scheduler.queue-size:1000}") int queueSize,
+            @Value("${app.jdbc-scheduler.virtual-threads:false}") boolean virtualThreads) {
+        this(context instanceof WebApplicationContext, threads, queueSize, virtualThreads);
+    }
+
+    public JdbcScheduler(boolean onRequestThread, int threads, int queueSize, boolean virtualThreads) {
+        if (onRequestThread) {
+            this.scheduler = Schedulers.immediate();
+            this.permits = null;
+            LOG.info("JDBC calls are made on the request threads");
+            return;
+        }
+
+        ExecutorService virtualThreadExecutor = virtualThreads ? VirtualThreads.newThreadPerTaskExecutor().orElse(null) : null;
+        if (virtualThreadExecutor != null) {
+            this.scheduler = Schedulers.fromExecutorService(virtualThreadExecutor, "jdbc");
+            this.permits = new Semaphore(threads, true);
+        } else {
+            if (virtualThreads) {
+                LOG.warn("Virtual threads need Java 21 or later, runs on Java {}, uses platform threads", Runtime.version().feature());
+            }
+            this.scheduler = Schedulers.newBoundedElastic(threads, queueSize, "jdbc");
+            this.permits = null;
+        }
+
+        LOG.info("JDBC scheduler threads: {}, queue size: {}, virtual threads: {}", threads, queueSize, virtualThreadExecutor != null);
+    }
+
+    /**
+     * Makes the blocking call on subscription, on the scheduler.
+     */
+    public <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(permits == null ? call : () -> {
+            permits.acquire();
+            try {
+                return call.call();
+            } finally {
+                permits.release();
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * Makes the blocking call on subscription, on the scheduler, and emits the elements it returns.
+     */
+    public <T> Flux<T> stream(Callable<? extends Iterable<T>> call) {
+        return call(call).flatMapIterable(elements -> elements);
+    }
+
+    /**
+     * Makes the blocking call on subscription, on the scheduler.
+     */
+    public Mono<Void> run(Runnable call) {
+        return call(() -> {
+            call.run();
+            return true;
+        }).then();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,47 @@
+package com.spinic.microservices.core.review.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * The blocking JPA repository, called on the {@link JdbcScheduler}. A lookup reads all its rows before the first one
+ * is emitted.
+ */
+@Component
+@Profile("!r2dbc")
+public class JpaReviewPersistence implements ReviewPersistence {
+
+    private final ReviewRepository repository;
+    private final JdbcScheduler jdbcScheduler;
+
+    @Autowired
+    public JpaReviewPersistence(ReviewRepository repository, JdbcScheduler jdbcScheduler) {
+        this.repository = repository;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    @Override
+    public Mono<ReviewEntity> save(ReviewEntity entity) {
+        return jdbcScheduler.call(() -> repository.save(entity));
+    }
+
+    @Override
+    public Flux<ReviewEntity> findByProductId(int productId) {
+        return jdbcScheduler.stream(() -> repository.findByProductId(productId));
+    }
+
+    @Override
+    public Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds) {
+        return jdbcScheduler.stream(() -> repository.findByProductIdIn(productIds));
+    }
+
+    @Override
+    public Mono<Void> deleteByProductId(int productId) {
+        return jdbcScheduler.run(() -> repository.deleteAll(repository.findByProductId(productId)));
+    }
+}
@@ -0,0 +1,151 @@
+package com.spinic.microservices.core.review.persistence;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * The review table over the non-blocking R2DBC driver, active with the "r2dbc" profile. Rows are emitted as the driver
+ * reads them, so a lookup is streamed to the response without being collected first.
+ * <p>
+ * The table is the one of {@link ReviewEntity}, created by reviews-schema.sql with the same unique index on productId
+ * and reviewId. A duplicate fails with a DuplicateKeyException, a DataIntegrityViolationException as with JPA.
+ * <p>
+ * The ids come from the reviews_seq table, as Hibernate takes them for ReviewEntity: next_val is moved on by a block of
+ * {@link #ID_BLOCK_SIZE}, and the block read as next_val n holds the ids n - 49 to n. So both profiles, and several
+ * instances of each, can write to the same table.
+ */
+@Component
+@Profile("r2dbc")
+public class R2dbcReviewPersistence implements ReviewPersistence {
+
+    private static final String COLUMNS = "id, version, product_id, review_id, author, subject, content";
+    // The allocation size of @GeneratedValue
+    private static final int ID_BLOCK_SIZE = 50;
+    // Taking a block again after a concurrent one, with a jittered backoff so the writers spread out
+    private static final int ID_BLOCK_RETRIES = 10;
+    private static final Duration ID_BLOCK_BACKOFF = Duration.ofMillis(5);
+
+    private final DatabaseClient client;
+
+    // The ids left in the current block
+    private int nextId = 1;
+    private int lastId = 0;
+
+    @Autowired
+    public R2dbcReviewPersistence(ConnectionFactory connectionFactory) {
+        this.client = DatabaseClient.create(connectionFactory);
+    }
+
+    @Override
+    public Mono<ReviewEntity> save(ReviewEntity entity) {
+        return nextId().flatMap(id -> {
+            DatabaseClient.GenericExecuteSpec insert = client.sql(
+                            "INSERT INTO reviews (id, version, product_id, review_id, author, subject, content) " +
+                                    "VALUES (:id, :version, :productId, :reviewId, :author, :subject, :content)")
+                    .bind("id", id)
+                    .bind("version", entity.getVersion())
+                    .bind("productId", entity.getProductId())
+                    .bind("reviewId", entity.getReviewId());
+            insert = bindNullable(insert, "author", entity.getAuthor());
+            insert = bindNullable(insert, "subject", entity.getSubject());
+            insert = bindNullable(insert, "content", entity.getContent());
+
+            return insert.then().then(Mono.fromCallable(() -> {
+                entity.setId(id);
+                return entity;
+            }));
+        });
+    }
+
+    @Override
+    public Flux<ReviewEntity> findByProductId(int productId) {
+        return client.sql("SELECT " + COLUMNS + " FROM reviews WHERE product_id = :productId")
+                .bind("productId", productId)
+                .map(R2dbcReviewPersistence::toEntity)
+                .all();
+    }
+
+    @Override
+    public Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql("SELECT " + COLUMNS + " FROM reviews WHERE product_id IN (:productIds)")
+                .bind("productIds", productIds)
+                .map(R2dbcReviewPersistence::toEntity)
+                .all();
+    }
+
+    @Override
+    public Mono<Void> deleteByProductId(int productId) {
+        return client.sql("DELETE FROM reviews WHERE product_id = :productId")
+                .bind("productId", productId)
+                .then();
+    }
+
+    private Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if (nextId <= lastId) {
+                    return Mono.just(nextId++);
+                }
+            }
+            return nextIdBlock().flatMap(last -> {
+                synchronized (this) {
+                    // A block taken concurrently replaces the rest of this one, its ids are skipped
+                    nextId = Math.max(1, last - ID_BLOCK_SIZE + 1);
+                    lastId = last;
+                }
+                return nextId();
+            });
+        });
+    }
+
+    // Returns the last id of the block, taken again if another instance or Hibernate moved next_val meanwhile
+    private Mono<Integer> nextIdBlock() {
+        return client.sql("SELECT next_val FROM reviews_seq")
+                .map(row -> row.get("next_val", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new EmptyResultDataAccessException(
+                        "No row in the reviews_seq table, it is created by reviews-schema.sql", 1)))
+                .flatMap(current -> client.sql("UPDATE reviews_seq SET next_val = :next WHERE next_val = :current")
+                        .bind("next", current + ID_BLOCK_SIZE)
+                        .bind("current", current)
+                        .fetch().rowsUpdated()
+                        .filter(updated -> updated == 1)
+                        .map(updated -> current.intValue())
+                        .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException(
+                                "reviews_seq was moved on concurrently from next_val: " + current))))
+                .retryWhen(Retry.backoff(ID_BLOCK_RETRIES, ID_BLOCK_BACKOFF)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static ReviewEntity toEntity(Readable row) {
+        ReviewEntity entity = new ReviewEntity(
+                row.get("product_id", Integer.class),
+                row.get("review_id", Integer.class),
+                row.get("author", String.class),
+                row.get("subject", String.class),
+                row.get("content", String.class));
+        entity.setId(row.get("id", Integer.class));
+        entity.setVersion(row.get("version", Integer.class));
+        return entity;
+    }
+}
@@ -0,0 +1,22 @@
+package com.spinic.microservices.core.review.persistence;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * The review table as seen by the service, backed by blocking JPA by default, see {@link JpaReviewPersistence}, or
+ * by the non-blocking R2DBC driver with the "r2dbc" profile, see {@link R2dbcReviewPersistence}. Both keep the
+ * productId and reviewId of a review unique and signal a duplicate with a DataIntegrityViolationException.
+ */
+public interface ReviewPersistence {
+
+    Mono<ReviewEntity> save(ReviewEntity entity);
+
+    Flux<ReviewEntity> findByProductId(int productId);
+
+    Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    Mono<Void> deleteByProductId(int productId);
+}
@@ -3,10 +3,14 @@ package com.spinic.microservices.core.review.persistence;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
 
     @Transactional(readOnly = true)
     List<ReviewEntity> findByProductId(int productId);
+
+    @Transactional(readOnly = true)
+    List<ReviewEntity> findByProductIdIn(Collection<Integer> productIds);
 }
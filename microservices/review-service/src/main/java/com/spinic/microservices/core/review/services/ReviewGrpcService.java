@@ -0,0 +1,45 @@
+package com.spinic.microservices.core.review.services;
+
+import com.spinic.microservices.api.core.grpc.CoreMessages;
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ProductIdsRequest;
+import com.spinic.microservices.api.core.grpc.ReviewMessage;
+import com.spinic.microservices.api.core.grpc.ReviewServiceGrpc;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.core.review.ReviewService;
+import com.spinic.microservices.util.grpc.GrpcStreams;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Supplier;
+
+/**
+ * Serves the review lookups over gRPC, see GrpcServer. The reviews are streamed as fast as the client reads them,
+ * see GrpcStreams.
+ */
+@Component
+public class ReviewGrpcService extends ReviewServiceGrpc.ReviewServiceImplBase {
+
+    private final ReviewService reviewService;
+
+    @Autowired
+    public ReviewGrpcService(ReviewService reviewService) {
+        this.reviewService = reviewService;
+    }
+
+    @Override
+    public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+        stream(() -> reviewService.getReviews(request.getProductId()), responseObserver);
+    }
+
+    @Override
+    public void getReviewsForProducts(ProductIdsRequest request, StreamObserver<ReviewMessage> responseObserver) {
+        stream(() -> reviewService.getReviewsForProducts(request.getProductIdsList()), responseObserver);
+    }
+
+    private void stream(Supplier<Flux<Review>> lookup, StreamObserver<ReviewMessage> responseObserver) {
+        GrpcStreams.stream(Flux.defer(lookup), CoreMessages::toMessage, responseObserver);
+    }
+}
@@ -4,62 +4,86 @@ import com.spinic.microservices.api.core.review.Review;
 import com.spinic.microservices.api.core.review.ReviewService;
 import com.spinic.microservices.api.exceptions.InvalidInputException;
 import com.spinic.microservices.core.review.persistence.ReviewEntity;
-import com.spinic.microservices.core.review.persistence.ReviewRepository;
+import com.spinic.microservices.core.review.persistence.ReviewPersistence;
 import com.spinic.microservices.util.http.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
+/**
+ * The reviews are streamed to the response as the {@link ReviewPersistence} emits them, row by row with R2DBC.
+ */
 @RestController
 public class ReviewServiceImpl implements ReviewService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
 
-    private final ReviewRepository repository;
+    private final ReviewPersistence persistence;
     private final ReviewMapper mapper;
     private final ServiceUtil serviceUtil;
 
     @Autowired
-    public ReviewServiceImpl(ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil) {
+    public ReviewServiceImpl(ReviewPersistence persistence, ReviewMapper mapper, ServiceUtil serviceUtil) {
         this.serviceUtil = serviceUtil;
-        this.repository = repository;
+        this.persistence = persistence;
         this.mapper = mapper;
     }
 
-    public Review createReview(Review body) {
-        try {
-            ReviewEntity entity = mapper.apiToEntity(body);
-            ReviewEntity newEntity = repository.save(entity);
-
-            LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId());
-            return mapper.entityToApi(newEntity);
+    @Override
+    public Mono<Review> createReview(Review body) {
+        return persistence.save(mapper.apiToEntity(body))
+                .onErrorMap(DataIntegrityViolationException.class, ex -> new InvalidInputException(
+                        "Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId()))
+                .doOnNext(entity -> LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId()))
+                .map(mapper::entityToApi);
+    }
 
-        } catch (DataIntegrityViolationException dive) {
-            throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId());
+    @Override
+    public Flux<Review> getReviews(int productId) {
+        if (productId < 1) {
+            return Flux.error(new InvalidInputException("Invalid productId: " + productId));
         }
+        return countOnComplete(persistence.findByProductId(productId).map(this::toApi),
+                size -> LOG.debug("getReviews: response size: {}", size));
     }
 
     @Override
-    public List<Review> getReviews(int productId) {
-        if (productId < 1) {
-            throw new InvalidInputException("Invalid productId: " + productId);
+    public Flux<Review> getReviewsForProducts(List<Integer> productIds) {
+        Optional<Integer> invalid = productIds.stream().filter(id -> id < 1).findFirst();
+        if (invalid.isPresent()) {
+            return Flux.error(new InvalidInputException("Invalid productId: " + invalid.get()));
         }
-        List<ReviewEntity> entityList = repository.findByProductId(productId);
-        List<Review> reviewList = mapper.entityListToApiList(entityList);
-        reviewList.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+        return countOnComplete(persistence.findByProductIdIn(new HashSet<>(productIds)).map(this::toApi),
+                size -> LOG.debug("getReviewsForProducts: response size: {} for {} products", size, productIds.size()));
+    }
 
-        LOG.debug("getReviews: response size: {}", reviewList.size());
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+        return persistence.deleteByProductId(productId);
+    }
 
-        return reviewList;
+    private Review toApi(ReviewEntity entity) {
+        Review review = mapper.entityToApi(entity);
+        review.setServiceAddress(serviceUtil.getServiceAddress());
+        return review;
     }
 
-    public void deleteReviews(int productId) {
-        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-        repository.deleteAll(repository.findByProductId(productId));
+    // Counts the reviews as they pass, so they are not collected for the log
+    private static Flux<Review> countOnComplete(Flux<Review> reviews, IntConsumer onComplete) {
+        return Flux.defer(() -> {
+            AtomicInteger size = new AtomicInteger();
+            return reviews.doOnNext(review -> size.incrementAndGet()).doOnComplete(() -> onComplete.accept(size.get()));
+        });
     }
 }
-
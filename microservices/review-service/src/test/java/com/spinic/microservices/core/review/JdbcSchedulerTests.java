@@ -0,0 +1,80 @@
+package com.spinic.microservices.core.review;
+
+import com.spinic.microservices.core.review.persistence.JdbcScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcSchedulerTests {
+
+    private static final int THREADS = 4;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private JdbcScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void callsRunOnTheSchedulerAtMostPoolSizeAtATime() {
+        scheduler = new JdbcScheduler(false, THREADS, 100, false);
+
+        List<String> threads = Flux.range(0, 20)
+                .flatMap(i -> scheduler.call(this::query))
+                .collectList().block();
+
+        assertEquals(20, threads.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("jdbc-")), "Expected the jdbc threads, got " + threads);
+        assertEquals(THREADS, maxRunning.get());
+    }
+
+    @Test
+    void virtualThreadsAreBoundedTheSameWay() {
+        // On Java 17 this falls back to the platform threads
+        scheduler = new JdbcScheduler(false, THREADS, 100, true);
+
+        Flux.range(0, 20)
+                .flatMap(i -> scheduler.call(this::query))
+                .blockLast();
+
+        assertEquals(THREADS, maxRunning.get());
+    }
+
+    @Test
+    void callsBeyondTheQueueAreRejected() {
+        scheduler = new JdbcScheduler(false, 1, 1, false);
+
+        // Subscribed on a parallel thread as the event loops do, the scheduler rejects the task at once
+        assertThrows(RejectedExecutionException.class, () -> Flux.range(0, 10)
+                .flatMap(i -> scheduler.call(this::query).subscribeOn(Schedulers.parallel()))
+                .blockLast());
+    }
+
+    @Test
+    void callsRunInlineOnTheRequestThreads() {
+        // As with the mvc web runtime, where the servlet container thread subscribes
+        scheduler = new JdbcScheduler(true, THREADS, 100, false);
+
+        assertEquals(Thread.currentThread().getName(), scheduler.call(this::query).block());
+    }
+
+    private String query() throws InterruptedException {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(50);
+            return Thread.currentThread().getName();
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.spinic.microservices.core.review;
+
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.core.review.persistence.ReviewRepository;
+import com.spinic.microservices.util.reactor.BlockingCalls;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.assertNoBlockingCalls;
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.count;
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.status;
+import static com.spinic.microservices.util.reactor.NonBlockingLoad.statuses;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Concurrent creates, lookups and deletes over REST while BlockHound watches the non-blocking threads, e.g. the
+ * reactor-http event loops. The JPA calls block, on the JdbcScheduler, which is not watched. Blocking calls on the
+ * watched threads are recorded by {@link BlockingCalls}, and none is expected.
+ * Debug logging is turned off, a console appender writes synchronously.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"logging.level.com.spinic=INFO", "logging.level.org.hibernate=INFO"})
+class NonBlockingLoadTests extends MySqlTestBase {
+
+    private static final int PRODUCTS = 200;
+    private static final int REVIEWS_PER_PRODUCT = 3;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReviewRepository repository;
+
+    private WebClient client;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        client = WebClient.create("http://localhost:" + port);
+        BlockingCalls.clear();
+    }
+
+    @Test
+    void eventLoopsAreNeverBlocked() {
+        List<HttpStatusCode> created = statuses(0, PRODUCTS * REVIEWS_PER_PRODUCT, i -> client.post().uri("/review")
+                .bodyValue(new Review(i / REVIEWS_PER_PRODUCT + 1, i % REVIEWS_PER_PRODUCT + 1, "a", "s", "c", "SA")));
+        assertTrue(created.stream().allMatch(HttpStatusCode::is2xxSuccessful), "Expected all creates to succeed");
+
+        // A duplicate is mapped to 422 without blocking either
+        assertEquals(422, status(client.post().uri("/review")
+                .bodyValue(new Review(1, 1, "a", "s", "c", "SA"))).block().value());
+
+        long found = count(1, PRODUCTS * 2, productId -> client.get().uri("/review?productId=" + productId)
+                .retrieve().bodyToFlux(Review.class));
+        assertEquals(PRODUCTS * REVIEWS_PER_PRODUCT, found);
+
+        long listed = count(1, PRODUCTS / 2, i -> client.get().uri("/review?productIds={ids}", (i * 2 - 1) + "," + (i * 2))
+                .retrieve().bodyToFlux(Review.class));
+        assertEquals(PRODUCTS * REVIEWS_PER_PRODUCT, listed);
+
+        List<HttpStatusCode> deleted = statuses(1, PRODUCTS, productId -> client.delete().uri("/review?productId=" + productId));
+        assertTrue(deleted.stream().allMatch(HttpStatusCode::is2xxSuccessful), "Expected all deletes to succeed");
+        assertEquals(0L, repository.count());
+
+        assertNoBlockingCalls();
+    }
+}
@@ -73,6 +73,16 @@ class PersistenceTests extends MySqlTestBase {
         assertEqualsReview(savedEntity, entityList.get(0));
     }
 
+    @Test
+    void getByProductIds() {
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+        repository.save(new ReviewEntity(3, 1, "a", "s", "c"));
+
+        List<ReviewEntity> entityList = repository.findByProductIdIn(List.of(1, 2));
+
+        assertThat(entityList, hasSize(2));
+    }
+
     @Test
     void duplicateError() {
         assertThrows(DataIntegrityViolationException.class, () -> {
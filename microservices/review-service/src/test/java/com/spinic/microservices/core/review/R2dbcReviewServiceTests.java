@@ -0,0 +1,114 @@
+package com.spinic.microservices.core.review;
+
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.core.review.persistence.R2dbcReviewPersistence;
+import com.spinic.microservices.core.review.persistence.ReviewEntity;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * The REST API with the r2dbc profile, on the same MySQL table as the JPA profile.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles("r2dbc")
+class R2dbcReviewServiceTests extends MySqlTestBase {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    private DatabaseClient database;
+
+    @BeforeEach
+    void setupDb() {
+        database = DatabaseClient.create(connectionFactory);
+        database.sql("DELETE FROM reviews").then().block();
+    }
+
+    @Test
+    void createGetAndDeleteReviews() {
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+        postAndVerifyReview(2, 1, OK);
+        assertEquals(3L, countReviews());
+
+        getAndVerifyReviews("?productId=1")
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].productId").isEqualTo(1);
+        getAndVerifyReviews("?productIds=1,2,213")
+                .jsonPath("$.length()").isEqualTo(3);
+
+        client.delete().uri("/review?productId=1").exchange().expectStatus().isOk();
+        assertEquals(1L, countReviews());
+    }
+
+    @Test
+    void duplicateError() {
+        postAndVerifyReview(1, 1, OK);
+
+        postAndVerifyReview(1, 1, UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/review")
+                .jsonPath("$.message").isEqualTo("Duplicate key, Product Id: 1, Review Id:1");
+
+        assertEquals(1L, countReviews());
+    }
+
+    @Test
+    void aMissingSequenceRowFailsTheSave() {
+        long nextVal = database.sql("SELECT next_val FROM reviews_seq").map(row -> row.get("next_val", Long.class)).one().block();
+        database.sql("DELETE FROM reviews_seq").then().block();
+        try {
+            // A new instance has no block of ids left, so it reads reviews_seq
+            StepVerifier.create(new R2dbcReviewPersistence(connectionFactory).save(new ReviewEntity(1, 1, "a", "s", "c")))
+                    .expectErrorMatches(ex -> ex instanceof EmptyResultDataAccessException
+                            && ex.getMessage().startsWith("No row in the reviews_seq table"))
+                    .verify();
+        } finally {
+            database.sql("INSERT INTO reviews_seq (next_val) VALUES (:nextVal)").bind("nextVal", nextVal).then().block();
+        }
+        assertEquals(0L, countReviews());
+    }
+
+    private long countReviews() {
+        return database.sql("SELECT COUNT(*) AS reviews FROM reviews").map(row -> row.get("reviews", Long.class)).one().block();
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyReviews(String productIdQuery) {
+        return client.get()
+                .uri("/review" + productIdQuery)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody();
+    }
+
+    private WebTestClient.BodyContentSpec postAndVerifyReview(int productId, int reviewId, HttpStatus expectedStatus) {
+        Review review = new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
+        return client.post()
+                .uri("/review")
+                .bodyValue(review)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody();
+    }
+}
@@ -0,0 +1,79 @@
+package com.spinic.microservices.core.review;
+
+import com.spinic.microservices.api.core.grpc.ProductIdRequest;
+import com.spinic.microservices.api.core.grpc.ReviewMessage;
+import com.spinic.microservices.api.core.grpc.ReviewServiceGrpc;
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.api.core.review.ReviewService;
+import com.spinic.microservices.core.review.services.ReviewGrpcService;
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams an endless lookup over gRPC, so a server that ignores the flow control or the cancel of the client never
+ * stops emitting.
+ */
+class ReviewGrpcServiceTests {
+
+    private static final int PRODUCT_ID = 1;
+
+    private final ReviewService reviewService = mock(ReviewService.class);
+    private final AtomicInteger emitted = new AtomicInteger();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(reviewService.getReviews(PRODUCT_ID)).thenReturn(Flux.range(1, Integer.MAX_VALUE)
+                .map(reviewId -> new Review(PRODUCT_ID, reviewId, "author", "subject", "content", "mock-address"))
+                .doOnNext(review -> emitted.incrementAndGet())
+                .doOnCancel(cancelled::countDown));
+
+        server = ServerBuilder.forPort(0).addService(new ReviewGrpcService(reviewService)).build().start();
+        channel = ManagedChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void aCancelledCallCancelsTheLookup() throws Exception {
+        Context.CancellableContext context = Context.current().withCancellation();
+        Iterator<ReviewMessage> reviews = context.call(() -> ReviewServiceGrpc.newBlockingStub(channel)
+                .getReviews(ProductIdRequest.newBuilder().setProductId(PRODUCT_ID).build()));
+
+        for (int reviewId = 1; reviewId <= 10; reviewId++) {
+            assertEquals(reviewId, reviews.next().getReviewId());
+        }
+
+        // The client reads no more, the server only runs ahead by what the transport buffers
+        Thread.sleep(200);
+        assertTrue(emitted.get() < 200_000, "Expected the lookup to wait for the client, emitted: " + emitted.get());
+
+        context.cancel(null);
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS), "Expected the lookup to be cancelled with the call");
+    }
+}
@@ -48,6 +48,17 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
                 .jsonPath("$[2].reviewId").isEqualTo(3);
     }
 
+    @Test
+    void getReviewsForProducts() {
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+        postAndVerifyReview(2, 1, OK);
+        postAndVerifyReview(3, 1, OK);
+
+        getAndVerifyReviewsByProductId("?productIds=1,2,213", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
     @Test
     void duplicateError() {
 
@@ -0,0 +1,153 @@
+package com.spinic.microservices.core.review.benchmark;
+
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.core.review.ReviewServiceApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop load of review creates and lookups over REST against the service with the default JPA profile and with
+ * the r2dbc profile, each on an in-memory H2 database in MySQL mode as a stand-in for MySQL. The stand-in answers at
+ * once and r2dbc-h2 runs it on the calling thread, so this compares the cost of each stack per call, the scheduler
+ * hop and collected results of JPA against the streamed rows of R2DBC, not the waiting on a remote database.
+ * Run with "./gradlew :microservices:review-service:benchmark".
+ */
+@Tag("benchmark")
+class PersistenceBenchmark {
+
+    private static final int PRODUCTS = 100;
+    private static final int REVIEWS_PER_PRODUCT = 10;
+    private static final int CLIENTS = 64;
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+
+    @Test
+    void persistenceThroughput() {
+        Result jpa = run("jpa", "spring.datasource.url=jdbc:h2:mem:reviews-jpa;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        Result r2dbc = run("r2dbc", "spring.r2dbc.url=r2dbc:h2:mem:///reviews-r2dbc;MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+        System.out.println("Review creates and getReviews (" + REVIEWS_PER_PRODUCT + " reviews) with " + CLIENTS + " concurrent clients");
+        System.out.println("  profile  creates/s  lookups/s  p50 ms  p99 ms  peak threads");
+        for (Result result : List.of(jpa, r2dbc)) {
+            System.out.printf("  %-7s  %9d  %9d  %6.2f  %6.2f  %12d%n", result.profile, result.createsPerSecond,
+                    result.lookupsPerSecond, result.p50Ms, result.p99Ms, result.peakThreads);
+        }
+
+        assertTrue(jpa.lookupsPerSecond > 0 && r2dbc.lookupsPerSecond > 0, "Expected both profiles to answer");
+    }
+
+    private Result run(String profile, String databaseUrl) {
+        // As arguments, they override application.yml
+        String[] args = {
+                "--server.port=0",
+                "--app.grpc.enabled=false",
+                "--logging.level.com.spinic=INFO",
+                "--logging.level.org.hibernate.SQL=INFO",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+                "--logging.level.org.springframework.r2dbc=INFO",
+                "--" + databaseUrl,
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.r2dbc.username=sa",
+                "--spring.r2dbc.password="};
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(ReviewServiceApplication.class);
+        if (profile.equals("r2dbc")) {
+            builder.profiles("r2dbc");
+        }
+
+        try (ConfigurableApplicationContext context = builder.run(args)) {
+            WebClient client = WebClient.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+
+            // Every review is created once, the lookups find all of them
+            AtomicInteger nextReview = new AtomicInteger();
+            Run creates = load(() -> {
+                int review = nextReview.getAndIncrement();
+                if (review >= PRODUCTS * REVIEWS_PER_PRODUCT) {
+                    return Mono.empty();
+                }
+                int productId = review % PRODUCTS + 1;
+                int reviewId = review / PRODUCTS + 1;
+                return client.post().uri("/review")
+                        .bodyValue(new Review(productId, reviewId, "Author", "Subject", "Content", null))
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                        .map(HttpStatusCode::is2xxSuccessful);
+            }, () -> nextReview.get() < PRODUCTS * REVIEWS_PER_PRODUCT);
+
+            // Warm up, then measure
+            load(() -> lookup(client), runTimeLeft());
+            Run lookups = load(() -> lookup(client), runTimeLeft());
+
+            List<Long> sorted = new ArrayList<>(lookups.latencies);
+            Collections.sort(sorted);
+            return new Result(profile,
+                    creates.perSecond(),
+                    lookups.perSecond(),
+                    sorted.get(sorted.size() / 2) / 1e6,
+                    sorted.get((int) (sorted.size() * 0.99)) / 1e6,
+                    threads.getPeakThreadCount());
+        }
+    }
+
+    private Mono<Boolean> lookup(WebClient client) {
+        int productId = ThreadLocalRandom.current().nextInt(1, PRODUCTS + 1);
+        return client.get().uri("/review?productId=" + productId)
+                .retrieve().bodyToFlux(Review.class)
+                .count()
+                .filter(count -> count == REVIEWS_PER_PRODUCT)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Expected " + REVIEWS_PER_PRODUCT + " reviews of product " + productId)))
+                .thenReturn(true);
+    }
+
+    private BooleanSupplier runTimeLeft() {
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+        return () -> System.nanoTime() < deadline;
+    }
+
+    // Calls repeatedly from each client while more is true, a call that answers true is counted
+    private Run load(Supplier<Mono<Boolean>> call, BooleanSupplier more) {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long runStart = System.nanoTime();
+        Flux.range(0, CLIENTS)
+                .flatMap(client -> Mono.defer(() -> {
+                            long start = System.nanoTime();
+                            return call.get().doOnNext(ok -> {
+                                if (ok) {
+                                    latencies.add(System.nanoTime() - start);
+                                }
+                            });
+                        })
+                        .repeat(more), CLIENTS)
+                .blockLast();
+        return new Run(latencies, System.nanoTime() - runStart);
+    }
+
+    private record Run(List<Long> latencies, long elapsedNanos) {
+
+        long perSecond() {
+            return latencies.size() * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    private record Result(String profile, long createsPerSecond, long lookupsPerSecond, double p50Ms, double p99Ms, int peakThreads) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.spinic.microservices.core.review.benchmark;
+
+import com.spinic.microservices.api.core.review.Review;
+import com.spinic.microservices.core.review.ReviewServiceApplication;
+import com.spinic.microservices.util.http.WebRuntimeLoad;
+import com.spinic.microservices.util.http.WebRuntimeLoad.Result;
+import com.spinic.microservices.util.http.WebRuntimeLoad.WebRuntime;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.spinic.microservices.util.http.WebRuntimeLoad.CLIENTS;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop load of getReviews over REST against the service in each web runtime, see WebRuntimeLoad. The JPA calls
+ * run on the JdbcScheduler with WebFlux and on the request threads with Spring MVC, against an in-memory H2 database in
+ * MySQL mode, so this is the one service where Spring MVC really blocks its request threads.
+ * Run with "./gradlew :microservices:review-service:benchmark".
+ */
+@Tag("benchmark")
+class WebRuntimeBenchmark {
+
+    private static final int PRODUCTS = 100;
+    private static final int REVIEWS_PER_PRODUCT = 10;
+
+    @Test
+    void webRuntimeThroughput() {
+        WebRuntimeLoad.runInEachWebRuntime(
+                "getReviews (" + REVIEWS_PER_PRODUCT + " reviews) with " + CLIENTS + " concurrent clients", this::run,
+                "The JPA calls block a request thread with mvc, a JdbcScheduler thread with webflux");
+    }
+
+    private Result run(WebRuntime runtime) {
+        try (ConfigurableApplicationContext context = WebRuntimeLoad.start(ReviewServiceApplication.class, runtime,
+                "--app.grpc.enabled=false",
+                "--logging.level.org.hibernate.SQL=INFO",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+                "--spring.datasource.url=jdbc:h2:mem:reviews-" + runtime.name() + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=")) {
+            WebClient client = WebClient.create(WebRuntimeLoad.baseUrl(context));
+
+            List<HttpStatusCode> created = Flux.range(0, PRODUCTS * REVIEWS_PER_PRODUCT)
+                    .flatMap(review -> client.post().uri("/review")
+                            .bodyValue(new Review(review % PRODUCTS + 1, review / PRODUCTS + 1, "Author", "Subject", "Content", null))
+                            .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode())), CLIENTS)
+                    .collectList().block();
+            assertTrue(created.stream().allMatch(HttpStatusCode::is2xxSuccessful), "Expected all creates to succeed in " + runtime);
+
+            return WebRuntimeLoad.measure(runtime, () -> lookup(client));
+        }
+    }
+
+    private Mono<Boolean> lookup(WebClient client) {
+        int productId = ThreadLocalRandom.current().nextInt(1, PRODUCTS + 1);
+        return client.get().uri("/review?productId=" + productId)
+                .retrieve().bodyToFlux(Review.class)
+                .count()
+                .filter(count -> count == REVIEWS_PER_PRODUCT)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Expected " + REVIEWS_PER_PRODUCT + " reviews of product " + productId)))
+                .thenReturn(true);
+    }
+}
@@ -0,0 +1,25 @@
+package com.spinic.microservices.util.concurrent;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads, on Java 21 or later. The build targets Java 17, so they are looked up at runtime.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task, empty on an older Java.
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.spinic.microservices.util.grpc;
+
+import com.spinic.microservices.api.exceptions.InvalidInputException;
+import com.spinic.microservices.api.exceptions.NotFoundException;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Maps the exceptions of the APIs to gRPC statuses and back, the way GlobalControllerExceptionHandler maps them to
+ * HTTP statuses: NotFoundException to NOT_FOUND and InvalidInputException to INVALID_ARGUMENT.
+ */
+public final class GrpcErrors {
+
+    private GrpcErrors() {
+    }
+
+    public static StatusRuntimeException toStatus(Throwable exception) {
+        Status status;
+        if (exception instanceof NotFoundException) {
+            status = Status.NOT_FOUND;
+        } else if (exception instanceof InvalidInputException) {
+            status = Status.INVALID_ARGUMENT;
+        } else {
+            status = Status.INTERNAL;
+        }
+        return status.withDescription(exception.getMessage()).asRuntimeException();
+    }
+
+    /**
+     * Returns the API exception of a NOT_FOUND or INVALID_ARGUMENT status, else the exception as is.
+     */
+    public static Throwable fromStatus(Throwable exception) {
+        if (!(exception instanceof StatusRuntimeException statusException)) {
+            return exception;
+        }
+        Status status = statusException.getStatus();
+        return switch (status.getCode()) {
+            case NOT_FOUND -> new NotFoundException(status.getDescription());
+            case INVALID_ARGUMENT -> new InvalidInputException(status.getDescription());
+            default -> exception;
+        };
+    }
+}
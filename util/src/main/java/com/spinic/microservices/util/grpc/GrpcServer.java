@@ -0,0 +1,90 @@
+package com.spinic.microservices.util.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the gRPC services of the application, i.e. its {@link BindableService} beans, next to its REST endpoints.
+ * <p>
+ * Off unless app.grpc.enabled is true. The services run on the default executor of gRPC, a cached thread pool, so
+ * they may block.
+ */
+@Component
+public class GrpcServer implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GrpcServer.class);
+
+    private final List<BindableService> services;
+    private final boolean enabled;
+    private final int port;
+
+    private Server server;
+
+    @Autowired
+    public GrpcServer(
+            List<BindableService> services,
+            @Value("${app.grpc.enabled:false}") boolean enabled,
+            @Value("${app.grpc.port:9090}") int port) {
+        this.services = services;
+        this.enabled = enabled;
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || services.isEmpty()) {
+            return;
+        }
+
+        ServerBuilder<?> builder = ServerBuilder.forPort(port);
+        services.forEach(builder::addService);
+        try {
+            server = builder.build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the gRPC server on port " + port, e);
+        }
+        LOG.info("gRPC server started on port {} with {} services", server.getPort(), services.size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(10, TimeUnit.SECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Returns the port the server listens to, -1 if it is not running.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getPort() : -1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.spinic.microservices.util.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Writes the values of a publisher to the response stream of a gRPC server call.
+ * <p>
+ * The publisher is only asked for more values while the call is ready, i.e. while the transport is not buffering
+ * messages the client has not read yet, so a slow client slows down the lookup instead of piling up messages in memory.
+ * A cancelled call, e.g. by the client or a passed deadline, cancels the subscription to the publisher.
+ */
+public final class GrpcStreams {
+
+    // Values requested at a time while the call is ready
+    static final int PREFETCH = 32;
+
+    private GrpcStreams() {
+    }
+
+    public static <T, M> void stream(Publisher<T> values, Function<T, M> toMessage, StreamObserver<M> responseObserver) {
+        ServerCallStreamObserver<M> call = (ServerCallStreamObserver<M>) responseObserver;
+        CallSubscriber<T, M> subscriber = new CallSubscriber<>(call, toMessage);
+        call.setOnCancelHandler(subscriber::dispose);
+        call.setOnReadyHandler(subscriber::requestIfReady);
+        values.subscribe(subscriber);
+    }
+
+    private static class CallSubscriber<T, M> extends BaseSubscriber<T> {
+
+        private final ServerCallStreamObserver<M> call;
+        private final Function<T, M> toMessage;
+        // Values requested but not received yet, more are only requested when it drops to zero
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        CallSubscriber(ServerCallStreamObserver<M> call, Function<T, M> toMessage) {
+            this.call = call;
+            this.toMessage = toMessage;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            requestIfReady();
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            call.onNext(toMessage.apply(value));
+            if (outstanding.decrementAndGet() == 0) {
+                requestIfReady();
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            call.onCompleted();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            call.onError(GrpcErrors.toStatus(throwable));
+        }
+
+        void requestIfReady() {
+            if (upstream() != null && !isDisposed() && call.isReady() && outstanding.compareAndSet(0, PREFETCH)) {
+                request(PREFETCH);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.spinic.microservices.util.http;
+
+import io.netty.channel.unix.DomainSocketAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * Serves the endpoints of the application on a Unix domain socket too, for clients on the same host, when
+ * app.http-server.socket-path is set. The socket takes both HTTP/1.1 and HTTP/2 without TLS (h2c, with prior
+ * knowledge), the TCP port stays as configured with server.port and server.http2.enabled.
+ * <p>
+ * Needs the native epoll transport of Netty, i.e. Linux, and the WebFlux web runtime.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class DomainSocketServer implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DomainSocketServer.class);
+
+    private final ObjectProvider<HttpHandler> httpHandler;
+    private final String socketPath;
+
+    private DisposableServer server;
+
+    @Autowired
+    public DomainSocketServer(ObjectProvider<HttpHandler> httpHandler, @Value("${app.http-server.socket-path:}") String socketPath) {
+        this.httpHandler = httpHandler;
+        this.socketPath = socketPath;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (socketPath.isEmpty()) {
+            return;
+        }
+
+        // A socket file left behind by a previous run would make the bind fail
+        new File(socketPath).delete();
+        server = HttpServer.create()
+                .bindAddress(() -> new DomainSocketAddress(socketPath))
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler.getObject()))
+                .bindNow();
+        LOG.info("HTTP server started on Unix domain socket {}", socketPath);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+
+        server.disposeNow(Duration.ofSeconds(10));
+        server = null;
+        new File(socketPath).delete();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+}
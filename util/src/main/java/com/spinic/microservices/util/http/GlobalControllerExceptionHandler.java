@@ -6,7 +6,7 @@ import com.spinic.microservices.api.exceptions.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.RequestPath;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -16,6 +16,10 @@ import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
+/**
+ * Maps the exceptions of the API to error responses, with WebFlux and Spring MVC alike, see
+ * {@link WebRuntimeConfiguration} for the {@link RequestPath} argument.
+ */
 @RestControllerAdvice
 public class GlobalControllerExceptionHandler {
 
@@ -25,36 +29,36 @@ public class GlobalControllerExceptionHandler {
     @ExceptionHandler(NotFoundException.class)
     public @ResponseBody
     HttpErrorInfo handleNotFoundExceptions(
-            ServerHttpRequest request, NotFoundException exception
+            RequestPath path, NotFoundException exception
     ) {
-        return createHttpErrorInfo(NOT_FOUND, request, exception);
+        return createHttpErrorInfo(NOT_FOUND, path, exception);
     }
 
     @ResponseStatus(UNPROCESSABLE_ENTITY)
     @ExceptionHandler(InvalidInputException.class)
     public @ResponseBody
     HttpErrorInfo handleInvalidInputException(
-            ServerHttpRequest request, InvalidInputException ex) {
-        return createHttpErrorInfo(UNPROCESSABLE_ENTITY, request, ex);
+            RequestPath path, InvalidInputException ex) {
+        return createHttpErrorInfo(UNPROCESSABLE_ENTITY, path, ex);
     }
 
 
     private HttpErrorInfo createHttpErrorInfo(
-            HttpStatus httpStatus, ServerHttpRequest request, Exception exception) {
+            HttpStatus httpStatus, RequestPath path, Exception exception) {
 
-        final String path = request.getPath().pathWithinApplication().value();
+        final String pathWithinApplication = path.pathWithinApplication().value();
         final String message = exception.getMessage();
 
-        LOGGER.debug("Returning HTTP status: {} for path: {}, message: {}", httpStatus, path, message);
+        LOGGER.debug("Returning HTTP status: {} for path: {}, message: {}", httpStatus, pathWithinApplication, message);
 
-        return new HttpErrorInfo(httpStatus, path, message);
+        return new HttpErrorInfo(httpStatus, pathWithinApplication, message);
     }
 
     @ResponseStatus(BAD_REQUEST)
     @ExceptionHandler(BadRequestException.class)
     public @ResponseBody
     HttpErrorInfo handleBadRequestExceptions(
-            ServerHttpRequest request, BadRequestException ex) {
-        return createHttpErrorInfo(BAD_REQUEST, request, ex);
+            RequestPath path, BadRequestException ex) {
+        return createHttpErrorInfo(BAD_REQUEST, path, ex);
     }
 }
@@ -0,0 +1,83 @@
+package com.spinic.microservices.util.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The point in time by which the caller of a request needs the response.
+ * <p>
+ * A deadline is sent as a time budget in milliseconds, in the header "X-Deadline-Ms" or the query parameter
+ * "deadlineMs", and not as a point in time, so the clocks of the caller and the service do not need to agree.
+ * A service that calls other services passes on what is left of the budget in the same header.
+ * <p>
+ * Within a service the deadline travels in the Reactor context of the request, see {@link RequestDeadlineFilter}.
+ */
+public final class RequestDeadline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestDeadline.class);
+
+    public static final String HEADER = "X-Deadline-Ms";
+    public static final String QUERY_PARAM = "deadlineMs";
+
+    private final long deadlineNanos;
+
+    private RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static RequestDeadline after(Duration budget) {
+        return new RequestDeadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Returns the deadline of the request, if the caller sent one. A budget that is not a number is ignored.
+     */
+    public static Optional<RequestDeadline> from(ServerHttpRequest request) {
+        String budget = request.getHeaders().getFirst(HEADER);
+        if (budget == null) {
+            budget = request.getQueryParams().getFirst(QUERY_PARAM);
+        }
+        if (budget == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(after(Duration.ofMillis(Long.parseLong(budget.trim()))));
+        } catch (NumberFormatException ex) {
+            LOG.debug("Ignores the invalid deadline: {}", budget);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the deadline of the request that is processed in the given Reactor context, if any.
+     */
+    public static Optional<RequestDeadline> from(ContextView context) {
+        return context.getOrEmpty(RequestDeadline.class);
+    }
+
+    public Context addTo(Context context) {
+        return context.put(RequestDeadline.class, this);
+    }
+
+    /**
+     * Returns the time left until the deadline, zero if it has passed.
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean hasPassed() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return remaining().toMillis() + " ms left";
+    }
+}
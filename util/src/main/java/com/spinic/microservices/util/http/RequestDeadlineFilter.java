@@ -0,0 +1,80 @@
+package com.spinic.microservices.util.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
+
+/**
+ * Puts the {@link RequestDeadline} of an incoming request, if any, in the Reactor context of its processing.
+ * <p>
+ * When enforced, which is the default, a request whose deadline has already passed is answered with 504 without
+ * being processed, and the processing of a request is cancelled once its deadline passes. The caller has given up
+ * on the response by then, so the work would be wasted. A service that rather answers with what it has at the
+ * deadline, like the product-composite, turns enforcing off and uses the deadline itself.
+ * <p>
+ * WebFlux only, with the mvc web runtime deadlines are not looked at, see {@link WebRuntimeConfiguration}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class RequestDeadlineFilter implements WebFilter, Ordered {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestDeadlineFilter.class);
+
+    private final boolean enforced;
+
+    @Autowired
+    public RequestDeadlineFilter(@Value("${app.request-deadline.enforced:true}") boolean enforced) {
+        this.enforced = enforced;
+    }
+
+    @Override
+    public int getOrder() {
+        // Right after a load shedding filter, if any, so a rejected request is not looked at twice
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Optional<RequestDeadline> found = RequestDeadline.from(exchange.getRequest());
+        if (found.isEmpty()) {
+            return chain.filter(exchange);
+        }
+
+        RequestDeadline deadline = found.get();
+        if (!enforced) {
+            return chain.filter(exchange).contextWrite(deadline::addTo);
+        }
+
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (deadline.hasPassed()) {
+            LOG.debug("Skips a request to {}, its deadline has already passed", path);
+            return gatewayTimeout(exchange.getResponse());
+        }
+        return chain.filter(exchange)
+                .timeout(deadline.remaining(), Mono.defer(() -> {
+                    LOG.debug("Abandons a request to {}, its deadline has passed", path);
+                    return gatewayTimeout(exchange.getResponse());
+                }))
+                .contextWrite(deadline::addTo);
+    }
+
+    private Mono<Void> gatewayTimeout(ServerHttpResponse response) {
+        if (!response.isCommitted()) {
+            response.setStatusCode(GATEWAY_TIMEOUT);
+        }
+        return response.setComplete();
+    }
+}
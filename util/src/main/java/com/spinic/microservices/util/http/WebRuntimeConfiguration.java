@@ -0,0 +1,105 @@
+package com.spinic.microservices.util.http;
+
+import com.spinic.microservices.util.concurrent.VirtualThreads;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.util.List;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * The services run on WebFlux and Netty, or on Spring MVC and Tomcat when built with "-PwebRuntime=mvc", which adds
+ * spring-boot-starter-web. The controllers are the same in both, Spring MVC subscribes to the Mono and Flux they
+ * return. The filters, e.g. {@link RequestDeadlineFilter}, and the {@link DomainSocketServer} are WebFlux only.
+ * <p>
+ * Both runtimes resolve a {@link RequestPath} argument of a controller or exception handler method, see
+ * {@link GlobalControllerExceptionHandler}. With Spring MVC, Tomcat serves each request on a virtual thread of its
+ * own unless app.http-server.virtual-threads is false, so the blocking calls of a request, e.g. JDBC, are cheap.
+ * That needs Java 21 or later, on an older Java the Tomcat thread pool is used.
+ */
+@Configuration(proxyBeanMethods = false)
+public class WebRuntimeConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WebRuntimeConfiguration.class);
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = REACTIVE)
+    static class WebFluxRuntime implements WebFluxConfigurer {
+
+        @Override
+        public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+            configurer.addCustomResolver(new SyncHandlerMethodArgumentResolver() {
+                @Override
+                public boolean supportsParameter(MethodParameter parameter) {
+                    return parameter.getParameterType().equals(RequestPath.class);
+                }
+
+                @Override
+                public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+                    return exchange.getRequest().getPath();
+                }
+            });
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = SERVLET)
+    @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+    static class ServletRuntime implements WebMvcConfigurer {
+
+        @Bean
+        TomcatProtocolHandlerCustomizer<?> virtualThreadsCustomizer(@Value("${app.http-server.virtual-threads:true}") boolean virtualThreads) {
+            return protocolHandler -> {
+                if (!virtualThreads) {
+                    return;
+                }
+                VirtualThreads.newThreadPerTaskExecutor().ifPresentOrElse(executor -> {
+                    protocolHandler.setExecutor(executor);
+                    LOG.info("Tomcat serves each request on a virtual thread");
+                }, () -> LOG.warn("Virtual threads need Java 21 or later, runs on Java {}, Tomcat uses its thread pool",
+                        Runtime.version().feature()));
+            };
+        }
+
+        @Override
+        public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+            resolvers.add(new HandlerMethodArgumentResolver() {
+                @Override
+                public boolean supportsParameter(MethodParameter parameter) {
+                    return parameter.getParameterType().equals(RequestPath.class);
+                }
+
+                @Override
+                public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                              NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+                    HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+                    return ServletRequestPathUtils.hasParsedRequestPath(request)
+                            ? ServletRequestPathUtils.getParsedRequestPath(request)
+                            : ServletRequestPathUtils.parseAndCache(request);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.spinic.microservices.util.reactor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import reactor.blockhound.BlockHound;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diagnostic mode that detects blocking calls, e.g. JDBC, file or socket I/O and sleeps, made on a non-blocking thread,
+ * e.g. a reactor-http event loop or a Reactor parallel scheduler, with BlockHound. Set "app.blocking-call-detector.mode"
+ * to "log" to log each blocking method once with the stack of its first call, or to "fail" to throw a
+ * BlockingOperationError from the call, which fails the request. Default is "off".
+ * <p>
+ * BlockHound only watches threads started after it is installed, so it is installed as soon as the environment is
+ * read, before any event loop exists. It instruments JDK classes, the JVM needs the option
+ * "-XX:+AllowRedefinitionToAddDeleteMethods" for that, e.g. in JAVA_TOOL_OPTIONS. It slows down every call it checks,
+ * use it to find the blocking calls, not in production.
+ */
+public class BlockingCallDetector implements EnvironmentPostProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlockingCallDetector.class);
+
+    public static final String MODE_PROPERTY = "app.blocking-call-detector.mode";
+
+    private static final Set<String> loggedMethods = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        String mode = environment.getProperty(MODE_PROPERTY, "off");
+        switch (mode) {
+            case "off" -> {
+            }
+            // Next to the integrations on the classpath, e.g. the one of Reactor that tells which threads are non-blocking
+            case "log" -> BlockHound.install(builder -> builder.blockingMethodCallback(method -> {
+                if (loggedMethods.add(method.toString())) {
+                    LOG.warn("Blocking call {} on the non-blocking thread {}", method, Thread.currentThread().getName(),
+                            new Exception("Stack of the blocking call"));
+                }
+            }));
+            // The default callback throws
+            case "fail" -> BlockHound.install();
+            default -> throw new IllegalArgumentException("Unknown " + MODE_PROPERTY + ": " + mode + ", expected off, log or fail");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.spinic.microservices.util.http;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The load of the WebRuntimeBenchmarks of the services: a closed loop of {@link #CLIENTS} clients that call a service
+ * for {@link #RUN_TIME} in each web runtime, see WebRuntimeConfiguration. The heap and the threads are sampled while the
+ * load runs, and the results of all web runtimes are printed as one table.
+ * <p>
+ * The web runtime only decides how the requests are served. Under Spring MVC a controller that returns a Mono or Flux,
+ * e.g. of a reactive MongoDB repository or a WebClient, is still served asynchronously, only a blocking call such as
+ * JPA holds the request thread. So for those services the benchmarks compare the servers, not blocking and
+ * non-blocking I/O.
+ */
+public final class WebRuntimeLoad {
+
+    public static final int CLIENTS = 64;
+    public static final Duration RUN_TIME = Duration.ofSeconds(3);
+
+    private WebRuntimeLoad() {
+    }
+
+    public enum WebRuntime {
+        WEBFLUX("webflux", WebApplicationType.REACTIVE, false),
+        MVC("mvc", WebApplicationType.SERVLET, false),
+        MVC_VIRTUAL_THREADS("mvc, virtual threads", WebApplicationType.SERVLET, true);
+
+        private final String label;
+        private final WebApplicationType type;
+        private final boolean virtualThreads;
+
+        WebRuntime(String label, WebApplicationType type, boolean virtualThreads) {
+            this.label = label;
+            this.type = type;
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    public record Result(WebRuntime runtime, long requestsPerSecond, double p50Ms, double p99Ms, long peakHeapMb, int peakThreads) {
+    }
+
+    /**
+     * Runs the benchmark in each web runtime this JVM supports and prints the results under the title, followed by the
+     * notes. Virtual threads need Java 21 or later.
+     */
+    public static List<Result> runInEachWebRuntime(String title, Function<WebRuntime, Result> run, String... notes) {
+        List<Result> results = new ArrayList<>();
+        for (WebRuntime runtime : WebRuntime.values()) {
+            if (runtime.virtualThreads && Runtime.version().feature() < 21) {
+                System.out.println("Skips " + runtime.label + ", virtual threads need Java 21 or later");
+                continue;
+            }
+            results.add(run.apply(runtime));
+        }
+
+        System.out.println(title);
+        System.out.println("  web runtime            requests/s  p50 ms  p99 ms  peak heap MB  peak threads");
+        for (Result result : results) {
+            System.out.printf("  %-21s  %10d  %6.2f  %6.2f  %12d  %12d%n", result.runtime.label, result.requestsPerSecond,
+                    result.p50Ms, result.p99Ms, result.peakHeapMb, result.peakThreads);
+        }
+        Stream.of(notes).forEach(note -> System.out.println("  " + note));
+
+        assertTrue(results.stream().allMatch(result -> result.requestsPerSecond > 0), "Expected every web runtime to answer");
+        return results;
+    }
+
+    /**
+     * Starts the application in the web runtime on a random port, the arguments override application.yml.
+     */
+    public static ConfigurableApplicationContext start(Class<?> application, WebRuntime runtime, String... args) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(application).web(runtime.type);
+        if (runtime.type == WebApplicationType.REACTIVE) {
+            // Tomcat is on the classpath of the benchmarks too, and would be picked as the reactive server
+            builder.initializers((GenericApplicationContext context) -> context.registerBean(NettyReactiveWebServerFactory.class));
+        }
+        String[] runtimeArgs = {
+                "--server.port=0",
+                "--app.http-server.virtual-threads=" + runtime.virtualThreads,
+                "--logging.level.com.spinic=INFO"};
+        return builder.run(Stream.concat(Stream.of(runtimeArgs), Stream.of(args)).toArray(String[]::new));
+    }
+
+    public static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    /**
+     * Warms up, then calls repeatedly from each client for the run time while the heap and the threads are sampled.
+     * A call that answers true is counted.
+     */
+    public static Result measure(WebRuntime runtime, Supplier<Mono<Boolean>> call) {
+        load(call);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        Disposable heapSampler = Flux.interval(Duration.ofMillis(50))
+                .subscribe(tick -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max));
+        Run run;
+        try {
+            run = load(call);
+        } finally {
+            heapSampler.dispose();
+        }
+
+        List<Long> sorted = new ArrayList<>(run.latencies);
+        Collections.sort(sorted);
+        return new Result(runtime,
+                run.perSecond(),
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6,
+                peakHeap.get() / (1024 * 1024),
+                threads.getPeakThreadCount());
+    }
+
+    private static Run load(Supplier<Mono<Boolean>> call) {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long runStart = System.nanoTime();
+        long deadline = runStart + RUN_TIME.toNanos();
+        Flux.range(0, CLIENTS)
+                .flatMap(client -> Mono.defer(() -> {
+                            long start = System.nanoTime();
+                            return call.get().doOnNext(ok -> {
+                                if (ok) {
+                                    latencies.add(System.nanoTime() - start);
+                                }
+                            });
+                        })
+                        .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                .blockLast();
+        return new Run(latencies, System.nanoTime() - runStart);
+    }
+
+    private record Run(List<Long> latencies, long elapsedNanos) {
+
+        long perSecond() {
+            return latencies.size() * 1_000_000_000L / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.spinic.microservices.util.reactor;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the blocking calls that BlockHound detects on non-blocking threads, e.g. event loops, instead of failing
+ * them, so a test can assert on them after a load. blockhound-junit-platform installs BlockHound with this integration
+ * when the tests start, before any event loop thread exists, threads started earlier would not be watched. The test
+ * fixtures of util register it, for every service that tests with them.
+ */
+public class BlockingCalls implements BlockHoundIntegration {
+
+    private static final List<String> calls = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        builder.blockingMethodCallback(method -> calls.add(method + " on " + Thread.currentThread().getName()));
+    }
+
+    public static List<String> get() {
+        return List.copyOf(calls);
+    }
+
+    public static void clear() {
+        calls.clear();
+    }
+}
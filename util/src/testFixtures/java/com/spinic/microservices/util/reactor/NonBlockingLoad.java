@@ -0,0 +1,50 @@
+package com.spinic.microservices.util.reactor;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The load of the NonBlockingLoadTests of the services: many requests over REST, {@link #CONCURRENCY} at a time, while
+ * BlockHound watches the non-blocking threads. Afterwards none of them is expected to have blocked, see
+ * {@link BlockingCalls}.
+ */
+public final class NonBlockingLoad {
+
+    public static final int CONCURRENCY = 64;
+
+    private NonBlockingLoad() {
+    }
+
+    /**
+     * Sends the request for each of count numbers from start, and returns the status of every response.
+     */
+    public static List<HttpStatusCode> statuses(int start, int count, IntFunction<WebClient.RequestHeadersSpec<?>> request) {
+        return Flux.range(start, count)
+                .flatMap(i -> status(request.apply(i)), CONCURRENCY)
+                .collectList().block();
+    }
+
+    /**
+     * Looks up each of count numbers from start, and returns how many elements all lookups found together.
+     */
+    public static long count(int start, int count, IntFunction<Flux<?>> lookup) {
+        return Flux.range(start, count)
+                .flatMap(lookup::apply, CONCURRENCY)
+                .count().block();
+    }
+
+    public static Mono<HttpStatusCode> status(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()));
+    }
+
+    public static void assertNoBlockingCalls() {
+        assertEquals(List.of(), BlockingCalls.get(), "Expected no blocking calls on non-blocking threads");
+    }
+}